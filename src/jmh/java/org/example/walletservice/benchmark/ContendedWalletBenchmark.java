@@ -0,0 +1,71 @@
+package org.example.walletservice.benchmark;
+
+import org.example.walletservice.WalletRepository;
+import org.example.walletservice.dto.BalanceUpdate;
+import org.example.walletservice.entity.Wallet;
+import org.example.walletservice.money.MinorUnits;
+import org.example.walletservice.service.WalletService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Eight threads updating one hot wallet. {@code readModifyWrite} is the find/compute/save sequence
+ * deposit used before the single-statement update; it is kept here only as a baseline and loses
+ * updates under this load.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class ContendedWalletBenchmark {
+
+    private static final long HOT_CUSTOMER_ID = 1L;
+
+    private final AtomicLong requestIds = new AtomicLong();
+    private ConfigurableApplicationContext context;
+    private WalletService walletService;
+    private WalletRepository walletRepository;
+    private TransactionTemplate transactionTemplate;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = WalletBenchmarkContext.start("contended-wallet-benchmark");
+        walletService = context.getBean(WalletService.class);
+        walletRepository = context.getBean(WalletRepository.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        walletService.createWallets(List.of(HOT_CUSTOMER_ID), 0L);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Wallet serviceDeposit() {
+        return walletService.deposit(HOT_CUSTOMER_ID, 1_00L, "contended-" + requestIds.incrementAndGet());
+    }
+
+    @Benchmark
+    public BalanceUpdate atomicCredit() {
+        return transactionTemplate.execute(status -> walletRepository.credit(HOT_CUSTOMER_ID, 1_00L));
+    }
+
+    @Benchmark
+    public Wallet readModifyWrite() {
+        return transactionTemplate.execute(status -> {
+            Wallet wallet = walletRepository.findByCustomerId(HOT_CUSTOMER_ID).orElseThrow();
+            wallet.setBalance(MinorUnits.add(wallet.getBalance(), 1_00L));
+            return walletRepository.save(wallet);
+        });
+    }
+}
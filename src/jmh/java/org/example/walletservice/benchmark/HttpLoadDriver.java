@@ -0,0 +1,156 @@
+package org.example.walletservice.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop HTTP load against a running wallet service, used to compare the platform-thread and
+ * virtual-thread modes ({@code spring.threads.virtual.enabled}) of the same build. Each worker issues
+ * {@code load.readRatio} balance reads per deposit on a random customer from an existing wallet range.
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=org.example.walletservice.benchmark.HttpLoadDriver \
+ *     -Dload.customerFrom=1 -Dload.customerTo=10000 -Dload.concurrency=256 -Dload.durationSeconds=60
+ * </pre>
+ */
+public final class HttpLoadDriver {
+
+    private final String baseUrl = System.getProperty("load.baseUrl", "http://localhost:8082");
+    private final long customerFrom = Long.getLong("load.customerFrom", 1);
+    private final long customerTo = Long.getLong("load.customerTo", 1000);
+    private final int concurrency = Integer.getInteger("load.concurrency", 64);
+    private final int durationSeconds = Integer.getInteger("load.durationSeconds", 30);
+    private final int readRatio = Integer.getInteger("load.readRatio", 20);
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private final AtomicLong requestIds = new AtomicLong(System.currentTimeMillis() * 1000);
+    private final AtomicLong errors = new AtomicLong();
+
+    public static void main(String[] args) throws Exception {
+        new HttpLoadDriver().run();
+    }
+
+    private void run() throws Exception {
+        System.out.printf("Driving %s with %d workers for %ds (customers %d-%d, %d reads per write)%n",
+                baseUrl, concurrency, durationSeconds, customerFrom, customerTo, readRatio);
+        long deadline = System.nanoTime() + Duration.ofSeconds(durationSeconds).toNanos();
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        List<Future<WorkerResult>> results = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            results.add(workers.submit(() -> drive(deadline)));
+        }
+
+        Latencies reads = new Latencies();
+        Latencies writes = new Latencies();
+        for (Future<WorkerResult> result : results) {
+            reads.addAll(result.get().reads());
+            writes.addAll(result.get().writes());
+        }
+        workers.shutdown();
+
+        report("balance", reads, durationSeconds);
+        report("deposit", writes, durationSeconds);
+        System.out.printf("errors: %d%n", errors.get());
+    }
+
+    private WorkerResult drive(long deadline) {
+        WorkerResult latencies = new WorkerResult(new Latencies(), new Latencies());
+        long operations = 0;
+        while (System.nanoTime() < deadline) {
+            long customerId = ThreadLocalRandom.current().nextLong(customerFrom, customerTo + 1);
+            boolean write = readRatio == 0 || operations++ % (readRatio + 1) == 0;
+            HttpRequest request = write ? deposit(customerId) : balance(customerId);
+            long start = System.nanoTime();
+            try {
+                HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() != 200) {
+                    errors.incrementAndGet();
+                    continue;
+                }
+            } catch (Exception e) {
+                errors.incrementAndGet();
+                continue;
+            }
+            (write ? latencies.writes() : latencies.reads()).add(System.nanoTime() - start);
+        }
+        return latencies;
+    }
+
+    private HttpRequest deposit(long customerId) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/wallet/deposit"))
+                .header("userId", Long.toString(customerId))
+                .header("requestId", "load-" + requestIds.incrementAndGet())
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"amount\": 1.00}"))
+                .build();
+    }
+
+    private HttpRequest balance(long customerId) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/wallet/balance"))
+                .header("userId", Long.toString(customerId))
+                .GET()
+                .build();
+    }
+
+    private static void report(String name, Latencies latencies, int durationSeconds) {
+        long[] sorted = latencies.sorted();
+        if (sorted.length == 0) {
+            System.out.printf("%-8s no successful requests%n", name);
+            return;
+        }
+        System.out.printf("%-8s %10.1f ops/s  p50 %8.2f ms  p99 %8.2f ms  p99.9 %8.2f ms  max %8.2f ms%n",
+                name, (double) sorted.length / durationSeconds,
+                millis(percentile(sorted, 0.50)), millis(percentile(sorted, 0.99)),
+                millis(percentile(sorted, 0.999)), millis(sorted[sorted.length - 1]));
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1)];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private record WorkerResult(Latencies reads, Latencies writes) {
+    }
+
+    /**
+     * Growable array of latencies in nanoseconds, owned by a single worker until it finishes.
+     */
+    private static final class Latencies {
+
+        private long[] values = new long[1024];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void addAll(Latencies other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.values[i]);
+            }
+        }
+
+        long[] sorted() {
+            long[] copy = Arrays.copyOf(values, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package org.example.walletservice.benchmark;
+
+import org.example.walletservice.ProcessedRequestRepository;
+import org.example.walletservice.entity.Wallet;
+import org.example.walletservice.service.IdempotencyStore;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory tier of {@link IdempotencyStore} filled with {@code size} request ids. The table behind it is
+ * replaced by a stub that never finds anything, so {@code miss} measures the cache lookup only. The heap
+ * retained by the filled store is printed during setup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+@State(Scope.Benchmark)
+public class IdempotencyStoreBenchmark {
+
+    @Param({"100000", "10000000"})
+    private int size;
+
+    private IdempotencyStore idempotencyStore;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        long heapBefore = usedHeap();
+        idempotencyStore = new IdempotencyStore(emptyRepository(), size, Duration.ofHours(24));
+        Wallet result = Wallet.builder().customerId(1L).balance(10_00L).build();
+        for (int i = 0; i < size; i++) {
+            idempotencyStore.record(requestId(i), result);
+        }
+        long retained = usedHeap() - heapBefore;
+        System.out.printf("%nIdempotencyStore with %,d request ids retains ~%,d MB (%d bytes per id)%n",
+                size, retained / (1024 * 1024), retained / size);
+    }
+
+    @Benchmark
+    public Optional<Wallet> hit() {
+        return idempotencyStore.find(requestId(ThreadLocalRandom.current().nextInt(size)));
+    }
+
+    @Benchmark
+    public Optional<Wallet> miss() {
+        return idempotencyStore.find(requestId(size + ThreadLocalRandom.current().nextInt(size)));
+    }
+
+    private static String requestId(int i) {
+        return "req-" + i;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static ProcessedRequestRepository emptyRepository() {
+        return (ProcessedRequestRepository) Proxy.newProxyInstance(
+                ProcessedRequestRepository.class.getClassLoader(),
+                new Class<?>[]{ProcessedRequestRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "findById" -> Optional.empty();
+                    case "save" -> args[0];
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
@@ -0,0 +1,215 @@
+package org.example.walletservice.benchmark;
+
+import jakarta.jms.Connection;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.Session;
+import org.example.walletservice.WalletApplication;
+import org.example.walletservice.WalletRepository;
+import org.example.walletservice.dto.CustomerUpdateEvent;
+import org.example.walletservice.dto.UpdateEvent;
+import org.example.walletservice.jms.codec.EventCodecs;
+import org.example.walletservice.service.WalletService;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jms.core.JmsTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * End-to-end throughput through the real JMS wiring, on the embedded broker of the {@code local}
+ * profile. Measures two paths, each from the first message in to the last effect out:
+ * <ul>
+ *     <li>registration: {@code load.customers} events on {@code customer-update-queue} until every wallet exists</li>
+ *     <li>deposit: {@code load.deposits} deposits from {@code load.concurrency} workers until every balance event
+ *     has arrived on {@code balance-update-event}, with the deposit-to-event latency of each</li>
+ * </ul>
+ * Pass service properties as further {@code -D} options, e.g. {@code -Dwallet.events.codec=binary} or
+ * {@code -Dwallet.listener.batch.enabled=true}, to compare configurations.
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=org.example.walletservice.benchmark.MessagingLoadDriver \
+ *     -Dload.customers=10000 -Dload.deposits=100000 -Dload.concurrency=32
+ * </pre>
+ */
+public final class MessagingLoadDriver {
+
+    private static final String CUSTOMER_QUEUE = "customer-update-queue";
+    private static final String BALANCE_QUEUE = "balance-update-event";
+    private static final long DEPOSIT_AMOUNT = 1_00L;
+
+    private final int customers = Integer.getInteger("load.customers", 10_000);
+    private final int deposits = Integer.getInteger("load.deposits", 50_000);
+    private final int concurrency = Integer.getInteger("load.concurrency", 16);
+    private final int timeoutSeconds = Integer.getInteger("load.timeoutSeconds", 300);
+
+    private final AtomicLong errors = new AtomicLong();
+
+    public static void main(String[] args) throws Exception {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(WalletApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("local")
+                .properties("spring.main.banner-mode=off",
+                        // Per-message INFO logging would dominate the measurements
+                        "logging.level.org.example.walletservice=WARN",
+                        "logging.level.org.hibernate.SQL=WARN")
+                .run(args);
+        try {
+            new MessagingLoadDriver().run(context);
+        } finally {
+            context.close();
+        }
+    }
+
+    private void run(ConfigurableApplicationContext context) throws Exception {
+        System.out.printf("Registering %d customers, then %d deposits from %d workers%n", customers, deposits, concurrency);
+        register(context.getBean(JmsTemplate.class), context.getBean(EventCodecs.class), context.getBean(WalletRepository.class));
+        deposit(context.getBean(ConnectionFactory.class), context.getBean(EventCodecs.class), context.getBean(WalletService.class));
+        System.out.printf("errors: %d%n", errors.get());
+    }
+
+    private void register(JmsTemplate jmsTemplate, EventCodecs eventCodecs, WalletRepository walletRepository) throws InterruptedException {
+        long start = System.nanoTime();
+        for (long customerId = 1; customerId <= customers; customerId++) {
+            CustomerUpdateEvent event = new CustomerUpdateEvent(customerId);
+            jmsTemplate.send(CUSTOMER_QUEUE, session -> eventCodecs.encode(event, session));
+        }
+        long sent = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        long created;
+        while ((created = walletRepository.count()) < customers && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%-12s %10.1f wallets/s  (%d of %d in %.2f s, sending took %.2f s)%n",
+                "registration", created / seconds(elapsed), created, customers, seconds(elapsed), seconds(sent - start));
+    }
+
+    private void deposit(ConnectionFactory connectionFactory, EventCodecs eventCodecs, WalletService walletService) throws Exception {
+        // Keyed by customer and resulting balance, which identifies a deposit as long as each customer
+        // is only ever deposited to by one worker
+        Map<String, Long> startTimes = new ConcurrentHashMap<>();
+        CountDownLatch received = new CountDownLatch(deposits);
+        Latencies latencies = new Latencies();
+
+        try (Connection connection = connectionFactory.createConnection()) {
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            MessageConsumer consumer = session.createConsumer(session.createQueue(BALANCE_QUEUE));
+            // Runs on the single delivery thread of the session, which owns the latencies
+            consumer.setMessageListener(message -> {
+                try {
+                    UpdateEvent event = eventCodecs.decode(message, UpdateEvent.class);
+                    Long sentAt = startTimes.remove(event.getCustomerId() + ":" + event.getBalance());
+                    if (sentAt != null) {
+                        latencies.add(System.nanoTime() - sentAt);
+                        received.countDown();
+                    }
+                } catch (Exception e) {
+                    errors.incrementAndGet();
+                }
+            });
+            connection.start();
+
+            long start = System.nanoTime();
+            ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+            List<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                int worker = i;
+                results.add(workers.submit(() -> drive(worker, walletService, startTimes, received)));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+            workers.shutdown();
+            long submitted = System.nanoTime();
+            boolean complete = received.await(timeoutSeconds, TimeUnit.SECONDS);
+            long elapsed = System.nanoTime() - start;
+            connection.stop();
+
+            long[] sorted = latencies.sorted();
+            System.out.printf("%-12s %10.1f deposits/s  (%d of %d events in %.2f s, deposits took %.2f s)%s%n",
+                    "deposit", sorted.length / seconds(elapsed), sorted.length, deposits, seconds(elapsed),
+                    seconds(submitted - start), complete ? "" : ", timed out");
+            if (sorted.length > 0) {
+                System.out.printf("%-12s p50 %8.2f ms  p99 %8.2f ms  p99.9 %8.2f ms  max %8.2f ms%n",
+                        "to event", millis(percentile(sorted, 0.50)), millis(percentile(sorted, 0.99)),
+                        millis(percentile(sorted, 0.999)), millis(sorted[sorted.length - 1]));
+            }
+        }
+    }
+
+    private void drive(int worker, WalletService walletService, Map<String, Long> startTimes, CountDownLatch received) {
+        // This worker's customers are those with (customerId - 1) % concurrency == worker
+        int owned = (customers - worker + concurrency - 1) / concurrency;
+        int operations = deposits / concurrency + (worker < deposits % concurrency ? 1 : 0);
+        if (owned <= 0) {
+            errors.addAndGet(operations);
+            for (int i = 0; i < operations; i++) {
+                received.countDown();
+            }
+            return;
+        }
+        long[] balances = new long[owned];
+        for (int i = 0; i < operations; i++) {
+            int slot = i % owned;
+            long customerId = 1L + worker + (long) slot * concurrency;
+            long expected = balances[slot] + DEPOSIT_AMOUNT;
+            String key = customerId + ":" + expected;
+            startTimes.put(key, System.nanoTime());
+            try {
+                walletService.deposit(customerId, DEPOSIT_AMOUNT, "load-" + worker + "-" + i);
+                balances[slot] = expected;
+            } catch (Exception e) {
+                startTimes.remove(key);
+                errors.incrementAndGet();
+                // No event will come for it
+                received.countDown();
+            }
+        }
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1)];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static double seconds(long nanos) {
+        return nanos / 1_000_000_000.0;
+    }
+
+    /**
+     * Growable array of latencies in nanoseconds, written only by the consumer's delivery thread.
+     */
+    private static final class Latencies {
+
+        private long[] values = new long[1024];
+        private int size;
+
+        synchronized void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        synchronized long[] sorted() {
+            long[] copy = Arrays.copyOf(values, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+}
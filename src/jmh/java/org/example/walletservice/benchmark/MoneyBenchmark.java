@@ -0,0 +1,75 @@
+package org.example.walletservice.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.walletservice.dto.DepositRequestBody;
+import org.example.walletservice.money.MinorUnits;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The money path of one deposit: parse the request amount, add it to the balance and format the result.
+ * {@code bigDecimal*} is the former {@code Double -> BigDecimal.valueOf} path, {@code minorUnits*} the
+ * {@code long} one. Run with the GC profiler (on by default in the benchmark profile) and compare
+ * {@code gc.alloc.rate.norm}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MoneyBenchmark {
+
+    private static final String REQUEST = "{\"amount\": 250.75}";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final char[] amountText = "250.75".toCharArray();
+    private final char[] formatBuffer = new char[MinorUnits.MAX_CHARS];
+
+    private BigDecimal decimalBalance = new BigDecimal("10250.75");
+    private long minorUnitsBalance = 10_250_75L;
+
+    @Benchmark
+    public BigDecimal bigDecimalArithmetic() {
+        double amount = Double.parseDouble(new String(amountText));
+        decimalBalance = decimalBalance.add(BigDecimal.valueOf(amount)).subtract(BigDecimal.valueOf(amount));
+        return decimalBalance;
+    }
+
+    @Benchmark
+    public long minorUnitsArithmetic() {
+        long amount = MinorUnits.parse(amountText, 0, amountText.length);
+        minorUnitsBalance = MinorUnits.subtract(MinorUnits.add(minorUnitsBalance, amount), amount);
+        return minorUnitsBalance;
+    }
+
+    @Benchmark
+    public String bigDecimalFormat() {
+        return decimalBalance.toPlainString();
+    }
+
+    @Benchmark
+    public int minorUnitsFormat() {
+        return MinorUnits.format(minorUnitsBalance, formatBuffer);
+    }
+
+    @Benchmark
+    public long minorUnitsRequestParsing() throws JsonProcessingException {
+        return objectMapper.readValue(REQUEST, DepositRequestBody.class).getAmount();
+    }
+
+    @Benchmark
+    public BigDecimal doubleRequestParsing() throws JsonProcessingException {
+        return BigDecimal.valueOf(objectMapper.readValue(REQUEST, DoubleAmount.class).amount);
+    }
+
+    /**
+     * Shape of the request body before amounts moved to minor units.
+     */
+    public static class DoubleAmount {
+        public Double amount;
+    }
+}
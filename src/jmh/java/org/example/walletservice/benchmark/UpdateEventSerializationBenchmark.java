@@ -0,0 +1,57 @@
+package org.example.walletservice.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.walletservice.dto.UpdateEvent;
+import org.example.walletservice.enums.ActionType;
+import org.example.walletservice.jms.codec.BinaryEventCodec;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the payload {@code UpdateEventPublisher} sends for every balance change: JSON through Jackson
+ * against {@link BinaryEventCodec} writing into a reused buffer. The JMS message itself is left out.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UpdateEventSerializationBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final BinaryEventCodec binaryCodec = new BinaryEventCodec();
+    private final byte[] buffer = new byte[BinaryEventCodec.MAX_BYTES];
+    private UpdateEvent event;
+    private String json;
+    private int binaryLength;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        event = new UpdateEvent(123_456_789L, 250_75L, ActionType.DEBIT, 10_250_75L);
+        json = objectMapper.writeValueAsString(event);
+        binaryLength = binaryCodec.write(event, buffer);
+    }
+
+    @Benchmark
+    public String serialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(event);
+    }
+
+    @Benchmark
+    public UpdateEvent deserialize() throws JsonProcessingException {
+        return objectMapper.readValue(json, UpdateEvent.class);
+    }
+
+    @Benchmark
+    public int serializeBinary() {
+        return binaryCodec.write(event, buffer);
+    }
+
+    @Benchmark
+    public UpdateEvent deserializeBinary() {
+        return binaryCodec.read(buffer, binaryLength, UpdateEvent.class);
+    }
+}
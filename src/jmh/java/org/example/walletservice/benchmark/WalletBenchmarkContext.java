@@ -0,0 +1,48 @@
+package org.example.walletservice.benchmark;
+
+import org.example.walletservice.WalletApplication;
+import org.example.walletservice.dto.UpdateEvent;
+import org.example.walletservice.jms.publisher.EventPublisher;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+/**
+ * Boots the wallet service for benchmarks: in-memory H2, no web server, JMS listeners not started and
+ * a stub {@link EventPublisher} in place of the Solace one, so nothing needs a broker.
+ */
+public final class WalletBenchmarkContext {
+
+    private WalletBenchmarkContext() {
+    }
+
+    public static ConfigurableApplicationContext start(String databaseName, String... extraProperties) {
+        String[] properties = {
+                "spring.datasource.url=jdbc:h2:mem:" + databaseName + ";DB_CLOSE_DELAY=-1",
+                "spring.jms.listener.auto-startup=false",
+                "spring.main.banner-mode=off",
+                // Per-operation INFO logging would dominate the measurements
+                "logging.level.org.example.walletservice=WARN",
+                "logging.level.org.hibernate.SQL=WARN"
+        };
+        return new SpringApplicationBuilder(WalletApplication.class, StubEventPublisherConfig.class)
+                .web(WebApplicationType.NONE)
+                .properties(properties)
+                .properties(extraProperties)
+                .run();
+    }
+
+    @Configuration
+    static class StubEventPublisherConfig {
+
+        @Bean
+        @Primary
+        public EventPublisher<UpdateEvent> stubEventPublisher() {
+            return (event, topic) -> {
+            };
+        }
+    }
+}
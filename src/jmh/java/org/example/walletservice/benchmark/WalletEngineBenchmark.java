@@ -0,0 +1,76 @@
+package org.example.walletservice.benchmark;
+
+import org.example.walletservice.entity.Wallet;
+import org.example.walletservice.service.WalletService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+
+/**
+ * {@link WalletService} operations with the in-memory wallet engine enabled, as a latency distribution
+ * (compare the percentiles with {@link WalletServiceBenchmark} in {@code SampleTime} mode). Run with
+ * {@code -t 4} or more to see several producers share the shard rings.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WalletEngineBenchmark {
+
+    private static final int WALLETS = 10_000;
+
+    @Param({"false", "true"})
+    public boolean fsync;
+
+    private final AtomicLong requestIds = new AtomicLong();
+    private ConfigurableApplicationContext context;
+    private WalletService walletService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Path journalDirectory = Files.createTempDirectory("wallet-engine-benchmark");
+        context = WalletBenchmarkContext.start("wallet-engine-benchmark-" + fsync,
+                "wallet.engine.enabled=true",
+                "wallet.engine.journal.directory=" + journalDirectory,
+                "wallet.engine.journal.fsync=" + fsync);
+        walletService = context.getBean(WalletService.class);
+        walletService.createWallets(LongStream.rangeClosed(1, WALLETS).boxed().toList(), 1_000_000_000_00L);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Wallet deposit() {
+        return walletService.deposit(randomCustomerId(), 1_00L, nextRequestId());
+    }
+
+    @Benchmark
+    public Wallet withdraw() {
+        return walletService.withdraw(randomCustomerId(), 1_00L, nextRequestId());
+    }
+
+    @Benchmark
+    public Wallet getWallet() {
+        return walletService.getWallet(randomCustomerId());
+    }
+
+    private static long randomCustomerId() {
+        return ThreadLocalRandom.current().nextLong(1, WALLETS + 1);
+    }
+
+    private String nextRequestId() {
+        return "bench-" + requestIds.incrementAndGet();
+    }
+}
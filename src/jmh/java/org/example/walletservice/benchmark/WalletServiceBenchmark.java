@@ -0,0 +1,65 @@
+package org.example.walletservice.benchmark;
+
+import org.example.walletservice.entity.Wallet;
+import org.example.walletservice.service.WalletService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+
+/**
+ * End-to-end {@link WalletService} operations against H2, spread over many wallets so rows are not
+ * contended (see {@link ContendedWalletBenchmark} for the single hot wallet case).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WalletServiceBenchmark {
+
+    private static final int WALLETS = 10_000;
+
+    private final AtomicLong requestIds = new AtomicLong();
+    private ConfigurableApplicationContext context;
+    private WalletService walletService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = WalletBenchmarkContext.start("wallet-service-benchmark");
+        walletService = context.getBean(WalletService.class);
+        walletService.createWallets(LongStream.rangeClosed(1, WALLETS).boxed().toList(), 1_000_000_000_00L);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Wallet deposit() {
+        return walletService.deposit(randomCustomerId(), 1_00L, nextRequestId());
+    }
+
+    @Benchmark
+    public Wallet withdraw() {
+        return walletService.withdraw(randomCustomerId(), 1_00L, nextRequestId());
+    }
+
+    @Benchmark
+    public Wallet getWallet() {
+        return walletService.getWallet(randomCustomerId());
+    }
+
+    private static long randomCustomerId() {
+        return ThreadLocalRandom.current().nextLong(1, WALLETS + 1);
+    }
+
+    private String nextRequestId() {
+        return "bench-" + requestIds.incrementAndGet();
+    }
+}
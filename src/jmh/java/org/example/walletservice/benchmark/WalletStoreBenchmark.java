@@ -0,0 +1,87 @@
+package org.example.walletservice.benchmark;
+
+import org.example.walletservice.dto.BalanceUpdate;
+import org.example.walletservice.entity.Wallet;
+import org.example.walletservice.service.WalletService;
+import org.example.walletservice.store.WalletStore;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+
+/**
+ * The JPA and JDBC {@link WalletStore} side by side on H2: the store calls alone, each in its own
+ * transaction as the service makes them, and a full {@link WalletService} deposit on top of each store.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WalletStoreBenchmark {
+
+    private static final int WALLETS = 10_000;
+    private static final int INSERT_BATCH = 100;
+
+    @Param({"jpa", "jdbc"})
+    public String store;
+
+    private final AtomicLong requestIds = new AtomicLong();
+    // New wallets are numbered above the preloaded ones
+    private final AtomicLong nextCustomerId = new AtomicLong(WALLETS + 1);
+    private ConfigurableApplicationContext context;
+    private WalletStore walletStore;
+    private WalletService walletService;
+    private TransactionTemplate transactionTemplate;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = WalletBenchmarkContext.start("wallet-store-benchmark-" + store, "wallet.store=" + store);
+        walletStore = context.getBean(WalletStore.class);
+        walletService = context.getBean(WalletService.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        walletService.createWallets(LongStream.rangeClosed(1, WALLETS).boxed().toList(), 1_000_000_000_00L);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public BalanceUpdate credit() {
+        return transactionTemplate.execute(status -> walletStore.credit(randomCustomerId(), 1_00L));
+    }
+
+    @Benchmark
+    public Optional<Wallet> find() {
+        return walletStore.findByCustomerId(randomCustomerId());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INSERT_BATCH)
+    public void insertAll() {
+        long first = nextCustomerId.getAndAdd(INSERT_BATCH);
+        List<Wallet> wallets = LongStream.range(first, first + INSERT_BATCH)
+                .mapToObj(customerId -> Wallet.builder().customerId(customerId).balance(0L).build())
+                .toList();
+        transactionTemplate.executeWithoutResult(status -> walletStore.insertAll(wallets));
+    }
+
+    @Benchmark
+    public Wallet deposit() {
+        return walletService.deposit(randomCustomerId(), 1_00L, "bench-" + requestIds.incrementAndGet());
+    }
+
+    private static long randomCustomerId() {
+        return ThreadLocalRandom.current().nextLong(1, WALLETS + 1);
+    }
+}
@@ -0,0 +1,18 @@
+package org.example.walletservice;
+
+
+import org.example.walletservice.entity.BalanceSnapshot;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface BalanceSnapshotRepository extends JpaRepository<BalanceSnapshot, Long> {
+
+    @Query("select s from BalanceSnapshot s where s.customerId = :customerId and s.sequence <= :upToSequence order by s.sequence desc")
+    List<BalanceSnapshot> findLatest(@Param("customerId") long customerId,
+                                     @Param("upToSequence") long upToSequence,
+                                     Pageable pageable);
+}
@@ -0,0 +1,32 @@
+package org.example.walletservice;
+
+
+import org.example.walletservice.entity.LedgerEntry;
+import org.example.walletservice.enums.OperationType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, Long> {
+
+    // Keyset pagination: seeks on the (customerId, sequence) index instead of skipping rows with OFFSET
+    @Query("select e from LedgerEntry e where e.customerId = :customerId and e.sequence < :beforeSequence order by e.sequence desc")
+    List<LedgerEntry> findPageBefore(@Param("customerId") long customerId,
+                                     @Param("beforeSequence") long beforeSequence,
+                                     Pageable pageable);
+
+    /**
+     * Net effect, in minor units, of the entries with {@code afterSequence < sequence <= upToSequence}.
+     */
+    @Query("""
+            select coalesce(sum(case when e.type = :deposit then e.amount else -e.amount end), 0L)
+            from LedgerEntry e
+            where e.customerId = :customerId and e.sequence > :afterSequence and e.sequence <= :upToSequence""")
+    long sumChangesBetween(@Param("customerId") long customerId,
+                           @Param("afterSequence") long afterSequence,
+                           @Param("upToSequence") long upToSequence,
+                           @Param("deposit") OperationType deposit);
+}
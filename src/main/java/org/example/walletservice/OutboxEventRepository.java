@@ -0,0 +1,86 @@
+package org.example.walletservice;
+
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.example.walletservice.entity.OutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // Lock timeout -2 is SKIP LOCKED, so a relay still running on an instance that lost its partitions
+    // does not wait on the new owner. Rows claimed by a relay until after :now are left out as well, as
+    // the locks only last until the claim commits. Rows without a partition go to the relay taking
+    // unassigned ones.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("select o from OutboxEvent o where o.sentAt is null"
+            + " and (o.claimedUntil is null or o.claimedUntil < :now)"
+            + " and (o.partition in :partitions or (:includeUnassigned = true and o.partition is null)) order by o.id")
+    List<OutboxEvent> lockUnsent(@Param("partitions") Collection<Integer> partitions,
+                                 @Param("includeUnassigned") boolean includeUnassigned,
+                                 @Param("now") Instant now,
+                                 Pageable pageable);
+
+    // As lockUnsent, leaving out the destinations that are conflated
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("select o from OutboxEvent o where o.sentAt is null and o.destination not in :excluded"
+            + " and (o.claimedUntil is null or o.claimedUntil < :now)"
+            + " and (o.partition in :partitions or (:includeUnassigned = true and o.partition is null)) order by o.id")
+    List<OutboxEvent> lockUnsentExcept(@Param("excluded") Collection<String> excludedDestinations,
+                                       @Param("partitions") Collection<Integer> partitions,
+                                       @Param("includeUnassigned") boolean includeUnassigned,
+                                       @Param("now") Instant now,
+                                       Pageable pageable);
+
+    // Customers with an unsent row for one of the destinations created at or before the cutoff, longest waiting first
+    @Query("select o.customerId from OutboxEvent o where o.sentAt is null and o.destination in :destinations"
+            + " and (o.claimedUntil is null or o.claimedUntil < :now)"
+            + " and (o.partition in :partitions or (:includeUnassigned = true and o.partition is null))"
+            + " group by o.customerId having min(o.createdAt) <= :cutoff order by min(o.id)")
+    List<Long> findCustomersUnsentSince(@Param("destinations") Collection<String> destinations,
+                                        @Param("cutoff") Instant cutoff,
+                                        @Param("partitions") Collection<Integer> partitions,
+                                        @Param("includeUnassigned") boolean includeUnassigned,
+                                        @Param("now") Instant now,
+                                        Pageable pageable);
+
+    // Every unsent row of the customers for the destinations, grouped by customer
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("select o from OutboxEvent o where o.sentAt is null and o.destination in :destinations"
+            + " and (o.claimedUntil is null or o.claimedUntil < :now)"
+            + " and o.customerId in :customerIds order by o.customerId, o.id")
+    List<OutboxEvent> lockUnsentOf(@Param("destinations") Collection<String> destinations,
+                                   @Param("customerIds") Collection<Long> customerIds,
+                                   @Param("now") Instant now,
+                                   Pageable pageable);
+
+    @Modifying
+    @Query("update OutboxEvent o set o.claimedUntil = :claimedUntil where o.id in :ids")
+    int claim(@Param("ids") Collection<Long> ids, @Param("claimedUntil") Instant claimedUntil);
+
+    // Gives rows that were not sent back to the next run
+    @Modifying
+    @Query("update OutboxEvent o set o.claimedUntil = null where o.id in :ids")
+    int releaseClaim(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("update OutboxEvent o set o.sentAt = :sentAt where o.id in :ids")
+    int markSent(@Param("ids") Collection<Long> ids, @Param("sentAt") Instant sentAt);
+
+    @Modifying
+    @Query("delete from OutboxEvent o where o.sentAt < :cutoff")
+    int deleteSentBefore(@Param("cutoff") Instant cutoff);
+}
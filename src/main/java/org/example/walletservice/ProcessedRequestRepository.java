@@ -0,0 +1,21 @@
+package org.example.walletservice;
+
+
+import org.example.walletservice.entity.ProcessedRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface ProcessedRequestRepository extends JpaRepository<ProcessedRequest, String> {
+
+    List<ProcessedRequest> findByRequestIdGreaterThanOrderByRequestId(String requestId, Pageable pageable);
+
+    @Modifying
+    @Query("delete from ProcessedRequest p where p.processedAt < :cutoff")
+    int deleteProcessedBefore(@Param("cutoff") Instant cutoff);
+}
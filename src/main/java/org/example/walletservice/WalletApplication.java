@@ -3,10 +3,12 @@ package org.example.walletservice;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.retry.annotation.EnableRetry;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 
 @SpringBootApplication
 @EnableRetry
+@EnableScheduling
 public class WalletApplication {
     public static void main(String[] args) {
         SpringApplication.run(WalletApplication.class);
@@ -0,0 +1,31 @@
+package org.example.walletservice;
+
+
+import org.example.walletservice.entity.WalletHold;
+import org.example.walletservice.enums.HoldStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface WalletHoldRepository extends JpaRepository<WalletHold, String> {
+
+    // Keyset page of the holds in one status, for reloading open holds on startup
+    List<WalletHold> findByStatusAndHoldIdGreaterThanOrderByHoldId(HoldStatus status, String holdId, Pageable pageable);
+
+    // Keyset page of the holds in one status that expired before the given time, for the recovery sweep
+    List<WalletHold> findByStatusAndExpiresAtBeforeAndHoldIdGreaterThanOrderByHoldId(HoldStatus status, Instant expiresAt,
+                                                                                   String holdId, Pageable pageable);
+
+    /**
+     * Moves a hold from {@code from} to {@code to}; returns 0 when it is no longer in {@code from}, so of
+     * concurrent captures, voids and expiries exactly one wins.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update WalletHold h set h.status = :to where h.holdId = :holdId and h.status = :from")
+    int transition(@Param("holdId") String holdId, @Param("from") HoldStatus from, @Param("to") HoldStatus to);
+}
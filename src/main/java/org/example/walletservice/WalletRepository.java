@@ -2,12 +2,96 @@ package org.example.walletservice;
 
 
 
+import org.example.walletservice.dto.BalanceUpdate;
 import org.example.walletservice.entity.Wallet;
+import org.example.walletservice.money.MinorUnits;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
-public interface WalletRepository extends JpaRepository<Wallet, Long> {
+public interface WalletRepository extends JpaRepository<Wallet, Long>, WalletRepositoryCustom {
 
     Optional<Wallet> findByCustomerId (long customerId);
+
+    List<Wallet> findByCustomerIdGreaterThanOrderByCustomerId(long customerId, Pageable pageable);
+
+    List<Wallet> findByCustomerIdIn(Collection<Long> customerIds);
+
+    // Keyset page of a customer id range, for jobs that walk it in order
+    @Query("select w from Wallet w where w.customerId >= :fromCustomerId and w.customerId <= :toCustomerId order by w.customerId")
+    List<Wallet> findPageInRange(@Param("fromCustomerId") long fromCustomerId,
+                                 @Param("toCustomerId") long toCustomerId,
+                                 Pageable pageable);
+
+    // Ids only, for building in-memory indexes without loading every wallet
+    @Query("select w.customerId from Wallet w where w.customerId >= :fromCustomerId order by w.customerId")
+    List<Long> findCustomerIdsFrom(@Param("fromCustomerId") long fromCustomerId, Pageable pageable);
+
+    @Query("select min(w.customerId) from Wallet w where w.customerId >= :fromCustomerId and w.customerId <= :toCustomerId")
+    Long findMinCustomerIdInRange(@Param("fromCustomerId") long fromCustomerId, @Param("toCustomerId") long toCustomerId);
+
+    @Query("select max(w.customerId) from Wallet w where w.customerId >= :fromCustomerId and w.customerId <= :toCustomerId")
+    Long findMaxCustomerIdInRange(@Param("fromCustomerId") long fromCustomerId, @Param("toCustomerId") long toCustomerId);
+
+    @Query("select w.balance from Wallet w where w.customerId = :customerId")
+    Optional<Long> findBalanceByCustomerId(@Param("customerId") long customerId);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Wallet w set w.balance = w.balance + :amount, w.sequence = w.sequence + 1 where w.customerId = :customerId and w.balance <= :ceiling")
+    int addToBalance(@Param("customerId") long customerId, @Param("amount") long amount, @Param("ceiling") long ceiling);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Wallet w set w.balance = w.balance - :amount, w.sequence = w.sequence + 1 where w.customerId = :customerId and w.balance - w.reserved >= :amount")
+    int subtractFromBalance(@Param("customerId") long customerId, @Param("amount") long amount);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Wallet w set w.reserved = w.reserved + :amount where w.customerId = :customerId and w.balance - w.reserved >= :amount")
+    int reserve(@Param("customerId") long customerId, @Param("amount") long amount);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Wallet w set w.reserved = w.reserved - :amount where w.customerId = :customerId and w.reserved >= :amount")
+    int release(@Param("customerId") long customerId, @Param("amount") long amount);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Wallet w set w.balance = w.balance - :amount, w.reserved = w.reserved - :amount, w.sequence = w.sequence + 1 where w.customerId = :customerId and w.reserved >= :amount")
+    int subtractReserved(@Param("customerId") long customerId, @Param("amount") long amount);
+
+    /**
+     * Adds {@code amount} minor units in a single UPDATE. Must run inside a transaction so the balance read
+     * back is the one this update produced (the row stays locked until commit). No row is updated when the
+     * customer is unknown or the new balance would overflow a {@code long}.
+     */
+    default BalanceUpdate credit(long customerId, long amount) {
+        return readBack(customerId, addToBalance(customerId, amount, MinorUnits.subtract(Long.MAX_VALUE, amount)));
+    }
+
+    /**
+     * Subtracts {@code amount} minor units only if at least that much is available, i.e. not reserved by holds.
+     * No row is updated when the customer is unknown or the funds are insufficient.
+     */
+    default BalanceUpdate debit(long customerId, long amount) {
+        return readBack(customerId, subtractFromBalance(customerId, amount));
+    }
+
+    /**
+     * Takes {@code amount} minor units out of both the balance and the reserved part, settling a hold. No row is
+     * updated when the customer is unknown or less than that is reserved.
+     */
+    default BalanceUpdate captureReserved(long customerId, long amount) {
+        return readBack(customerId, subtractReserved(customerId, amount));
+    }
+
+    private BalanceUpdate readBack(long customerId, int updatedRows) {
+        if (updatedRows == 0) {
+            return BalanceUpdate.NONE;
+        }
+        Wallet wallet = findByCustomerId(customerId).orElseThrow();
+        return new BalanceUpdate(updatedRows, wallet.getBalance(), wallet.getSequence(), wallet.getReserved());
+    }
 }
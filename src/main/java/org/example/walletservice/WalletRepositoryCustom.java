@@ -0,0 +1,24 @@
+package org.example.walletservice;
+
+
+import org.example.walletservice.entity.Wallet;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+public interface WalletRepositoryCustom {
+
+    /**
+     * Persists wallets that are known not to exist yet, letting Hibernate group the inserts into
+     * JDBC batches. Unlike {@code saveAll} it never issues the per-entity select used to decide
+     * between persist and merge.
+     */
+    void insertAll(Collection<Wallet> wallets);
+
+    /**
+     * Visits the wallets with {@code fromCustomerId <= customerId <= toCustomerId} in customer id order
+     * through a read-only cursor, detaching them as it goes so the heap stays flat however many rows
+     * there are. Returns the number of wallets visited.
+     */
+    long forEachWallet(long fromCustomerId, long toCustomerId, Consumer<Wallet> visitor);
+}
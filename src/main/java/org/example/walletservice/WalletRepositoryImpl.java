@@ -0,0 +1,65 @@
+package org.example.walletservice;
+
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.example.walletservice.entity.Wallet;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+public class WalletRepositoryImpl implements WalletRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize;
+
+    @Value("${wallet.export.fetch-size:1000}")
+    private int fetchSize;
+
+    @Override
+    @Transactional
+    public void insertAll(Collection<Wallet> wallets) {
+        int pending = 0;
+        for (Wallet wallet : wallets) {
+            entityManager.persist(wallet);
+            if (++pending % batchSize == 0) {
+                // Send the batch and release the managed copies so large bursts keep a flat heap
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long forEachWallet(long fromCustomerId, long toCustomerId, Consumer<Wallet> visitor) {
+        long visited = 0;
+        try (Stream<Wallet> wallets = entityManager.createQuery(
+                        "select w from Wallet w where w.customerId between :from and :to order by w.customerId", Wallet.class)
+                .setParameter("from", fromCustomerId)
+                .setParameter("to", toCustomerId)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream()) {
+            Iterator<Wallet> iterator = wallets.iterator();
+            while (iterator.hasNext()) {
+                visitor.accept(iterator.next());
+                if (++visited % fetchSize == 0) {
+                    // The cursor stays open; only the managed copies of rows already visited are dropped
+                    entityManager.clear();
+                }
+            }
+        }
+        return visited;
+    }
+}
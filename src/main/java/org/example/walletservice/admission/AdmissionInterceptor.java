@@ -0,0 +1,143 @@
+package org.example.walletservice.admission;
+
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.example.walletservice.metrics.WalletMetrics;
+import org.example.walletservice.metrics.WalletMetrics.ShedReason;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sheds wallet requests with {@code 429 Too Many Requests} and a {@code Retry-After} before they reach
+ * the service, when {@code wallet.admission.enabled} is set. Three limits apply, each off when zero:
+ * <ul>
+ *     <li>a token bucket per customer ({@code userId} header), {@code customer.rate} per second with bursts of
+ *     {@code customer.burst}</li>
+ *     <li>a token bucket per client ({@code client-header}, or the remote address without it), likewise</li>
+ *     <li>at most {@code max-concurrent} requests in progress on this instance</li>
+ * </ul>
+ * Each customer and client has a bucket of its own, for up to {@code max-keys} of each at a time; see
+ * {@link RateLimiter} for what happens beyond. All three limits are lock-free. A shed request takes
+ * nothing from the other limits: the concurrency permit is taken first and released if a bucket refuses,
+ * and a customer token is refunded if the client bucket refuses.
+ */
+@Component
+@Slf4j
+public class AdmissionInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String USER_ID_HEADER = "userId";
+    private static final String PERMIT_ATTRIBUTE = AdmissionInterceptor.class.getName() + ".permit";
+    private static final long CONCURRENCY_RETRY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final boolean enabled;
+    private final RateLimiter customerLimiter;
+    private final RateLimiter clientLimiter;
+    private final String clientHeader;
+    private final int maxConcurrent;
+    private final WalletMetrics walletMetrics;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    @Autowired
+    public AdmissionInterceptor(@Value("${wallet.admission.enabled:false}") boolean enabled,
+                                @Value("${wallet.admission.customer.rate:0}") double customerRate,
+                                @Value("${wallet.admission.customer.burst:1}") int customerBurst,
+                                @Value("${wallet.admission.client.rate:0}") double clientRate,
+                                @Value("${wallet.admission.client.burst:1}") int clientBurst,
+                                @Value("${wallet.admission.client-header:X-Client-Id}") String clientHeader,
+                                @Value("${wallet.admission.max-concurrent:0}") int maxConcurrent,
+                                @Value("${wallet.admission.max-keys:100000}") int maxKeys,
+                                @Value("${wallet.admission.stripes:4096}") int stripes,
+                                WalletMetrics walletMetrics) {
+        this.enabled = enabled;
+        this.customerLimiter = customerRate > 0 ? new RateLimiter(customerRate, customerBurst, maxKeys, stripes) : null;
+        this.clientLimiter = clientRate > 0 ? new RateLimiter(clientRate, clientBurst, maxKeys, stripes) : null;
+        this.clientHeader = clientHeader;
+        this.maxConcurrent = maxConcurrent;
+        this.walletMetrics = walletMetrics;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // An async dispatch is the second half of a request that was already admitted
+        if (!enabled || request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true;
+        }
+        // The permit first: unlike a token it can be given back
+        if (maxConcurrent > 0 && inFlight.incrementAndGet() > maxConcurrent) {
+            inFlight.decrementAndGet();
+            return reject(response, CONCURRENCY_RETRY_NANOS, ShedReason.CONCURRENCY);
+        }
+        long now = System.nanoTime();
+        String customer = null;
+        if (customerLimiter != null) {
+            String userId = request.getHeader(USER_ID_HEADER);
+            if (userId != null) {
+                long wait = customerLimiter.tryAcquire(userId.trim(), now);
+                if (wait > 0) {
+                    return rejectHoldingPermit(response, wait, ShedReason.CUSTOMER_RATE);
+                }
+                customer = userId.trim();
+            }
+        }
+        if (clientLimiter != null) {
+            String client = request.getHeader(clientHeader);
+            long wait = clientLimiter.tryAcquire(client != null ? client : request.getRemoteAddr(), now);
+            if (wait > 0) {
+                if (customer != null) {
+                    customerLimiter.refund(customer);
+                }
+                return rejectHoldingPermit(response, wait, ShedReason.CLIENT_RATE);
+            }
+        }
+        if (maxConcurrent > 0) {
+            request.setAttribute(PERMIT_ATTRIBUTE, Boolean.TRUE);
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        release(request);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        release(request);
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    private void release(HttpServletRequest request) {
+        if (request.getAttribute(PERMIT_ATTRIBUTE) != null) {
+            request.removeAttribute(PERMIT_ATTRIBUTE);
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private boolean rejectHoldingPermit(HttpServletResponse response, long waitNanos, ShedReason reason) {
+        if (maxConcurrent > 0) {
+            inFlight.decrementAndGet();
+        }
+        return reject(response, waitNanos, reason);
+    }
+
+    private boolean reject(HttpServletResponse response, long waitNanos, ShedReason reason) {
+        walletMetrics.shed(reason);
+        long retryAfterSeconds = Math.max(1, (waitNanos + 999_999_999L) / 1_000_000_000L);
+        log.debug("Shedding request ({}), retry after {} s", reason, retryAfterSeconds);
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        return false;
+    }
+}
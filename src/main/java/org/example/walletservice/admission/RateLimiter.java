@@ -0,0 +1,121 @@
+package org.example.walletservice.admission;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free token bucket per key, as a generic cell rate algorithm: each bucket is a single
+ * {@code long}, the time at which it would be full again if no more permits were taken, updated with
+ * one compare-and-set.
+ * <p>
+ * Every key gets its own bucket in a map of at most {@code maxKeys} entries, dropped after the key has
+ * been idle long enough for its bucket to be full again, so forgetting it changes nothing. Only while
+ * the map is full are new keys hashed onto a fixed number of shared stripes instead. Keys sharing a
+ * stripe share its budget, so one of them can use up another's; that is the price of bounding memory
+ * when more keys are active than the map holds. Stripes sit on separate cache lines so that unrelated
+ * keys do not contend.
+ */
+public final class RateLimiter {
+
+    // Longs per stripe: one 64-byte cache line
+    private static final int PADDING = 8;
+    // Idle buckets are kept at least this long, so a busy key is not dropped and recreated over and over
+    private static final long MIN_IDLE_NANOS = Duration.ofMinutes(1).toNanos();
+
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final int maxKeys;
+    private final Cache<String, AtomicLong> buckets;
+    private final int mask;
+    private final AtomicLongArray theoreticalArrivals;
+    // Times are taken relative to this, so they start at zero and never wrap
+    private final long origin = System.nanoTime();
+
+    /**
+     * @param permitsPerSecond sustained rate per key
+     * @param burst            permits a key may take at once after being idle, at least one
+     * @param maxKeys          keys with a bucket of their own
+     * @param stripes          number of shared buckets once {@code maxKeys} are in use, rounded up to a power of two
+     */
+    public RateLimiter(double permitsPerSecond, int burst, int maxKeys, int stripes) {
+        if (permitsPerSecond <= 0 || burst < 1 || maxKeys < 1 || stripes < 1) {
+            throw new IllegalArgumentException("Rate, burst, key and stripe counts must be positive");
+        }
+        this.emissionIntervalNanos = Math.max(1, (long) (1_000_000_000L / permitsPerSecond));
+        this.burstToleranceNanos = emissionIntervalNanos * (burst - 1);
+        this.maxKeys = maxKeys;
+        // A bucket idle for its tolerance plus one interval is full, the same as a new one
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterAccess(Duration.ofNanos(Math.max(MIN_IDLE_NANOS, burstToleranceNanos + emissionIntervalNanos)))
+                .build();
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.mask = stripes == 1 ? 0 : size - 1;
+        this.theoreticalArrivals = new AtomicLongArray((mask + 1) * PADDING);
+    }
+
+    /**
+     * Takes a permit for {@code key}. Returns zero when granted, otherwise the nanoseconds until one
+     * will be available; a refused call takes nothing.
+     */
+    public long tryAcquire(String key) {
+        return tryAcquire(key, System.nanoTime());
+    }
+
+    public long tryAcquire(String key, long nanoTime) {
+        long now = nanoTime - origin;
+        AtomicLong bucket = buckets.getIfPresent(key);
+        if (bucket == null && buckets.estimatedSize() < maxKeys) {
+            bucket = buckets.get(key, ignored -> new AtomicLong());
+        }
+        if (bucket == null) {
+            return tryAcquireStripe(stripe(key) * PADDING, now);
+        }
+        while (true) {
+            long arrival = bucket.get();
+            long start = Math.max(arrival, now);
+            long wait = start - now - burstToleranceNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (bucket.compareAndSet(arrival, start + emissionIntervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Gives back a permit just taken for {@code key}, for a caller that went on to refuse the request
+     * anyway, so that it does not count against the key's rate.
+     */
+    public void refund(String key) {
+        AtomicLong bucket = buckets.getIfPresent(key);
+        if (bucket != null) {
+            bucket.addAndGet(-emissionIntervalNanos);
+        } else {
+            theoreticalArrivals.addAndGet(stripe(key) * PADDING, -emissionIntervalNanos);
+        }
+    }
+
+    private long tryAcquireStripe(int index, long now) {
+        while (true) {
+            long arrival = theoreticalArrivals.get(index);
+            long start = Math.max(arrival, now);
+            long wait = start - now - burstToleranceNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (theoreticalArrivals.compareAndSet(index, arrival, start + emissionIntervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    private int stripe(String key) {
+        return (int) ((key.hashCode() * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+}
@@ -0,0 +1,53 @@
+package org.example.walletservice.config;
+
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.Session;
+import org.example.walletservice.jms.listener.CustomerLanes;
+import org.example.walletservice.jms.listener.LaneAcknowledgingListenerContainer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jms.DefaultJmsListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jms.config.DefaultJmsListenerContainerFactory;
+import org.springframework.jms.listener.DefaultMessageListenerContainer;
+
+@Configuration
+public class JmsConfig {
+
+    /**
+     * Listener factory for topic subscriptions, used by every replica to receive the cache invalidations
+     * of the others. The default factory stays point-to-point for the work queues.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "wallet.cache.invalidation.enabled", havingValue = "true")
+    public DefaultJmsListenerContainerFactory topicListenerContainerFactory(DefaultJmsListenerContainerFactoryConfigurer configurer,
+                                                                           ConnectionFactory connectionFactory) {
+        DefaultJmsListenerContainerFactory factory = new DefaultJmsListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setPubSubDomain(true);
+        return factory;
+    }
+
+    /**
+     * Listener factory for {@code customer-update-queue} in single-message mode, acknowledging messages
+     * only once the {@link CustomerLanes} have processed them.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "wallet.listener.batch.enabled", havingValue = "false", matchIfMissing = true)
+    public DefaultJmsListenerContainerFactory laneListenerContainerFactory(DefaultJmsListenerContainerFactoryConfigurer configurer,
+                                                                          ConnectionFactory connectionFactory,
+                                                                          CustomerLanes customerLanes,
+                                                                          @Value("${wallet.listener.lanes.individual-acknowledge-mode:0}") int individualAcknowledgeMode) {
+        DefaultJmsListenerContainerFactory factory = new DefaultJmsListenerContainerFactory() {
+            @Override
+            protected DefaultMessageListenerContainer createContainerInstance() {
+                return new LaneAcknowledgingListenerContainer(customerLanes, individualAcknowledgeMode);
+            }
+        };
+        configurer.configure(factory, connectionFactory);
+        factory.setSessionTransacted(false);
+        factory.setSessionAcknowledgeMode(individualAcknowledgeMode > 0 ? individualAcknowledgeMode : Session.CLIENT_ACKNOWLEDGE);
+        return factory;
+    }
+}
@@ -0,0 +1,29 @@
+package org.example.walletservice.config;
+
+import org.example.walletservice.admission.AdmissionInterceptor;
+import org.example.walletservice.partition.PartitionRoutingInterceptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private final AdmissionInterceptor admissionInterceptor;
+
+    private final PartitionRoutingInterceptor partitionRoutingInterceptor;
+
+    @Autowired
+    public WebConfig(AdmissionInterceptor admissionInterceptor, PartitionRoutingInterceptor partitionRoutingInterceptor) {
+        this.admissionInterceptor = admissionInterceptor;
+        this.partitionRoutingInterceptor = partitionRoutingInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // Admission first, so shed requests cost nothing else, redirects included
+        registry.addInterceptor(admissionInterceptor).addPathPatterns("/wallet/**");
+        registry.addInterceptor(partitionRoutingInterceptor).addPathPatterns("/wallet/**");
+    }
+}
@@ -1,17 +1,42 @@
 package org.example.walletservice.controller;
 
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
+import org.example.walletservice.dto.AuthorizeRequestBody;
+import org.example.walletservice.dto.BalancesRequestBody;
+import org.example.walletservice.dto.BatchOperationResult;
+import org.example.walletservice.dto.BatchRequestBody;
 import org.example.walletservice.dto.DepositRequestBody;
+import org.example.walletservice.dto.LedgerPage;
+import org.example.walletservice.dto.ReconciliationReport;
 import org.example.walletservice.dto.WithdrawRequestBody;
 import org.example.walletservice.entity.Wallet;
+import org.example.walletservice.entity.WalletHold;
+import org.example.walletservice.enums.ExportFormat;
+import org.example.walletservice.exception.ReconciliationInProgressException;
+import org.example.walletservice.money.MinorUnits;
+import org.example.walletservice.service.HoldService;
+import org.example.walletservice.service.LedgerReconciler;
+import org.example.walletservice.service.WalletBalanceService;
+import org.example.walletservice.service.WalletBalanceService.BalanceVisitor;
+import org.example.walletservice.service.WalletBatchService;
+import org.example.walletservice.service.WalletExportService;
 import org.example.walletservice.service.WalletService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.math.BigDecimal;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 
 @Slf4j
 @RestController
@@ -21,16 +46,62 @@ public class WalletController {
     @Autowired
     private WalletService walletService;
 
+    @Autowired
+    private WalletBatchService walletBatchService;
+
+    @Autowired
+    private HoldService holdService;
+
+    @Autowired
+    private WalletBalanceService walletBalanceService;
+
+    @Autowired
+    private WalletExportService walletExportService;
+
+    @Autowired
+    private LedgerReconciler ledgerReconciler;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @PostMapping("/deposit")
     public ResponseEntity<Wallet> deposit(@RequestHeader Long userId,@RequestHeader String requestId, @RequestBody @Valid DepositRequestBody depositRequestBody) {
-        log.info("Received request for deposit of {} for user : {} ",depositRequestBody.getAmount(),userId);
-        return ResponseEntity.ok().body(walletService.deposit(userId, BigDecimal.valueOf(depositRequestBody.getAmount()),requestId));
+        log.info("Received request for deposit of {} for user : {} ",MinorUnits.toString(depositRequestBody.getAmount()),userId);
+        return ResponseEntity.ok().body(walletService.deposit(userId, depositRequestBody.getAmount(),requestId));
     }
 
     @PostMapping("/withdraw")
     public ResponseEntity<Wallet> withdraw(@RequestHeader Long userId,@RequestHeader String requestId,  @RequestBody @Valid WithdrawRequestBody withdrawRequestBody) {
-        log.info("Received request for withdrawal of {} for user : {} ",withdrawRequestBody.getAmount(),userId);
-        return ResponseEntity.ok().body(walletService.withdraw(userId, BigDecimal.valueOf(withdrawRequestBody.getAmount()),requestId));
+        log.info("Received request for withdrawal of {} for user : {} ",MinorUnits.toString(withdrawRequestBody.getAmount()),userId);
+        return ResponseEntity.ok().body(walletService.withdraw(userId, withdrawRequestBody.getAmount(),requestId));
+    }
+
+    /**
+     * Reserves an amount until it is captured or voided; the request id becomes the hold id.
+     */
+    @PostMapping("/holds")
+    public ResponseEntity<WalletHold> authorize(@RequestHeader Long userId, @RequestHeader String requestId, @RequestBody @Valid AuthorizeRequestBody authorizeRequestBody) {
+        log.info("Received request for authorization of {} for user : {} ",MinorUnits.toString(authorizeRequestBody.getAmount()),userId);
+        Duration ttl = authorizeRequestBody.getTtlSeconds() == null ? null : Duration.ofSeconds(authorizeRequestBody.getTtlSeconds());
+        return ResponseEntity.ok().body(holdService.authorize(userId, requestId, authorizeRequestBody.getAmount(), ttl));
+    }
+
+    @PostMapping("/holds/{holdId}/capture")
+    public ResponseEntity<Wallet> capture(@RequestHeader Long userId, @PathVariable String holdId) {
+        log.info("Received request for capture of hold {} for user : {} ",holdId,userId);
+        return ResponseEntity.ok().body(holdService.capture(userId, holdId));
+    }
+
+    @PostMapping("/holds/{holdId}/void")
+    public ResponseEntity<WalletHold> voidHold(@RequestHeader Long userId, @PathVariable String holdId) {
+        log.info("Received request for void of hold {} for user : {} ",holdId,userId);
+        return ResponseEntity.ok().body(holdService.voidHold(userId, holdId));
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<List<BatchOperationResult>> batch(@RequestBody @Valid BatchRequestBody batchRequestBody) {
+        log.info("Received batch of {} operations",batchRequestBody.getOperations().size());
+        return ResponseEntity.ok().body(walletBatchService.apply(batchRequestBody.getOperations()));
     }
 
     @GetMapping("/balance")
@@ -38,4 +109,96 @@ public class WalletController {
         log.info("Received request for getting wallet balance for user : {}  ",userId);
         return ResponseEntity.ok().body(walletService.getWallet(Long.valueOf(userId)));
     }
+
+    /**
+     * Balances of many customers, streamed as
+     * {@code {"wallets": [...], "unknown": [ids], "wrongPartition": [ids]}} while the chunks are read.
+     */
+    @PostMapping("/balances")
+    public ResponseEntity<StreamingResponseBody> getWallets(@RequestBody @Valid BalancesRequestBody balancesRequestBody) {
+        List<Long> customerIds = balancesRequestBody.getCustomerIds();
+        log.info("Received request for balances of {} customers", customerIds.size());
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.createGenerator(out)) {
+                List<Long> unknown = new ArrayList<>();
+                List<Long> wrongPartition = new ArrayList<>();
+                generator.writeStartObject();
+                generator.writeArrayFieldStart("wallets");
+                walletBalanceService.lookup(customerIds, new BalanceVisitor() {
+                    @Override
+                    public void found(Wallet wallet) {
+                        try {
+                            generator.writeObject(wallet);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+
+                    @Override
+                    public void unknown(long customerId) {
+                        unknown.add(customerId);
+                    }
+
+                    @Override
+                    public void wrongPartition(long customerId) {
+                        wrongPartition.add(customerId);
+                    }
+                });
+                generator.writeEndArray();
+                generator.writeObjectField("unknown", unknown);
+                generator.writeObjectField("wrongPartition", wrongPartition);
+                generator.writeEndObject();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    /**
+     * Every wallet, or those in the inclusive customer id range, as {@code format=NDJSON} or {@code CSV}.
+     * Written synchronously on the request thread so that a long export is not cut short by the async
+     * request timeout.
+     */
+    @GetMapping("/export")
+    public void export(@RequestParam(defaultValue = "NDJSON") ExportFormat format,
+                       @RequestParam(required = false) Long fromCustomerId,
+                       @RequestParam(required = false) Long toCustomerId,
+                       HttpServletResponse response) throws IOException {
+        log.info("Received request for {} export of customers {} to {}", format, fromCustomerId, toCustomerId);
+        response.setContentType(format.getContentType());
+        response.setCharacterEncoding("UTF-8");
+        walletExportService.export(format, fromCustomerId == null ? Long.MIN_VALUE : fromCustomerId,
+                toCustomerId == null ? Long.MAX_VALUE : toCustomerId, response.getOutputStream());
+    }
+
+    /**
+     * Starts reconciling every wallet, or those in the inclusive customer id range, in the background and
+     * answers 202 at once; the report is then at {@code GET /wallet/reconciliation}. One run at a time:
+     * while one is in flight this answers 409.
+     */
+    @PostMapping("/reconciliation")
+    public ResponseEntity<Void> reconcile(@RequestParam(required = false) Long fromCustomerId,
+                                          @RequestParam(required = false) Long toCustomerId) {
+        log.info("Received request for reconciliation of customers {} to {}", fromCustomerId, toCustomerId);
+        if (!ledgerReconciler.start(fromCustomerId == null ? Long.MIN_VALUE : fromCustomerId,
+                toCustomerId == null ? Long.MAX_VALUE : toCustomerId)) {
+            throw new ReconciliationInProgressException();
+        }
+        return ResponseEntity.accepted().build();
+    }
+
+    /**
+     * Report of the latest completed reconciliation, 404 if none has completed since startup.
+     */
+    @GetMapping("/reconciliation")
+    public ResponseEntity<ReconciliationReport> getReconciliation() {
+        return ResponseEntity.of(ledgerReconciler.lastReport());
+    }
+
+    @GetMapping("/transactions")
+    public ResponseEntity<LedgerPage> getTransactions(@RequestHeader Long userId,
+                                                      @RequestParam(required = false) Long before,
+                                                      @RequestParam(defaultValue = "50") int limit) {
+        log.info("Received request for transaction history for user : {} before : {}",userId,before);
+        return ResponseEntity.ok().body(walletService.getTransactions(userId, before, limit));
+    }
 }
\ No newline at end of file
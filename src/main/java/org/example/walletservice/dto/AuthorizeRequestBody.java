@@ -0,0 +1,23 @@
+package org.example.walletservice.dto;
+
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.example.walletservice.money.Money;
+
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuthorizeRequestBody {
+
+    // In minor units; a missing amount reads as zero and is rejected by @Positive
+    @Money
+    @Positive(message = "Amount must be a positive value")
+    private long amount;
+
+    // How long the hold lasts unless captured or voided; wallet.holds.default-ttl when missing
+    @Positive(message = "TTL must be a positive number of seconds")
+    private Long ttlSeconds;
+}
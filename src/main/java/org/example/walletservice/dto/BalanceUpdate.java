@@ -0,0 +1,20 @@
+package org.example.walletservice.dto;
+
+/**
+ * Outcome of a conditional balance update: the number of wallet rows changed and, when one was,
+ * the balance it holds afterwards (in minor units), the ledger sequence the update was given and the
+ * amount still reserved by holds. All are zero when nothing was updated.
+ */
+public record BalanceUpdate(int updatedRows, long balance, long sequence, long reserved) {
+
+    public static final BalanceUpdate NONE = new BalanceUpdate(0, 0, 0);
+
+    // For wallets without holds, such as those in the engine
+    public BalanceUpdate(int updatedRows, long balance, long sequence) {
+        this(updatedRows, balance, sequence, 0);
+    }
+
+    public boolean applied() {
+        return updatedRows > 0;
+    }
+}
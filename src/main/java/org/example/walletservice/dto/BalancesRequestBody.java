@@ -0,0 +1,21 @@
+package org.example.walletservice.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BalancesRequestBody {
+
+    @NotEmpty(message = "customerIds cannot be empty")
+    @Size(max = 10000, message = "At most 10000 customers can be looked up at once")
+    private List<@NotNull Long> customerIds;
+}
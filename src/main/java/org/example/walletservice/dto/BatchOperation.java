@@ -0,0 +1,32 @@
+package org.example.walletservice.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.example.walletservice.enums.OperationType;
+import org.example.walletservice.money.Money;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchOperation {
+
+    @NotNull(message = "userId cannot be null")
+    private Long userId;
+
+    @NotBlank(message = "requestId cannot be blank")
+    private String requestId;
+
+    @NotNull(message = "type cannot be null")
+    private OperationType type;
+
+    // In minor units; a missing amount reads as zero and is rejected by @Positive
+    @Money
+    @Positive(message = "Amount must be a positive value")
+    private long amount;
+}
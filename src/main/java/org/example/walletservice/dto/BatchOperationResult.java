@@ -0,0 +1,22 @@
+package org.example.walletservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.example.walletservice.enums.BatchOperationStatus;
+import org.example.walletservice.money.Money;
+
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchOperationResult {
+
+    private Long userId;
+    private String requestId;
+    private BatchOperationStatus status;
+    // Balance after the operation in minor units; only set when the status is OK
+    @Money
+    private Long balance;
+
+}
@@ -0,0 +1,21 @@
+package org.example.walletservice.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchRequestBody {
+
+    @NotEmpty(message = "operations cannot be empty")
+    @Size(max = 10000, message = "A batch can hold at most 10000 operations")
+    private List<@Valid BatchOperation> operations;
+}
@@ -1,10 +1,10 @@
 package org.example.walletservice.dto;
 
-import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.example.walletservice.money.Money;
 
 
 
@@ -13,7 +13,8 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 public class DepositRequestBody {
 
-    @NotNull(message = "Amount cannot be null")
+    // In minor units; a missing amount reads as zero and is rejected by @Positive
+    @Money
     @Positive(message = "Amount must be a positive value")
-    private Double amount;
+    private long amount;
 }
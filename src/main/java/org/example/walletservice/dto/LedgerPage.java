@@ -0,0 +1,21 @@
+package org.example.walletservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.example.walletservice.entity.LedgerEntry;
+
+import java.util.List;
+
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LedgerPage {
+
+    // Newest first
+    private List<LedgerEntry> entries;
+    // Pass as "before" to fetch the next (older) page; null on the last page
+    private Long nextBefore;
+
+}
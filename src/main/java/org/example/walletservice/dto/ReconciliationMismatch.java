@@ -0,0 +1,23 @@
+package org.example.walletservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.example.walletservice.money.Money;
+
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReconciliationMismatch {
+
+    private Long customerId;
+    // Wallet sequence the ledger was replayed up to
+    private long sequence;
+    @Money
+    private long balance;
+    // Balance rebuilt from the ledger; null when the replay overflowed
+    @Money
+    private Long ledgerBalance;
+
+}
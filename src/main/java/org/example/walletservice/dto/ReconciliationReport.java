@@ -0,0 +1,23 @@
+package org.example.walletservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReconciliationReport {
+
+    private long fromCustomerId;
+    private long toCustomerId;
+    private long walletsChecked;
+    private long mismatchCount;
+    // At most wallet.reconciliation.max-reported of them, in no particular order
+    private List<ReconciliationMismatch> mismatches;
+    private long durationMs;
+
+}
@@ -4,8 +4,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.example.walletservice.enums.ActionType;
-
-import java.math.BigDecimal;
+import org.example.walletservice.money.Money;
 
 
 @Data
@@ -14,9 +13,11 @@ import java.math.BigDecimal;
 public class UpdateEvent {
 
     private Long customerId;
-    private BigDecimal amount;
+    @Money
+    private long amount;
     private ActionType actionType;
-    private BigDecimal balance;
+    @Money
+    private long balance;
 
 }
 
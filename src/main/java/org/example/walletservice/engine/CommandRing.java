@@ -0,0 +1,104 @@
+package org.example.walletservice.engine;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded multi-producer, single-consumer ring of preallocated {@link EngineCommand} slots.
+ * <p>
+ * Producers claim a sequence with one atomic increment, fill the slot and publish it by storing the
+ * sequence in the slot's published marker. The consumer reads slots in sequence order and frees them
+ * in bulk by advancing {@code consumedSequence}. A producer that gets ahead of the consumer by a whole
+ * ring waits, which is the engine's backpressure. The consumer spins briefly and then parks when idle;
+ * producers only unpark it when it announced it is waiting.
+ */
+final class CommandRing {
+
+    private static final int SPINS_BEFORE_BACKOFF = 1_000;
+
+    private final EngineCommand[] slots;
+    private final AtomicLongArray published;
+    private final int mask;
+    private final AtomicLong claimSequence = new AtomicLong();
+    private volatile long consumedSequence;
+    private volatile boolean consumerWaiting;
+    private volatile Thread consumer;
+
+    CommandRing(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ring capacity must be a power of two: " + capacity);
+        }
+        slots = new EngineCommand[capacity];
+        published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new EngineCommand();
+            published.set(i, -1);
+        }
+        mask = capacity - 1;
+    }
+
+    // Producer side
+
+    long claim() {
+        long sequence = claimSequence.getAndIncrement();
+        for (int spins = 0; sequence - consumedSequence >= slots.length; spins++) {
+            if (spins < SPINS_BEFORE_BACKOFF) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+        return sequence;
+    }
+
+    EngineCommand slot(long sequence) {
+        return slots[(int) sequence & mask];
+    }
+
+    void publish(long sequence) {
+        // Volatile store: makes the slot's fields visible to the consumer
+        published.set((int) sequence & mask, sequence);
+        if (consumerWaiting) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    // Consumer side
+
+    void attachConsumer(Thread thread) {
+        consumer = thread;
+    }
+
+    boolean isPublished(long sequence) {
+        return published.get((int) sequence & mask) == sequence;
+    }
+
+    /**
+     * Waits up to about {@code parkNanos} for {@code sequence} to be published.
+     */
+    boolean awaitPublished(long sequence, long parkNanos) {
+        for (int spins = 0; spins < SPINS_BEFORE_BACKOFF; spins++) {
+            if (isPublished(sequence)) {
+                return true;
+            }
+            Thread.onSpinWait();
+        }
+        consumerWaiting = true;
+        try {
+            if (!isPublished(sequence)) {
+                LockSupport.parkNanos(this, parkNanos);
+            }
+        } finally {
+            consumerWaiting = false;
+        }
+        return isPublished(sequence);
+    }
+
+    /**
+     * Frees every slot before {@code nextSequence} for reuse by producers.
+     */
+    void release(long nextSequence) {
+        consumedSequence = nextSequence;
+    }
+}
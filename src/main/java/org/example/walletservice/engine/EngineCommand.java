@@ -0,0 +1,38 @@
+package org.example.walletservice.engine;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A slot of a {@link CommandRing}. Slots are allocated once and reused: a producer fills one in and
+ * publishes it, the shard's writer thread applies it and hands the slot back.
+ */
+final class EngineCommand {
+
+    enum Type { DEPOSIT, WITHDRAW, BALANCE, REGISTER, ROLL_JOURNAL }
+
+    Type type;
+    long customerId;
+    long amount;
+    String requestId;
+    // The request id was looked up in the checkpoint store, so it is new unless the window now holds it
+    boolean durablyChecked;
+    CompletableFuture<EngineResult> result;
+    CompletableFuture<List<Path>> rolledSegments;
+
+    // Set by the writer thread while applying a batch, read when the batch is acknowledged
+    EngineResult outcome;
+    List<Path> segments;
+    Throwable failure;
+
+    void clear() {
+        requestId = null;
+        durablyChecked = false;
+        result = null;
+        rolledSegments = null;
+        outcome = null;
+        segments = null;
+        failure = null;
+    }
+}
@@ -0,0 +1,22 @@
+package org.example.walletservice.engine;
+
+/**
+ * Outcome of a command applied by a {@link WalletEngine} shard. Balance and sequence describe the
+ * wallet after the command (or after the original request, for a replay); both are zero when the
+ * customer is unknown.
+ */
+public record EngineResult(Status status, long customerId, long balance, long sequence) {
+
+    // REQUEST_ID_CONFLICT: the request id was already used by another customer
+    public enum Status { OK, REPLAYED, UNKNOWN_CUSTOMER, INSUFFICIENT_FUNDS, BALANCE_LIMIT_EXCEEDED, REQUEST_ID_CONFLICT }
+
+    /**
+     * Returned by a shard, never by the engine, for a request id its window does not hold although it has
+     * dropped older ones: the engine checks the durable store and resubmits.
+     */
+    static final EngineResult NOT_REMEMBERED = new EngineResult(Status.REPLAYED, 0, 0, -1);
+
+    static EngineResult rejected(Status status, long customerId) {
+        return new EngineResult(status, customerId, 0, 0);
+    }
+}
@@ -0,0 +1,273 @@
+package org.example.walletservice.engine;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.walletservice.engine.EngineCommand.Type;
+import org.example.walletservice.engine.EngineResult.Status;
+import org.example.walletservice.enums.OperationType;
+import org.example.walletservice.money.MinorUnits;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One partition of the engine: the wallets whose customerId hashes to it, and the single writer thread
+ * that owns them. The thread takes commands off the shard's {@link CommandRing} in batches. It applies
+ * each one to the {@link WalletTable}, journaling mutations first. Then it syncs the journal once and
+ * completes the whole batch, so no caller hears back before its change is in the journal.
+ */
+@Slf4j
+final class EngineShard implements Runnable {
+
+    private static final int MAX_BATCH = 256;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final int id;
+    private final CommandRing ring;
+    private final WalletTable wallets;
+    private final Journal journal;
+    private final Map<String, EngineResult> recentRequests;
+    // Whether the window has dropped a request id, after which a miss no longer proves a request new
+    private boolean forgotten;
+
+    private volatile boolean running = true;
+    // Set once the writer has left its loop; commands published after that are failed, not applied
+    private volatile boolean writerExited;
+    private long nextSequence;
+
+    EngineShard(int id, int ringSize, Journal journal, int idempotencyWindow) {
+        this.id = id;
+        this.ring = new CommandRing(ringSize);
+        this.wallets = new WalletTable(1024);
+        this.journal = journal;
+        this.recentRequests = new LinkedHashMap<>(1024, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, EngineResult> eldest) {
+                if (size() > idempotencyWindow) {
+                    forgotten = true;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // Recovery, before the writer thread starts
+
+    void load(long customerId, long balance, long sequence) {
+        wallets.putIfAbsent(customerId, balance, sequence);
+    }
+
+    void remember(String requestId, long customerId, long balance, long sequence) {
+        recentRequests.put(requestId, new EngineResult(Status.OK, customerId, balance, sequence));
+    }
+
+    void replay(JournalRecord record) {
+        int index = wallets.indexOf(record.customerId());
+        if (index < 0) {
+            log.warn("Journal of shard {} holds customerId {} that has no wallet, skipping", id, record.customerId());
+            return;
+        }
+        if (record.sequence() > wallets.sequence(index)) {
+            wallets.update(index, record.balanceAfter(), record.sequence());
+        }
+        remember(record.requestId(), record.customerId(), record.balanceAfter(), record.sequence());
+    }
+
+    int size() {
+        return wallets.size();
+    }
+
+    // Producers
+
+    CompletableFuture<EngineResult> submit(Type type, long customerId, long amount, String requestId) {
+        return submit(type, customerId, amount, requestId, false);
+    }
+
+    /**
+     * @param durablyChecked whether the request id was already looked up in the checkpoint store, after
+     *                       the shard answered {@link EngineResult#NOT_REMEMBERED}
+     */
+    CompletableFuture<EngineResult> submit(Type type, long customerId, long amount, String requestId, boolean durablyChecked) {
+        CompletableFuture<EngineResult> result = new CompletableFuture<>();
+        long sequence = ring.claim();
+        EngineCommand command = ring.slot(sequence);
+        command.type = type;
+        command.customerId = customerId;
+        command.amount = amount;
+        command.requestId = requestId;
+        command.durablyChecked = durablyChecked;
+        command.result = result;
+        ring.publish(sequence);
+        failIfWriterExited(result);
+        return result;
+    }
+
+    CompletableFuture<List<Path>> rollJournal() {
+        CompletableFuture<List<Path>> rolledSegments = new CompletableFuture<>();
+        long sequence = ring.claim();
+        EngineCommand command = ring.slot(sequence);
+        command.type = Type.ROLL_JOURNAL;
+        command.rolledSegments = rolledSegments;
+        ring.publish(sequence);
+        failIfWriterExited(rolledSegments);
+        return rolledSegments;
+    }
+
+    /**
+     * A producer can pass the engine's running check and publish only after the writer has left its loop.
+     * Publishing before reading {@code writerExited}, while the writer sets it before its last look at the
+     * ring, means either the producer sees it set or the writer sees the command; whichever does fails it.
+     */
+    private void failIfWriterExited(CompletableFuture<?> future) {
+        if (writerExited) {
+            future.completeExceptionally(new IllegalStateException("Wallet engine is not running"));
+        }
+    }
+
+    // Writer thread
+
+    @Override
+    public void run() {
+        ring.attachConsumer(Thread.currentThread());
+        // After stop() the commands already published are still applied, so no caller is left waiting
+        while (running || ring.isPublished(nextSequence)) {
+            if (!ring.awaitPublished(nextSequence, IDLE_PARK_NANOS)) {
+                continue;
+            }
+            long end = nextSequence;
+            while (end - nextSequence < MAX_BATCH && ring.isPublished(end)) {
+                apply(ring.slot(end));
+                end++;
+            }
+            Throwable syncFailure = null;
+            try {
+                journal.sync();
+            } catch (RuntimeException e) {
+                log.error("Journal sync of shard {} failed", id, e);
+                syncFailure = e;
+            }
+            for (long sequence = nextSequence; sequence < end; sequence++) {
+                acknowledge(ring.slot(sequence), syncFailure);
+            }
+            ring.release(end);
+            nextSequence = end;
+        }
+        // Whatever was published before this point the writer fails; anything later its producer does
+        writerExited = true;
+        IllegalStateException stopped = new IllegalStateException("Wallet engine is not running");
+        while (ring.isPublished(nextSequence)) {
+            EngineCommand command = ring.slot(nextSequence);
+            command.failure = stopped;
+            acknowledge(command, null);
+            nextSequence++;
+            ring.release(nextSequence);
+        }
+    }
+
+    void stop() {
+        running = false;
+    }
+
+    /**
+     * Same as a {@code ROLL_JOURNAL} command, for when the writer thread has stopped.
+     */
+    List<Path> rollStoppedJournal() {
+        return journal.roll();
+    }
+
+    void closeJournal() {
+        journal.close();
+    }
+
+    private void apply(EngineCommand command) {
+        try {
+            switch (command.type) {
+                case DEPOSIT -> command.outcome = change(command, OperationType.DEPOSIT);
+                case WITHDRAW -> command.outcome = change(command, OperationType.WITHDRAW);
+                case BALANCE -> command.outcome = balance(command.customerId);
+                case REGISTER -> {
+                    wallets.putIfAbsent(command.customerId, command.amount, 0);
+                    command.outcome = balance(command.customerId);
+                }
+                case ROLL_JOURNAL -> command.segments = journal.roll();
+            }
+        } catch (RuntimeException e) {
+            command.failure = e;
+        }
+    }
+
+    private EngineResult change(EngineCommand command, OperationType type) {
+        EngineResult previous = recentRequests.get(command.requestId);
+        if (previous != null) {
+            if (previous.customerId() != command.customerId) {
+                return EngineResult.rejected(Status.REQUEST_ID_CONFLICT, command.customerId);
+            }
+            return new EngineResult(Status.REPLAYED, previous.customerId(), previous.balance(), previous.sequence());
+        }
+        if (forgotten && !command.durablyChecked && command.requestId != null) {
+            // Possibly a retry older than the window; the lookup is left to the caller's thread
+            return EngineResult.NOT_REMEMBERED;
+        }
+        int index = wallets.indexOf(command.customerId);
+        if (index < 0) {
+            return EngineResult.rejected(Status.UNKNOWN_CUSTOMER, command.customerId);
+        }
+
+        long balance = wallets.balance(index);
+        long newBalance;
+        if (type == OperationType.DEPOSIT) {
+            if (command.amount > Long.MAX_VALUE - balance) {
+                return EngineResult.rejected(Status.BALANCE_LIMIT_EXCEEDED, command.customerId);
+            }
+            newBalance = MinorUnits.add(balance, command.amount);
+        } else {
+            if (balance < command.amount) {
+                return EngineResult.rejected(Status.INSUFFICIENT_FUNDS, command.customerId);
+            }
+            newBalance = MinorUnits.subtract(balance, command.amount);
+        }
+        long sequence = wallets.sequence(index) + 1;
+
+        // Journal first: if the append fails the in-memory state is left untouched
+        journal.append(command.customerId, sequence, type, command.amount, newBalance, command.requestId);
+        wallets.update(index, newBalance, sequence);
+        EngineResult result = new EngineResult(Status.OK, command.customerId, newBalance, sequence);
+        recentRequests.put(command.requestId, result);
+        return result;
+    }
+
+    private EngineResult balance(long customerId) {
+        int index = wallets.indexOf(customerId);
+        if (index < 0) {
+            return EngineResult.rejected(Status.UNKNOWN_CUSTOMER, customerId);
+        }
+        return new EngineResult(Status.OK, customerId, wallets.balance(index), wallets.sequence(index));
+    }
+
+    private static void acknowledge(EngineCommand command, Throwable syncFailure) {
+        Throwable failure = command.failure != null ? command.failure : syncFailure;
+        CompletableFuture<EngineResult> result = command.result;
+        CompletableFuture<List<Path>> rolledSegments = command.rolledSegments;
+        EngineResult outcome = command.outcome;
+        List<Path> segments = command.segments;
+        command.clear();
+        if (result != null) {
+            if (failure != null) {
+                result.completeExceptionally(failure);
+            } else {
+                result.complete(outcome);
+            }
+        }
+        if (rolledSegments != null) {
+            if (failure != null) {
+                rolledSegments.completeExceptionally(failure);
+            } else {
+                rolledSegments.complete(segments);
+            }
+        }
+    }
+}
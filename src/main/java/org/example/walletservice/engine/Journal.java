@@ -0,0 +1,211 @@
+package org.example.walletservice.engine;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.walletservice.enums.OperationType;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Write-ahead journal of one shard, as a sequence of fixed-size memory-mapped segment files
+ * {@code shard-<n>-<segment>.journal}. Only the shard's writer thread uses an instance.
+ * <p>
+ * A record is {@code [int payloadLength][int crc32c][payload]}, with the payload holding a
+ * {@link JournalRecord}. Appending is a few stores into the mapping. Once a record is written it is in the
+ * OS page cache and survives a crash of the process. It survives a crash of the machine only with
+ * {@code fsync} on, where {@link #sync()} forces the written range to disk. A zero length marks the end
+ * of a segment; a CRC mismatch marks a torn write and also ends it.
+ * <p>
+ * A new instance never appends to existing segments: it starts a new one, and the old ones are left
+ * for recovery and the next checkpoint.
+ */
+@Slf4j
+final class Journal implements Closeable {
+
+    private static final int HEADER_BYTES = 8;
+    private static final int FIXED_PAYLOAD_BYTES = 8 + 8 + 1 + 8 + 8 + 4;
+    private static final String SUFFIX = ".journal";
+
+    private final Path directory;
+    private final int shard;
+    private final int segmentBytes;
+    private final boolean fsync;
+    private final CRC32C crc = new CRC32C();
+
+    private long segmentNumber;
+    private MappedByteBuffer buffer;
+    private ByteBuffer crcView;
+    private int syncedPosition;
+
+    Journal(Path directory, int shard, int segmentBytes, boolean fsync) {
+        this.directory = directory;
+        this.shard = shard;
+        this.segmentBytes = segmentBytes;
+        this.fsync = fsync;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create journal directory " + directory, e);
+        }
+        List<Path> existing = segments(directory, shard);
+        segmentNumber = existing.isEmpty() ? 0 : segmentNumber(existing.get(existing.size() - 1));
+        openNextSegment();
+    }
+
+    void append(long customerId, long sequence, OperationType type, long amount, long balanceAfter, String requestId) {
+        int payloadBytes = FIXED_PAYLOAD_BYTES + requestId.length() * 2;
+        if (HEADER_BYTES + payloadBytes > segmentBytes) {
+            throw new IllegalArgumentException("Journal record of " + payloadBytes + " bytes does not fit a segment");
+        }
+        if (buffer.remaining() < HEADER_BYTES + payloadBytes) {
+            sync();
+            openNextSegment();
+        }
+
+        int start = buffer.position();
+        buffer.position(start + HEADER_BYTES);
+        buffer.putLong(customerId);
+        buffer.putLong(sequence);
+        buffer.put((byte) type.ordinal());
+        buffer.putLong(amount);
+        buffer.putLong(balanceAfter);
+        buffer.putInt(requestId.length());
+        for (int i = 0; i < requestId.length(); i++) {
+            buffer.putChar(requestId.charAt(i));
+        }
+        int end = buffer.position();
+
+        crcView.limit(end).position(start + HEADER_BYTES);
+        crc.reset();
+        crc.update(crcView);
+        buffer.putInt(start + 4, (int) crc.getValue());
+        // The length goes in last, so a reader never sees a length without the record behind it
+        buffer.putInt(start, payloadBytes);
+    }
+
+    /**
+     * Makes every appended record durable as far as the {@code fsync} setting asks for.
+     */
+    void sync() {
+        int position = buffer.position();
+        if (fsync && position > syncedPosition) {
+            buffer.force(syncedPosition, position - syncedPosition);
+        }
+        syncedPosition = position;
+    }
+
+    /**
+     * Starts a new segment unless the current one is still empty, and returns every older segment, oldest
+     * first. Those are complete and can be checkpointed and deleted.
+     */
+    List<Path> roll() {
+        if (buffer.position() > 0) {
+            sync();
+            openNextSegment();
+        }
+        List<Path> closed = new ArrayList<>();
+        for (Path segment : segments(directory, shard)) {
+            if (segmentNumber(segment) < segmentNumber) {
+                closed.add(segment);
+            }
+        }
+        return closed;
+    }
+
+    @Override
+    public void close() {
+        sync();
+        buffer = null;
+        crcView = null;
+    }
+
+    /**
+     * Segments of {@code shard} in {@code directory}, oldest first.
+     */
+    static List<Path> segments(Path directory, int shard) {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        String prefix = "shard-" + shard + "-";
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.startsWith(prefix) && name.endsWith(SUFFIX);
+                    })
+                    .sorted((left, right) -> Long.compare(segmentNumber(left), segmentNumber(right)))
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not list journal directory " + directory, e);
+        }
+    }
+
+    /**
+     * Reads the complete records of {@code segment} in order, stopping at its end or at a torn record.
+     */
+    static void read(Path segment, Consumer<JournalRecord> visitor) {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            ByteBuffer crcView = mapped.duplicate();
+            CRC32C crc = new CRC32C();
+            OperationType[] types = OperationType.values();
+            while (mapped.remaining() >= HEADER_BYTES) {
+                int start = mapped.position();
+                int payloadBytes = mapped.getInt();
+                int expectedCrc = mapped.getInt();
+                if (payloadBytes < FIXED_PAYLOAD_BYTES || payloadBytes > mapped.remaining()) {
+                    break;
+                }
+                crcView.limit(start + HEADER_BYTES + payloadBytes).position(start + HEADER_BYTES);
+                crc.reset();
+                crc.update(crcView);
+                if ((int) crc.getValue() != expectedCrc) {
+                    log.warn("Torn record at offset {} of journal segment {}, ignoring the rest", start, segment);
+                    break;
+                }
+                long customerId = mapped.getLong();
+                long sequence = mapped.getLong();
+                OperationType type = types[mapped.get()];
+                long amount = mapped.getLong();
+                long balanceAfter = mapped.getLong();
+                char[] requestId = new char[mapped.getInt()];
+                for (int i = 0; i < requestId.length; i++) {
+                    requestId[i] = mapped.getChar();
+                }
+                visitor.accept(new JournalRecord(customerId, sequence, type, amount, balanceAfter, new String(requestId)));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read journal segment " + segment, e);
+        }
+    }
+
+    private void openNextSegment() {
+        segmentNumber++;
+        Path segment = directory.resolve(String.format("shard-%d-%016d%s", shard, segmentNumber, SUFFIX));
+        try (FileChannel channel = FileChannel.open(segment,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // The mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create journal segment " + segment, e);
+        }
+        crcView = buffer.duplicate();
+        syncedPosition = 0;
+    }
+
+    private static long segmentNumber(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(name.lastIndexOf('-') + 1, name.length() - SUFFIX.length()));
+    }
+}
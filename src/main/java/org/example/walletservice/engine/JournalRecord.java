@@ -0,0 +1,11 @@
+package org.example.walletservice.engine;
+
+import org.example.walletservice.enums.OperationType;
+
+/**
+ * One applied deposit or withdrawal as written to the journal. It carries the after-image of the
+ * wallet ({@code balanceAfter} at {@code sequence}), so replaying a record is idempotent.
+ */
+public record JournalRecord(long customerId, long sequence, OperationType type, long amount, long balanceAfter,
+                            String requestId) {
+}
@@ -0,0 +1,161 @@
+package org.example.walletservice.engine;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.walletservice.ProcessedRequestRepository;
+import org.example.walletservice.WalletRepository;
+import org.example.walletservice.dto.BalanceUpdate;
+import org.example.walletservice.dto.UpdateEvent;
+import org.example.walletservice.entity.LedgerEntry;
+import org.example.walletservice.entity.ProcessedRequest;
+import org.example.walletservice.entity.Wallet;
+import org.example.walletservice.enums.ActionType;
+import org.example.walletservice.enums.OperationType;
+import org.example.walletservice.service.EventOutbox;
+import org.example.walletservice.service.WalletLedger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Checkpoints engine journal records into the same tables the JPA path writes: the wallet row gets the
+ * latest balance and sequence, and each record becomes a ledger entry, an outbox event and a processed
+ * request. Records are written {@code wallet.engine.checkpoint-chunk-size} per transaction.
+ */
+@Component
+@Slf4j
+public class JpaWalletCheckpointStore implements WalletCheckpointStore {
+
+    private static final int LOAD_PAGE_SIZE = 1000;
+
+    private final WalletRepository walletRepository;
+    private final ProcessedRequestRepository processedRequestRepository;
+    private final WalletLedger walletLedger;
+    private final EventOutbox eventOutbox;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    @Autowired
+    public JpaWalletCheckpointStore(WalletRepository walletRepository, ProcessedRequestRepository processedRequestRepository,
+                                    WalletLedger walletLedger, EventOutbox eventOutbox,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${wallet.engine.checkpoint-chunk-size:500}") int chunkSize) {
+        this.walletRepository = walletRepository;
+        this.processedRequestRepository = processedRequestRepository;
+        this.walletLedger = walletLedger;
+        this.eventOutbox = eventOutbox;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public void loadWallets(WalletVisitor visitor) {
+        long after = Long.MIN_VALUE;
+        List<Wallet> page;
+        do {
+            page = walletRepository.findByCustomerIdGreaterThanOrderByCustomerId(after, PageRequest.of(0, LOAD_PAGE_SIZE));
+            for (Wallet wallet : page) {
+                visitor.visit(wallet.getCustomerId(), wallet.getBalance(), wallet.getSequence(), wallet.getReserved());
+            }
+            if (!page.isEmpty()) {
+                after = page.get(page.size() - 1).getCustomerId();
+            }
+        } while (page.size() == LOAD_PAGE_SIZE);
+    }
+
+    @Override
+    public boolean findProcessedRequest(String requestId, ProcessedRequestVisitor visitor) {
+        return processedRequestRepository.findById(requestId)
+                .map(request -> {
+                    visitor.visit(request.getRequestId(), request.getCustomerId(), request.getBalance(), request.getSequence());
+                    return true;
+                })
+                .orElse(false);
+    }
+
+    @Override
+    public void loadProcessedRequests(ProcessedRequestVisitor visitor) {
+        String after = "";
+        List<ProcessedRequest> page;
+        do {
+            page = processedRequestRepository.findByRequestIdGreaterThanOrderByRequestId(after, PageRequest.of(0, LOAD_PAGE_SIZE));
+            for (ProcessedRequest request : page) {
+                visitor.visit(request.getRequestId(), request.getCustomerId(), request.getBalance(), request.getSequence());
+            }
+            if (!page.isEmpty()) {
+                after = page.get(page.size() - 1).getRequestId();
+            }
+        } while (page.size() == LOAD_PAGE_SIZE);
+    }
+
+    @Override
+    public void checkpoint(List<JournalRecord> records) {
+        for (int from = 0; from < records.size(); from += chunkSize) {
+            List<JournalRecord> chunk = records.subList(from, Math.min(from + chunkSize, records.size()));
+            transactionTemplate.executeWithoutResult(status -> checkpointChunk(chunk));
+        }
+    }
+
+    private void checkpointChunk(List<JournalRecord> chunk) {
+        Set<Long> customerIds = new HashSet<>();
+        List<String> requestIds = new ArrayList<>(chunk.size());
+        for (JournalRecord record : chunk) {
+            customerIds.add(record.customerId());
+            requestIds.add(record.requestId());
+        }
+        Map<Long, Wallet> wallets = new HashMap<>();
+        for (Wallet wallet : walletRepository.findAllById(customerIds)) {
+            wallets.put(wallet.getCustomerId(), wallet);
+        }
+        // Ids recorded earlier, e.g. by the JPA path, keep their original row
+        Set<String> knownRequestIds = new HashSet<>();
+        for (ProcessedRequest request : processedRequestRepository.findAllById(requestIds)) {
+            knownRequestIds.add(request.getRequestId());
+        }
+
+        Instant now = Instant.now();
+        List<LedgerEntry> entries = new ArrayList<>(chunk.size());
+        List<UpdateEvent> events = new ArrayList<>(chunk.size());
+        List<ProcessedRequest> processedRequests = new ArrayList<>(chunk.size());
+        for (JournalRecord record : chunk) {
+            Wallet wallet = wallets.get(record.customerId());
+            if (wallet == null || record.sequence() <= wallet.getSequence()) {
+                continue;
+            }
+            // Managed entity: the change is flushed with the rest of the chunk
+            wallet.setBalance(record.balanceAfter());
+            wallet.setSequence(record.sequence());
+
+            BalanceUpdate update = new BalanceUpdate(1, record.balanceAfter(), record.sequence());
+            entries.add(WalletLedger.entry(record.customerId(), record.requestId(), record.type(), record.amount(), update));
+            events.add(new UpdateEvent(record.customerId(), record.amount(),
+                    record.type() == OperationType.DEPOSIT ? ActionType.DEBIT : ActionType.CREDIT, record.balanceAfter()));
+            if (knownRequestIds.add(record.requestId())) {
+                processedRequests.add(ProcessedRequest.builder()
+                        .requestId(record.requestId())
+                        .customerId(record.customerId())
+                        .balance(record.balanceAfter())
+                        .sequence(record.sequence())
+                        .processedAt(now)
+                        .build());
+            }
+        }
+
+        if (!entries.isEmpty()) {
+            walletLedger.appendAll(entries);
+            eventOutbox.enqueueAll(events, "balance-update-event");
+            processedRequestRepository.saveAll(processedRequests);
+        }
+        log.debug("Checkpointed {} of {} journal records", entries.size(), chunk.size());
+    }
+}
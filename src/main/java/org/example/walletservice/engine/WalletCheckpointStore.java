@@ -0,0 +1,43 @@
+package org.example.walletservice.engine;
+
+import java.util.List;
+
+/**
+ * Durable state the {@link WalletEngine} recovers from and checkpoints into.
+ */
+public interface WalletCheckpointStore {
+
+    /**
+     * Visits every wallet, including the amount its open holds reserve.
+     */
+    void loadWallets(WalletVisitor visitor);
+
+    /**
+     * Visits the recently processed request ids, so a replay arriving just after a restart is still
+     * recognised.
+     */
+    void loadProcessedRequests(ProcessedRequestVisitor visitor);
+
+    /**
+     * Visits one processed request, for a replay older than the engine's idempotency window. Returns
+     * {@code false}, visiting nothing, when the request id is unknown or was purged after
+     * {@code wallet.idempotency.retention}.
+     */
+    boolean findProcessedRequest(String requestId, ProcessedRequestVisitor visitor);
+
+    /**
+     * Persists the changes of {@code records}, in order. Records at or below the stored sequence of
+     * their wallet are already persisted and must be skipped, so a checkpoint can be repeated safely.
+     */
+    void checkpoint(List<JournalRecord> records);
+
+    @FunctionalInterface
+    interface WalletVisitor {
+        void visit(long customerId, long balance, long sequence, long reserved);
+    }
+
+    @FunctionalInterface
+    interface ProcessedRequestVisitor {
+        void visit(String requestId, long customerId, long balance, long sequence);
+    }
+}
@@ -0,0 +1,318 @@
+package org.example.walletservice.engine;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.walletservice.engine.EngineCommand.Type;
+import org.example.walletservice.engine.EngineResult.Status;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Optional in-memory engine for deposits, withdrawals and balance reads ({@code wallet.engine.enabled}).
+ * <p>
+ * Wallets are partitioned over {@code wallet.engine.shards} {@link EngineShard}s by customerId. Each shard
+ * has a single writer thread that owns its balances, so the hot path takes no locks: a request is one
+ * slot in the shard's {@link CommandRing} and one record in its memory-mapped {@link Journal}, and it is
+ * acknowledged only once that record is written. Journal records survive a crash of the process; they
+ * survive a crash of the machine only with {@code wallet.engine.journal.fsync} on.
+ * <p>
+ * On start the engine loads the {@code wallet} table and replays the journal segments left behind. Every
+ * {@code wallet.engine.checkpoint-interval-ms} each shard rolls its journal, and the closed segments are
+ * written to the database through the {@link WalletCheckpointStore} and then deleted. Ledger entries,
+ * outbox events and processed request ids therefore reach the database up to one interval late.
+ * <p>
+ * Each shard remembers its last {@code wallet.engine.idempotency-window} request ids. A request id it does
+ * not hold, once it has dropped some, is looked up in {@code processed_request} before being applied, so
+ * retries are recognised for {@code wallet.idempotency.retention} as on the database path. The window must
+ * hold more requests than a shard takes in one checkpoint interval, which are not in the table yet.
+ * <p>
+ * The engine assumes it is the only writer of the wallets: run one instance per database. It does not
+ * track holds, and refuses to start while any wallet has funds reserved by one.
+ */
+@Component
+@Slf4j
+public class WalletEngine implements SmartLifecycle {
+
+    private final WalletCheckpointStore checkpointStore;
+    private final boolean enabled;
+    private final int shardCount;
+    private final int ringSize;
+    private final Path journalDirectory;
+    private final int segmentBytes;
+    private final boolean fsync;
+    private final int idempotencyWindow;
+
+    private EngineShard[] shards;
+    private Thread[] writers;
+    private volatile boolean running;
+
+    @Autowired
+    public WalletEngine(WalletCheckpointStore checkpointStore,
+                        @Value("${wallet.engine.enabled:false}") boolean enabled,
+                        @Value("${wallet.engine.shards:4}") int shardCount,
+                        @Value("${wallet.engine.ring-size:4096}") int ringSize,
+                        @Value("${wallet.engine.journal.directory:journal}") String journalDirectory,
+                        @Value("${wallet.engine.journal.segment-size:64MB}") DataSize segmentSize,
+                        @Value("${wallet.engine.journal.fsync:false}") boolean fsync,
+                        @Value("${wallet.engine.idempotency-window:100000}") int idempotencyWindow) {
+        this.checkpointStore = checkpointStore;
+        this.enabled = enabled;
+        this.shardCount = shardCount;
+        this.ringSize = ringSize;
+        this.journalDirectory = Path.of(journalDirectory);
+        this.segmentBytes = Math.toIntExact(segmentSize.toBytes());
+        this.fsync = fsync;
+        this.idempotencyWindow = idempotencyWindow;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public EngineResult deposit(long customerId, long amount, String requestId) {
+        return change(Type.DEPOSIT, customerId, amount, requestId);
+    }
+
+    public EngineResult withdraw(long customerId, long amount, String requestId) {
+        return change(Type.WITHDRAW, customerId, amount, requestId);
+    }
+
+    public EngineResult balance(long customerId) {
+        return join(runningShardFor(customerId).submit(Type.BALANCE, customerId, 0, null));
+    }
+
+    /**
+     * Adds a wallet created in the database. Does nothing if the engine already holds it.
+     */
+    public CompletableFuture<EngineResult> register(long customerId, long openingBalance) {
+        return runningShardFor(customerId).submit(Type.REGISTER, customerId, openingBalance, null);
+    }
+
+    /**
+     * Registers wallets once the caller's transaction has inserted them. Before the engine has started
+     * there is nothing to do: it loads every committed wallet on start.
+     */
+    public void registerAfterCommit(Collection<Long> customerIds, long openingBalance) {
+        if (!enabled || customerIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = List.copyOf(customerIds);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    registerAll(ids, openingBalance);
+                }
+            });
+        } else {
+            registerAll(ids, openingBalance);
+        }
+    }
+
+    @Override
+    public synchronized void start() {
+        if (!enabled || running) {
+            return;
+        }
+        long startedAt = System.nanoTime();
+        shards = new EngineShard[shardCount];
+        List<List<Path>> leftoverSegments = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            leftoverSegments.add(Journal.segments(journalDirectory, i));
+            shards[i] = new EngineShard(i, ringSize, new Journal(journalDirectory, i, segmentBytes, fsync), idempotencyWindow);
+        }
+        // Accept commands from here on: they wait in the rings until the writers start after recovery, so
+        // a wallet committed while the table is being loaded is still registered
+        running = true;
+
+        // The engine does not track holds, so it would let a withdrawal spend what one reserves
+        long[] holding = new long[1];
+        checkpointStore.loadWallets((customerId, balance, sequence, reserved) -> {
+            if (reserved > 0) {
+                holding[0]++;
+            }
+            shardFor(customerId).load(customerId, balance, sequence);
+        });
+        if (holding[0] > 0) {
+            running = false;
+            throw new IllegalStateException(holding[0] + " wallets have funds reserved by holds; capture, void or let them"
+                    + " expire with wallet.engine.enabled=false before enabling the wallet engine");
+        }
+        checkpointStore.loadProcessedRequests((requestId, customerId, balance, sequence) ->
+                shardFor(customerId).remember(requestId, customerId, balance, sequence));
+        int replayed = 0;
+        for (int i = 0; i < shardCount; i++) {
+            for (Path segment : leftoverSegments.get(i)) {
+                int[] records = new int[1];
+                EngineShard shard = shards[i];
+                Journal.read(segment, record -> {
+                    shard.replay(record);
+                    records[0]++;
+                });
+                replayed += records[0];
+            }
+        }
+
+        int wallets = 0;
+        for (EngineShard shard : shards) {
+            wallets += shard.size();
+        }
+        writers = new Thread[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            writers[i] = new Thread(shards[i], "wallet-engine-shard-" + i);
+            writers[i].start();
+        }
+        log.info("Wallet engine started with {} wallets over {} shards, replayed {} journal records in {} ms",
+                wallets, shardCount, replayed, (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    /**
+     * Writes the journal segments closed since the last checkpoint to the database and deletes them. A
+     * segment that fails to checkpoint is kept and retried next time.
+     */
+    @Scheduled(fixedDelayString = "${wallet.engine.checkpoint-interval-ms:10000}")
+    public synchronized void checkpoint() {
+        if (!running) {
+            return;
+        }
+        for (int i = 0; i < shardCount; i++) {
+            List<Path> segments;
+            try {
+                segments = shards[i].rollJournal().join();
+            } catch (CompletionException e) {
+                log.error("Could not roll the journal of shard {}", i, e.getCause());
+                continue;
+            }
+            checkpointSegments(i, segments);
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        stopWriters();
+        // The writers are gone, so the journals can be rolled from here
+        for (int i = 0; i < shardCount; i++) {
+            checkpointSegments(i, shards[i].rollStoppedJournal());
+            shards[i].closeJournal();
+        }
+        log.info("Wallet engine stopped");
+    }
+
+    /**
+     * Stops the writer threads without a checkpoint, leaving the journal as a crash would. For tests.
+     */
+    synchronized void halt() {
+        if (running) {
+            stopWriters();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Before everything that calls into the engine (listener containers, the web server)
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    private void stopWriters() {
+        running = false;
+        for (EngineShard shard : shards) {
+            shard.stop();
+        }
+        for (Thread writer : writers) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while stopping the wallet engine", e);
+            }
+        }
+    }
+
+    private void checkpointSegments(int shard, List<Path> segments) {
+        for (Path segment : segments) {
+            List<JournalRecord> records = new ArrayList<>();
+            Journal.read(segment, records::add);
+            try {
+                checkpointStore.checkpoint(records);
+                Files.delete(segment);
+                log.debug("Checkpointed {} records of journal segment {}", records.size(), segment);
+            } catch (IOException | RuntimeException e) {
+                // Later segments depend on this one being applied first
+                log.error("Checkpoint of shard {} failed at journal segment {}, will retry", shard, segment, e);
+                return;
+            }
+        }
+    }
+
+    private void registerAll(List<Long> customerIds, long openingBalance) {
+        if (!running) {
+            return;
+        }
+        for (Long customerId : customerIds) {
+            register(customerId, openingBalance);
+        }
+    }
+
+    /**
+     * Applies a deposit or withdrawal. A request id the shard's window no longer covers is looked up in the
+     * checkpoint store here, on the caller's thread, and the command resubmitted only if it is new there.
+     */
+    private EngineResult change(Type type, long customerId, long amount, String requestId) {
+        EngineResult result = join(runningShardFor(customerId).submit(type, customerId, amount, requestId));
+        if (result != EngineResult.NOT_REMEMBERED) {
+            return result;
+        }
+        EngineResult[] stored = new EngineResult[1];
+        if (checkpointStore.findProcessedRequest(requestId, (id, storedCustomerId, balance, sequence) ->
+                stored[0] = storedCustomerId != customerId
+                        ? EngineResult.rejected(Status.REQUEST_ID_CONFLICT, customerId)
+                        : new EngineResult(Status.REPLAYED, storedCustomerId, balance, sequence))) {
+            return stored[0];
+        }
+        return join(runningShardFor(customerId).submit(type, customerId, amount, requestId, true));
+    }
+
+    private EngineShard runningShardFor(long customerId) {
+        if (!running) {
+            throw new IllegalStateException("Wallet engine is not running");
+        }
+        return shardFor(customerId);
+    }
+
+    private EngineShard shardFor(long customerId) {
+        return shards[Math.floorMod(Long.hashCode(customerId), shardCount)];
+    }
+
+    private EngineResult join(CompletableFuture<EngineResult> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package org.example.walletservice.engine;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing map from customerId to balance and sequence, held in parallel primitive arrays so
+ * lookups and updates do not allocate. Only the owning shard's writer thread touches it.
+ */
+final class WalletTable {
+
+    private static final long FREE = Long.MIN_VALUE;
+
+    private long[] customerIds;
+    private long[] balances;
+    private long[] sequences;
+    private int mask;
+    private int size;
+
+    WalletTable(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+        allocate(capacity);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Slot of {@code customerId}, or -1 if it is not present.
+     */
+    int indexOf(long customerId) {
+        for (int index = slotFor(customerId); ; index = (index + 1) & mask) {
+            long key = customerIds[index];
+            if (key == customerId) {
+                return index;
+            }
+            if (key == FREE) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Adds {@code customerId} unless it is already present. Returns false if it was.
+     */
+    boolean putIfAbsent(long customerId, long balance, long sequence) {
+        if (customerId == FREE) {
+            throw new IllegalArgumentException("Unsupported customerId " + customerId);
+        }
+        if (indexOf(customerId) >= 0) {
+            return false;
+        }
+        if ((size + 1) * 2 > customerIds.length) {
+            resize();
+        }
+        int index = slotFor(customerId);
+        while (customerIds[index] != FREE) {
+            index = (index + 1) & mask;
+        }
+        customerIds[index] = customerId;
+        balances[index] = balance;
+        sequences[index] = sequence;
+        size++;
+        return true;
+    }
+
+    long balance(int index) {
+        return balances[index];
+    }
+
+    long sequence(int index) {
+        return sequences[index];
+    }
+
+    void update(int index, long balance, long sequence) {
+        balances[index] = balance;
+        sequences[index] = sequence;
+    }
+
+    private int slotFor(long customerId) {
+        long hash = customerId * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void resize() {
+        long[] oldCustomerIds = customerIds;
+        long[] oldBalances = balances;
+        long[] oldSequences = sequences;
+        allocate(oldCustomerIds.length * 2);
+        size = 0;
+        for (int i = 0; i < oldCustomerIds.length; i++) {
+            if (oldCustomerIds[i] != FREE) {
+                putIfAbsent(oldCustomerIds[i], oldBalances[i], oldSequences[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        customerIds = new long[capacity];
+        Arrays.fill(customerIds, FREE);
+        balances = new long[capacity];
+        sequences = new long[capacity];
+        mask = capacity - 1;
+    }
+}
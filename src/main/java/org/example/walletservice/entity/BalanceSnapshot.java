@@ -0,0 +1,36 @@
+package org.example.walletservice.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * The balance of a wallet right after its ledger entry {@code sequence}. Rebuilding a balance starts
+ * from the latest snapshot and only replays the entries written after it.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "balance_snapshot",
+        indexes = @Index(name = "uk_balance_snapshot_customer_sequence", columnList = "customerId, sequence", unique = true))
+public class BalanceSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "balance_snapshot_seq")
+    @SequenceGenerator(name = "balance_snapshot_seq", sequenceName = "balance_snapshot_seq", allocationSize = 50)
+    private Long id;
+
+    private Long customerId;
+
+    private long sequence;
+
+    private long balance;
+
+    private Instant createdAt;
+}
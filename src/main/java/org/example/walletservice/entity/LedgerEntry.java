@@ -0,0 +1,51 @@
+package org.example.walletservice.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.example.walletservice.enums.OperationType;
+import org.example.walletservice.money.Money;
+
+import java.time.Instant;
+
+/**
+ * One applied deposit or withdrawal. Rows are only ever inserted, in the same transaction as the
+ * balance change, and numbered per customer by the wallet's {@code sequence}. The unique
+ * (customerId, sequence) index both rejects a second entry for the same update and serves the
+ * keyset-paginated history query.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "ledger_entry",
+        indexes = @Index(name = "uk_ledger_entry_customer_sequence", columnList = "customerId, sequence", unique = true))
+public class LedgerEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ledger_entry_seq")
+    @SequenceGenerator(name = "ledger_entry_seq", sequenceName = "ledger_entry_seq", allocationSize = 50)
+    @JsonIgnore
+    private Long id;
+
+    private Long customerId;
+
+    private long sequence;
+
+    private String requestId;
+
+    @Enumerated(EnumType.STRING)
+    private OperationType type;
+
+    @Money
+    private long amount;
+
+    @Money
+    private long balanceAfter;
+
+    private Instant createdAt;
+}
@@ -0,0 +1,57 @@
+package org.example.walletservice.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.example.walletservice.enums.ActionType;
+
+import java.time.Instant;
+
+/**
+ * An {@code UpdateEvent} waiting to be published. Rows are written in the same transaction as the
+ * balance change and stamped with {@code sentAt} once the relay has handed them to the broker. While a
+ * relay is publishing a row it holds a claim on it until {@code claimedUntil}.
+ * <p>
+ * A customer's rows are only written by the instance owning its partition, while the wallet row is
+ * locked, so their ids (from that instance's pool of {@code allocationSize}) follow the order of the
+ * customer's balance changes. Ids of different instances' pools say nothing about commit order, which
+ * is why each relay only publishes the partitions its instance owns, see {@code OutboxRelay}.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "outbox_event",
+        indexes = @Index(name = "idx_outbox_event_sent_at", columnList = "sentAt, id"))
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_event_seq")
+    @SequenceGenerator(name = "outbox_event_seq", sequenceName = "outbox_event_seq", allocationSize = 50)
+    private Long id;
+
+    private String destination;
+
+    private Long customerId;
+
+    // PartitionRouter partition of the customer; null on rows written before relays were partitioned
+    @Column(name = "wallet_partition")
+    private Integer partition;
+
+    private long amount;
+
+    @Enumerated(EnumType.STRING)
+    private ActionType actionType;
+
+    private long balance;
+
+    private Instant createdAt;
+
+    private Instant sentAt;
+
+    // Set while a relay publishes the row; a claim left behind by a relay that died expires by itself
+    private Instant claimedUntil;
+}
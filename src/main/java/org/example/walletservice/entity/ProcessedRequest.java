@@ -0,0 +1,47 @@
+package org.example.walletservice.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import java.time.Instant;
+
+/**
+ * A deposit/withdraw request that has already been applied, together with the wallet state it produced.
+ * The request id is the primary key, so a replay racing on another replica fails on insert instead of
+ * being applied twice.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "processed_request",
+        indexes = @Index(name = "idx_processed_request_processed_at", columnList = "processedAt"))
+public class ProcessedRequest implements Persistable<String> {
+
+    @Id
+    private String requestId;
+
+    private Long customerId;
+
+    private long balance;
+
+    private long sequence;
+
+    private Instant processedAt;
+
+    @Override
+    public String getId() {
+        return requestId;
+    }
+
+    // Rows are only ever inserted, so skip the select Spring Data would issue to decide persist vs merge
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+}
@@ -5,8 +5,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
-
-import java.math.BigDecimal;
+import org.example.walletservice.money.Money;
 
 @Entity
 @Data
@@ -22,6 +21,21 @@ public class Wallet {
     private Long customerId;
 
 
-    private BigDecimal balance;
+    // In minor units, see MinorUnits
+    @Money
+    private long balance;
+
+    // Sequence of the last ledger entry, bumped by every balance update
+    private long sequence;
+
+    // Part of the balance held by open authorizations, see WalletHold
+    @Money
+    private long reserved;
+
+    // What withdrawals and new authorizations can use
+    @Money
+    public long getAvailable() {
+        return balance - reserved;
+    }
 
 }
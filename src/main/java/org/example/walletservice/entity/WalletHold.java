@@ -0,0 +1,53 @@
+package org.example.walletservice.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.example.walletservice.enums.HoldStatus;
+import org.example.walletservice.money.Money;
+import org.springframework.data.domain.Persistable;
+
+import java.time.Instant;
+
+/**
+ * Funds reserved on a wallet by an authorization until they are captured, voided or the hold expires.
+ * The hold id is the authorizing request id, so a replayed authorization finds its hold instead of
+ * reserving twice. Status only moves away from {@code AUTHORIZED}, through conditional updates.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "wallet_hold",
+        indexes = @Index(name = "idx_wallet_hold_status_hold_id", columnList = "status, holdId"))
+public class WalletHold implements Persistable<String> {
+
+    @Id
+    private String holdId;
+
+    private Long customerId;
+
+    @Money
+    private long amount;
+
+    @Enumerated(EnumType.STRING)
+    private HoldStatus status;
+
+    private Instant createdAt;
+
+    private Instant expiresAt;
+
+    @Override
+    public String getId() {
+        return holdId;
+    }
+
+    // Rows are only inserted through save; status changes go through WalletHoldRepository.transition
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+}
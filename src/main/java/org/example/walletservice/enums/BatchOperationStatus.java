@@ -0,0 +1,21 @@
+package org.example.walletservice.enums;
+
+public enum BatchOperationStatus {
+
+    OK,
+
+    INSUFFICIENT_FUNDS,
+
+    UNKNOWN_CUSTOMER,
+
+    BALANCE_LIMIT_EXCEEDED,
+
+    // The request id was already used by another customer; nothing was applied
+    REQUEST_ID_CONFLICT,
+
+    // The customer's partition is owned by another instance; resubmit the operation there
+    WRONG_PARTITION,
+
+    // The transaction of the operation's chunk failed and was rolled back; nothing was applied, resubmit the operation
+    FAILED;
+}
@@ -0,0 +1,20 @@
+package org.example.walletservice.enums;
+
+public enum ExportFormat {
+
+    // One JSON object per line
+    NDJSON("application/x-ndjson"),
+
+    // Header line, then customerId,balance,sequence
+    CSV("text/csv");
+
+    private final String contentType;
+
+    ExportFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+}
@@ -0,0 +1,14 @@
+package org.example.walletservice.enums;
+
+public enum HoldStatus {
+
+    // Funds reserved, waiting for capture or void
+    AUTHORIZED,
+
+    CAPTURED,
+
+    VOIDED,
+
+    // Neither captured nor voided before its expiry
+    EXPIRED;
+}
@@ -0,0 +1,8 @@
+package org.example.walletservice.enums;
+
+public enum OperationType {
+
+    DEPOSIT,
+
+    WITHDRAW;
+}
@@ -0,0 +1,29 @@
+package org.example.walletservice.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+
+@ResponseStatus(HttpStatus.BAD_REQUEST) // Marks the response with a 400 Bad Request status
+public class BalanceLimitExceededException extends RuntimeException {
+
+    private final String detailMessage;
+
+    // Default constructor with a standard error message
+    public BalanceLimitExceededException() {
+        super("Balance limit exceeded");
+        this.detailMessage = "Balance limit exceeded";
+    }
+
+    // Constructor that allows a custom error message
+    public BalanceLimitExceededException(String detailMessage) {
+        super(detailMessage);
+        this.detailMessage = detailMessage;
+    }
+
+    // Constructor that allows a custom message and a cause (another throwable)
+    public BalanceLimitExceededException(String message, Throwable cause) {
+        super(message, cause);
+        this.detailMessage = message;
+    }
+}
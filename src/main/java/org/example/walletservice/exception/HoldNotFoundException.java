@@ -0,0 +1,29 @@
+package org.example.walletservice.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+
+@ResponseStatus(HttpStatus.NOT_FOUND) // Marks the response with a 404 Not Found status
+public class HoldNotFoundException extends RuntimeException {
+
+    private final String detailMessage;
+
+    // Default constructor with a standard error message
+    public HoldNotFoundException() {
+        super("Hold not found");
+        this.detailMessage = "Hold not found";
+    }
+
+    // Constructor that allows a custom error message
+    public HoldNotFoundException(String detailMessage) {
+        super(detailMessage);
+        this.detailMessage = detailMessage;
+    }
+
+    // Constructor that allows a custom message and a cause (another throwable)
+    public HoldNotFoundException(String message, Throwable cause) {
+        super(message, cause);
+        this.detailMessage = message;
+    }
+}
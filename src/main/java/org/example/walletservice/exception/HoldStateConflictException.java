@@ -0,0 +1,29 @@
+package org.example.walletservice.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+
+@ResponseStatus(HttpStatus.CONFLICT) // Marks the response with a 409 Conflict status
+public class HoldStateConflictException extends RuntimeException {
+
+    private final String detailMessage;
+
+    // Default constructor with a standard error message
+    public HoldStateConflictException() {
+        super("Hold is not authorized");
+        this.detailMessage = "Hold is not authorized";
+    }
+
+    // Constructor that allows a custom error message
+    public HoldStateConflictException(String detailMessage) {
+        super(detailMessage);
+        this.detailMessage = detailMessage;
+    }
+
+    // Constructor that allows a custom message and a cause (another throwable)
+    public HoldStateConflictException(String message, Throwable cause) {
+        super(message, cause);
+        this.detailMessage = message;
+    }
+}
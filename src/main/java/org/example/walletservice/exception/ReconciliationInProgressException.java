@@ -0,0 +1,23 @@
+package org.example.walletservice.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+
+@ResponseStatus(HttpStatus.CONFLICT) // Marks the response with a 409 Conflict status
+public class ReconciliationInProgressException extends RuntimeException {
+
+    private final String detailMessage;
+
+    // Default constructor with a standard error message
+    public ReconciliationInProgressException() {
+        super("A reconciliation is already in progress");
+        this.detailMessage = "A reconciliation is already in progress";
+    }
+
+    // Constructor that allows a custom error message
+    public ReconciliationInProgressException(String detailMessage) {
+        super(detailMessage);
+        this.detailMessage = detailMessage;
+    }
+}
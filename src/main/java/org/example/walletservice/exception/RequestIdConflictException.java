@@ -0,0 +1,29 @@
+package org.example.walletservice.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+
+@ResponseStatus(HttpStatus.CONFLICT) // Marks the response with a 409 Conflict status
+public class RequestIdConflictException extends RuntimeException {
+
+    private final String detailMessage;
+
+    // Default constructor with a standard error message
+    public RequestIdConflictException() {
+        super("Request id already used by another customer");
+        this.detailMessage = "Request id already used by another customer";
+    }
+
+    // Constructor that allows a custom error message
+    public RequestIdConflictException(String detailMessage) {
+        super(detailMessage);
+        this.detailMessage = detailMessage;
+    }
+
+    // Constructor that allows a custom message and a cause (another throwable)
+    public RequestIdConflictException(String message, Throwable cause) {
+        super(message, cause);
+        this.detailMessage = message;
+    }
+}
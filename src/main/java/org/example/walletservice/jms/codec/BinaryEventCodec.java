@@ -0,0 +1,187 @@
+package org.example.walletservice.jms.codec;
+
+import jakarta.jms.BytesMessage;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.Session;
+import org.example.walletservice.dto.CustomerUpdateEvent;
+import org.example.walletservice.dto.UpdateEvent;
+import org.example.walletservice.enums.ActionType;
+import org.springframework.jms.support.converter.MessageConversionException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Compact binary format, sent as a bytes message. A body is
+ * {@code [byte version][byte kind][byte presence bits][fields]}, with every {@code long} as a zig-zag
+ * varint and enums as their ordinal, so an {@link UpdateEvent} takes about 15 bytes instead of about 80
+ * as JSON. Encoding goes through a per-thread scratch buffer: no String and no intermediate array.
+ * <p>
+ * Enum constants must only ever be appended, as their ordinals are on the wire. Any other change to the
+ * layout needs a new {@link #VERSION}.
+ */
+@Component
+public class BinaryEventCodec implements EventCodec {
+
+    public static final String CONTENT_TYPE = "application/vnd.wallet.event+binary";
+
+    public static final int MAX_BYTES = 64;
+
+    private static final byte VERSION = 1;
+    private static final byte UPDATE_EVENT = 1;
+    private static final byte CUSTOMER_UPDATE_EVENT = 2;
+    private static final ActionType[] ACTION_TYPES = ActionType.values();
+
+    private final ThreadLocal<byte[]> scratch = ThreadLocal.withInitial(() -> new byte[MAX_BYTES]);
+
+    @Override
+    public String contentType() {
+        return CONTENT_TYPE;
+    }
+
+    @Override
+    public Message encode(Object event, Session session) throws JMSException {
+        byte[] buffer = scratch.get();
+        int length = write(event, buffer);
+        BytesMessage message = session.createBytesMessage();
+        message.writeBytes(buffer, 0, length);
+        return message;
+    }
+
+    @Override
+    public <T> T decode(Message message, Class<T> type) throws JMSException {
+        if (!(message instanceof BytesMessage bytesMessage)) {
+            throw new MessageConversionException("Binary events come as bytes messages, got " + message.getClass().getSimpleName());
+        }
+        long bodyLength = bytesMessage.getBodyLength();
+        if (bodyLength > MAX_BYTES) {
+            throw new MessageConversionException("Binary event of " + bodyLength + " bytes is too long");
+        }
+        byte[] buffer = scratch.get();
+        int length = bytesMessage.readBytes(buffer, (int) bodyLength);
+        return read(buffer, Math.max(length, 0), type);
+    }
+
+    /**
+     * Writes {@code event} to the start of {@code buffer}, which must hold {@link #MAX_BYTES}, and returns
+     * its length.
+     */
+    public int write(Object event, byte[] buffer) {
+        Writer writer = new Writer(buffer);
+        writer.put(VERSION);
+        if (event instanceof UpdateEvent updateEvent) {
+            writer.put(UPDATE_EVENT);
+            writer.put(presence(updateEvent.getCustomerId() != null, updateEvent.getActionType() != null));
+            if (updateEvent.getCustomerId() != null) {
+                writer.putLong(updateEvent.getCustomerId());
+            }
+            writer.putLong(updateEvent.getAmount());
+            if (updateEvent.getActionType() != null) {
+                writer.put((byte) updateEvent.getActionType().ordinal());
+            }
+            writer.putLong(updateEvent.getBalance());
+        } else if (event instanceof CustomerUpdateEvent customerUpdateEvent) {
+            writer.put(CUSTOMER_UPDATE_EVENT);
+            writer.put(presence(customerUpdateEvent.getCustomerId() != null, false));
+            if (customerUpdateEvent.getCustomerId() != null) {
+                writer.putLong(customerUpdateEvent.getCustomerId());
+            }
+        } else {
+            throw new MessageConversionException("No binary format for " + (event == null ? "null" : event.getClass().getName()));
+        }
+        return writer.position;
+    }
+
+    public <T> T read(byte[] buffer, int length, Class<T> type) {
+        Reader reader = new Reader(buffer, length);
+        byte version = reader.get();
+        if (version != VERSION) {
+            throw new MessageConversionException("Unsupported binary event version " + version);
+        }
+        byte kind = reader.get();
+        byte presence = reader.get();
+        Object event;
+        if (kind == UPDATE_EVENT && type == UpdateEvent.class) {
+            UpdateEvent updateEvent = new UpdateEvent();
+            if ((presence & 1) != 0) {
+                updateEvent.setCustomerId(reader.getLong());
+            }
+            updateEvent.setAmount(reader.getLong());
+            if ((presence & 2) != 0) {
+                int ordinal = reader.get();
+                if (ordinal < 0 || ordinal >= ACTION_TYPES.length) {
+                    throw new MessageConversionException("Unknown action type " + ordinal);
+                }
+                updateEvent.setActionType(ACTION_TYPES[ordinal]);
+            }
+            updateEvent.setBalance(reader.getLong());
+            event = updateEvent;
+        } else if (kind == CUSTOMER_UPDATE_EVENT && type == CustomerUpdateEvent.class) {
+            CustomerUpdateEvent customerUpdateEvent = new CustomerUpdateEvent();
+            if ((presence & 1) != 0) {
+                customerUpdateEvent.setCustomerId(reader.getLong());
+            }
+            event = customerUpdateEvent;
+        } else {
+            throw new MessageConversionException("Binary event of kind " + kind + " is not a " + type.getSimpleName());
+        }
+        return type.cast(event);
+    }
+
+    private static byte presence(boolean first, boolean second) {
+        return (byte) ((first ? 1 : 0) | (second ? 2 : 0));
+    }
+
+    private static final class Writer {
+
+        private final byte[] buffer;
+        private int position;
+
+        private Writer(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        private void put(byte value) {
+            buffer[position++] = value;
+        }
+
+        private void putLong(long value) {
+            long zigZag = (value << 1) ^ (value >> 63);
+            while ((zigZag & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((zigZag & 0x7F) | 0x80);
+                zigZag >>>= 7;
+            }
+            buffer[position++] = (byte) zigZag;
+        }
+    }
+
+    private static final class Reader {
+
+        private final byte[] buffer;
+        private final int length;
+        private int position;
+
+        private Reader(byte[] buffer, int length) {
+            this.buffer = buffer;
+            this.length = length;
+        }
+
+        private byte get() {
+            if (position >= length) {
+                throw new MessageConversionException("Binary event truncated at byte " + position);
+            }
+            return buffer[position++];
+        }
+
+        private long getLong() {
+            long zigZag = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte next = get();
+                zigZag |= (long) (next & 0x7F) << shift;
+                if ((next & 0x80) == 0) {
+                    return (zigZag >>> 1) ^ -(zigZag & 1);
+                }
+            }
+            throw new MessageConversionException("Malformed varint in binary event");
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package org.example.walletservice.jms.codec;
+
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.Session;
+
+/**
+ * Wire format of the events the service sends and receives. The format of a message is named by its
+ * {@value #CONTENT_TYPE_PROPERTY} property, see {@link EventCodecs}.
+ */
+public interface EventCodec {
+
+    String CONTENT_TYPE_PROPERTY = "contentType";
+
+    String contentType();
+
+    /**
+     * Creates a message holding {@code event}. Throws {@link org.springframework.jms.support.converter.MessageConversionException}
+     * when the event cannot be encoded.
+     */
+    Message encode(Object event, Session session) throws JMSException;
+
+    /**
+     * Reads the event in {@code message}. Throws {@link org.springframework.jms.support.converter.MessageConversionException}
+     * when the body is not a {@code type} in this format.
+     */
+    <T> T decode(Message message, Class<T> type) throws JMSException;
+}
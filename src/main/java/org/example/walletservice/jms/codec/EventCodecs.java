@@ -0,0 +1,56 @@
+package org.example.walletservice.jms.codec;
+
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jms.support.converter.MessageConversionException;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Picks the {@link EventCodec} for each message. Outgoing events use {@code wallet.events.codec} and are
+ * tagged with its content type. Incoming messages are decoded by the codec their content type names.
+ * Messages without one are JSON, as sent before codecs existed.
+ * <p>
+ * To migrate, deploy consumers first (they read both formats), then switch producers to {@code binary}.
+ */
+@Component
+public class EventCodecs {
+
+    private final Map<String, EventCodec> byContentType = new HashMap<>();
+    private final EventCodec outbound;
+    private final EventCodec legacy;
+
+    @Autowired
+    public EventCodecs(List<EventCodec> codecs, @Value("${wallet.events.codec:json}") String outboundCodec) {
+        for (EventCodec codec : codecs) {
+            byContentType.put(codec.contentType(), codec);
+        }
+        this.legacy = byContentType.get(JsonEventCodec.CONTENT_TYPE);
+        this.outbound = switch (outboundCodec) {
+            case "json" -> legacy;
+            case "binary" -> byContentType.get(BinaryEventCodec.CONTENT_TYPE);
+            default -> throw new IllegalArgumentException("Unknown wallet.events.codec " + outboundCodec + ", expected json or binary");
+        };
+    }
+
+    public Message encode(Object event, Session session) throws JMSException {
+        Message message = outbound.encode(event, session);
+        message.setStringProperty(EventCodec.CONTENT_TYPE_PROPERTY, outbound.contentType());
+        return message;
+    }
+
+    public <T> T decode(Message message, Class<T> type) throws JMSException {
+        String contentType = message.getStringProperty(EventCodec.CONTENT_TYPE_PROPERTY);
+        EventCodec codec = contentType == null ? legacy : byContentType.get(contentType);
+        if (codec == null) {
+            throw new MessageConversionException("No codec for content type " + contentType);
+        }
+        return codec.decode(message, type);
+    }
+}
@@ -0,0 +1,61 @@
+package org.example.walletservice.jms.codec;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.jms.BytesMessage;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.Session;
+import jakarta.jms.TextMessage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jms.support.converter.MessageConversionException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * The original format: the event as JSON in a text message. Also reads JSON sent as a bytes message.
+ */
+@Component
+public class JsonEventCodec implements EventCodec {
+
+    public static final String CONTENT_TYPE = "application/json";
+
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public JsonEventCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public String contentType() {
+        return CONTENT_TYPE;
+    }
+
+    @Override
+    public Message encode(Object event, Session session) throws JMSException {
+        try {
+            return session.createTextMessage(objectMapper.writeValueAsString(event));
+        } catch (JsonProcessingException e) {
+            throw new MessageConversionException("Could not write " + event + " as JSON", e);
+        }
+    }
+
+    @Override
+    public <T> T decode(Message message, Class<T> type) throws JMSException {
+        try {
+            if (message instanceof TextMessage textMessage) {
+                return objectMapper.readValue(textMessage.getText(), type);
+            }
+            if (message instanceof BytesMessage bytesMessage) {
+                byte[] body = new byte[(int) bytesMessage.getBodyLength()];
+                bytesMessage.readBytes(body);
+                return objectMapper.readValue(body, type);
+            }
+        } catch (IOException e) {
+            throw new MessageConversionException("Could not read " + type.getSimpleName() + " from JSON", e);
+        }
+        throw new MessageConversionException("Cannot read JSON from " + message.getClass().getSimpleName());
+    }
+}
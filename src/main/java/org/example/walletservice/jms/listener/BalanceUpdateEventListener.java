@@ -0,0 +1,39 @@
+package org.example.walletservice.jms.listener;
+
+import jakarta.jms.Message;
+import lombok.extern.slf4j.Slf4j;
+import org.example.walletservice.jms.publisher.CacheInvalidationPublisher;
+import org.example.walletservice.service.WalletCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jms.annotation.JmsListener;
+import org.springframework.stereotype.Service;
+
+/**
+ * Keeps this replica's {@link WalletCache} in step with balance changes made on other replicas, from the
+ * invalidations {@link CacheInvalidationPublisher} sends to a topic every replica subscribes to. This
+ * replica's own invalidations come back too and leave its entries alone, as they are never newer.
+ */
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "wallet.cache.invalidation.enabled", havingValue = "true")
+public class BalanceUpdateEventListener {
+
+    private final WalletCache walletCache;
+
+    @Autowired
+    public BalanceUpdateEventListener(WalletCache walletCache) {
+        this.walletCache = walletCache;
+    }
+
+    @JmsListener(destination = "${wallet.cache.invalidation.topic:wallet-cache-invalidation}",
+            containerFactory = "topicListenerContainerFactory")
+    public void onMessage(Message message) {
+        try {
+            walletCache.onRemoteUpdate(message.getLongProperty(CacheInvalidationPublisher.CUSTOMER_ID_PROPERTY),
+                    message.getLongProperty(CacheInvalidationPublisher.SEQUENCE_PROPERTY));
+        } catch (Exception e) {
+            log.error("Failed to apply cache invalidation to wallet cache: {}", message, e);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package org.example.walletservice.jms.listener;
+
+import jakarta.jms.Connection;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.Session;
+import lombok.extern.slf4j.Slf4j;
+import org.example.walletservice.dto.CustomerUpdateEvent;
+import org.example.walletservice.jms.codec.EventCodecs;
+import org.example.walletservice.metrics.WalletMetrics;
+import org.example.walletservice.partition.PartitionRouter;
+import org.example.walletservice.service.WalletService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.thread.Threading;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batch-consume mode for {@code customer-update-queue}, replacing {@link UserUpdateEventListener} when
+ * {@code wallet.listener.batch.enabled=true}. Each consumer gathers up to {@code size} messages or
+ * waits {@code max-wait-ms} after the first one, creates the missing wallets in one transaction and
+ * only then commits its transacted JMS session. A failed batch is rolled back and redelivered. Only
+ * messages of this instance's partitions are consumed, see {@link PartitionRouter#messageSelector()}.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "wallet.listener.batch.enabled", havingValue = "true")
+public class BatchCustomerUpdateConsumer implements SmartLifecycle {
+
+    private static final String QUEUE = "customer-update-queue";
+    private static final long RETRY_BACKOFF_MILLIS = 1000;
+
+    private final ConnectionFactory connectionFactory;
+    private final EventCodecs eventCodecs;
+    private final WalletService walletService;
+    private final WalletMetrics walletMetrics;
+    private final String messageSelector;
+    private final int batchSize;
+    private final long maxWaitMillis;
+    private final int consumers;
+    private final SimpleAsyncTaskExecutor consumerExecutor;
+
+    private volatile boolean running;
+    private Connection connection;
+    private CountDownLatch stopped;
+
+    @Autowired
+    public BatchCustomerUpdateConsumer(ConnectionFactory connectionFactory, EventCodecs eventCodecs, WalletService walletService,
+                                       WalletMetrics walletMetrics, PartitionRouter partitionRouter,
+                                       @Value("${wallet.listener.batch.size:500}") int batchSize,
+                                       @Value("${wallet.listener.batch.max-wait-ms:200}") long maxWaitMillis,
+                                       @Value("${wallet.listener.batch.consumers:1}") int consumers,
+                                       Environment environment) {
+        this.connectionFactory = connectionFactory;
+        this.eventCodecs = eventCodecs;
+        this.walletService = walletService;
+        this.walletMetrics = walletMetrics;
+        this.messageSelector = partitionRouter.messageSelector();
+        this.batchSize = batchSize;
+        this.maxWaitMillis = maxWaitMillis;
+        this.consumers = consumers;
+        this.consumerExecutor = new SimpleAsyncTaskExecutor("wallet-batch-consumer-");
+        // Consumers block on receive and JDBC, so they run on virtual threads when spring.threads.virtual.enabled is set
+        this.consumerExecutor.setVirtualThreads(Threading.VIRTUAL.isActive(environment));
+    }
+
+    @Override
+    public void start() {
+        try {
+            connection = connectionFactory.createConnection();
+            connection.start();
+        } catch (JMSException e) {
+            throw new IllegalStateException("Could not open JMS connection for " + QUEUE, e);
+        }
+        running = true;
+        stopped = new CountDownLatch(consumers);
+        for (int i = 0; i < consumers; i++) {
+            consumerExecutor.execute(this::consume);
+        }
+        log.info("Started {} batch consumers on {} (batch size {}, max wait {} ms)", consumers, QUEUE, batchSize, maxWaitMillis);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        try {
+            stopped.await(maxWaitMillis * 2 + RETRY_BACKOFF_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            connection.close();
+        } catch (JMSException e) {
+            log.warn("Failed to close JMS connection for {}", QUEUE, e);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void consume() {
+        try {
+            while (running) {
+                try (Session session = connection.createSession(true, Session.SESSION_TRANSACTED);
+                     MessageConsumer consumer = session.createConsumer(session.createQueue(QUEUE),
+                             messageSelector.isEmpty() ? null : messageSelector)) {
+                    while (running) {
+                        consumeBatch(session, consumer);
+                    }
+                } catch (Exception e) {
+                    log.error("Batch consumer on {} failed, reopening session", QUEUE, e);
+                    pause();
+                }
+            }
+        } finally {
+            stopped.countDown();
+        }
+    }
+
+    private void consumeBatch(Session session, MessageConsumer consumer) throws JMSException {
+        Message message = consumer.receive(maxWaitMillis);
+        if (message == null) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        Set<Long> customerIds = new LinkedHashSet<>();
+        int received = 0;
+        long deadline = System.currentTimeMillis() + maxWaitMillis;
+        while (message != null) {
+            received++;
+            addCustomerId(message, customerIds);
+            long remaining = deadline - System.currentTimeMillis();
+            if (received >= batchSize || remaining <= 0) {
+                break;
+            }
+            message = consumer.receive(remaining);
+        }
+
+        try {
+            int created = walletService.createWallets(customerIds, 0L);
+            session.commit();
+            walletMetrics.listenerBatch(received, start);
+            log.info("Committed batch of {} messages, {} wallets created", received, created);
+        } catch (Exception e) {
+            log.error("Failed to create wallets for batch of {} messages, rolling back for redelivery", received, e);
+            session.rollback();
+            pause();
+        }
+    }
+
+    private void addCustomerId(Message message, Set<Long> customerIds) throws JMSException {
+        try {
+            CustomerUpdateEvent customerUpdateEvent = eventCodecs.decode(message, CustomerUpdateEvent.class);
+            if (customerUpdateEvent.getCustomerId() == null) {
+                log.warn("Skipping message {} without customerId", message.getJMSMessageID());
+                return;
+            }
+            customerIds.add(customerUpdateEvent.getCustomerId());
+        } catch (Exception e) {
+            // A malformed message would fail every redelivery, so drop it instead of the whole batch
+            log.error("Skipping undecodable message {} on {}", message.getJMSMessageID(), QUEUE, e);
+        }
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(RETRY_BACKOFF_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
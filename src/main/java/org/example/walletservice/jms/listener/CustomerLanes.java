@@ -0,0 +1,199 @@
+package org.example.walletservice.jms.listener;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fixed set of ordered lanes for {@code customer-update-queue} work: each lane is one thread draining a
+ * bounded queue, and a customer always maps to the same lane. Work for one customer therefore runs in
+ * dispatch order while different customers run in parallel. A full lane blocks {@link #dispatch}, which
+ * holds back the JMS consumer instead of buffering without limit.
+ * <p>
+ * A caller can {@link #track} the tasks it dispatches for one unit of work, such as a JMS message, to
+ * learn when all of them have run; see {@link LaneAcknowledgingListenerContainer}.
+ * <p>
+ * Disabled with {@code wallet.listener.lanes.count=0}. On shutdown the JMS containers stop first and
+ * the lanes then drain what they hold, for at most {@code wallet.listener.lanes.stop-timeout}.
+ */
+@Component
+@Slf4j
+public class CustomerLanes implements SmartLifecycle {
+
+    private static final Runnable STOP = () -> {
+    };
+
+    private final int laneCount;
+    private final long stopTimeoutMillis;
+    private final BlockingQueue<Runnable>[] queues;
+    // What the dispatching thread is working on, see track
+    private final ThreadLocal<Tracker> tracking = new ThreadLocal<>();
+    private Thread[] workers;
+    private volatile boolean running;
+
+    @Autowired
+    @SuppressWarnings("unchecked")
+    public CustomerLanes(@Value("${wallet.listener.lanes.count:0}") int laneCount,
+                         @Value("${wallet.listener.lanes.capacity:256}") int capacity,
+                         @Value("${wallet.listener.lanes.stop-timeout:30s}") Duration stopTimeout) {
+        this.laneCount = laneCount;
+        this.stopTimeoutMillis = stopTimeout.toMillis();
+        this.queues = new BlockingQueue[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            queues[i] = new ArrayBlockingQueue<>(capacity);
+        }
+    }
+
+    public boolean isEnabled() {
+        return laneCount > 0;
+    }
+
+    /**
+     * Lane of a customer. The id is mixed with a different constant than the partition hash, so that
+     * an instance owning only some partitions still spreads its customers over every lane.
+     */
+    public int laneOf(long customerId) {
+        return Math.floorMod(Long.hashCode(customerId * 0xC2B2AE3D27D4EB4FL), laneCount);
+    }
+
+    /**
+     * Queues {@code task} on the customer's lane, waiting while that lane is full.
+     */
+    public void dispatch(long customerId, Runnable task) throws InterruptedException {
+        if (!running) {
+            throw new IllegalStateException("Customer lanes are not running");
+        }
+        Tracker tracker = tracking.get();
+        if (tracker == null) {
+            queues[laneOf(customerId)].put(task);
+            return;
+        }
+        // Counted before queuing, so a task interrupted on the way in leaves the tracker open
+        tracker.outstanding.incrementAndGet();
+        queues[laneOf(customerId)].put(() -> {
+            try {
+                task.run();
+            } finally {
+                tracker.finish();
+            }
+        });
+    }
+
+    /**
+     * Counts the tasks this thread dispatches from now until {@link #untrack} against {@code tracker}.
+     */
+    public void track(Tracker tracker) {
+        tracking.set(tracker);
+    }
+
+    /**
+     * Ends {@link #track}; the tracker is done once the tasks dispatched meanwhile have run, at once if none were.
+     */
+    public void untrack() {
+        Tracker tracker = tracking.get();
+        tracking.remove();
+        if (tracker != null) {
+            tracker.finish();
+        }
+    }
+
+    @Override
+    public synchronized void start() {
+        workers = new Thread[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            BlockingQueue<Runnable> queue = queues[i];
+            workers[i] = new Thread(() -> drain(queue), "wallet-lane-" + i);
+            workers[i].start();
+        }
+        running = true;
+        if (laneCount > 0) {
+            log.info("Started {} customer lanes", laneCount);
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        long deadline = System.currentTimeMillis() + stopTimeoutMillis;
+        try {
+            for (int i = 0; i < laneCount; i++) {
+                // A lane still full at the deadline is abandoned rather than waited for
+                if (!queues[i].offer(STOP, Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS)) {
+                    workers[i].interrupt();
+                }
+            }
+            for (Thread worker : workers) {
+                worker.join(Math.max(1, deadline - System.currentTimeMillis()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        int pending = 0;
+        for (BlockingQueue<Runnable> queue : queues) {
+            pending += queue.size();
+        }
+        if (pending > 0) {
+            log.warn("Stopped customer lanes with {} tasks still queued", pending);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // Below the listener containers (DEFAULT_PHASE), which stop first, and above the wallet engine
+        return SmartLifecycle.DEFAULT_PHASE - 1024;
+    }
+
+    private void drain(BlockingQueue<Runnable> queue) {
+        while (true) {
+            Runnable task;
+            try {
+                task = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (task == STOP) {
+                return;
+            }
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                log.error("Customer lane task failed", e);
+            }
+        }
+    }
+
+    /**
+     * Tasks dispatched for one unit of work. It is done once tracking has ended and every one of them has
+     * run; a task abandoned on shutdown leaves it open for good.
+     */
+    public static final class Tracker {
+
+        // The tracking period itself counts as one, so the tracker cannot be done before untrack
+        private final AtomicInteger outstanding = new AtomicInteger(1);
+        private volatile boolean done;
+
+        public boolean isDone() {
+            return done;
+        }
+
+        private void finish() {
+            if (outstanding.decrementAndGet() == 0) {
+                done = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package org.example.walletservice.jms.listener;
+
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.Session;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jms.listener.DefaultMessageListenerContainer;
+import org.springframework.lang.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Listener container for work handed to {@link CustomerLanes}. A listener returning only means its
+ * message is on a lane, so the container does not acknowledge it then: each message is tracked until
+ * the lane tasks it dispatched have run, and the consumer acknowledges up to the latest message whose
+ * predecessors have all run, after each delivery and whenever a receive times out. It never waits for
+ * the lanes, so they stay busy while messages keep arriving. A crash redelivers what the lanes had not
+ * finished rather than losing it.
+ * <p>
+ * How far that goes depends on the session. With the provider's individual-acknowledge mode
+ * ({@code wallet.listener.lanes.individual-acknowledge-mode}, e.g. 101 for Artemis), every message up to
+ * that point is acknowledged as it completes. With plain {@code CLIENT_ACKNOWLEDGE}, acknowledging one
+ * message acknowledges everything the session has delivered, so that only happens once every delivered
+ * message has run; under steady load that is when the broker's window of unacknowledged messages fills.
+ * <p>
+ * With the lanes disabled the listener does the work itself, and each message is acknowledged as it returns.
+ */
+@Slf4j
+public class LaneAcknowledgingListenerContainer extends DefaultMessageListenerContainer {
+
+    private final CustomerLanes customerLanes;
+    private final int individualAcknowledgeMode;
+    // Per consumer thread, each of which keeps its own session
+    private final ThreadLocal<Unacknowledged> unacknowledged = ThreadLocal.withInitial(Unacknowledged::new);
+
+    /**
+     * @param individualAcknowledgeMode the provider's session mode acknowledging single messages, or 0 when
+     *                                  sessions use {@code CLIENT_ACKNOWLEDGE}
+     */
+    public LaneAcknowledgingListenerContainer(CustomerLanes customerLanes, int individualAcknowledgeMode) {
+        this.customerLanes = customerLanes;
+        this.individualAcknowledgeMode = individualAcknowledgeMode;
+    }
+
+    @Override
+    protected void invokeListener(Session session, Message message) throws JMSException {
+        if (!tracks(session)) {
+            super.invokeListener(session, message);
+            return;
+        }
+        CustomerLanes.Tracker tracker = new CustomerLanes.Tracker();
+        unacknowledged.get().deliveries.addLast(new Delivery(message, tracker));
+        customerLanes.track(tracker);
+        try {
+            super.invokeListener(session, message);
+        } finally {
+            customerLanes.untrack();
+        }
+    }
+
+    @Override
+    protected void commitIfNecessary(Session session, @Nullable Message message) throws JMSException {
+        if (message == null || !tracks(session)) {
+            super.commitIfNecessary(session, message);
+            return;
+        }
+        acknowledgeCompleted(session);
+    }
+
+    @Override
+    protected void noMessageReceived(Object invoker, Session session) {
+        super.noMessageReceived(invoker, session);
+        try {
+            if (tracks(session)) {
+                acknowledgeCompleted(session);
+            }
+        } catch (JMSException e) {
+            log.warn("Failed to acknowledge messages processed on customer lanes, they will be redelivered", e);
+        }
+    }
+
+    private boolean tracks(Session session) throws JMSException {
+        return customerLanes.isEnabled()
+                && (isClientAcknowledge(session)
+                || individualAcknowledgeMode > 0 && session.getAcknowledgeMode() == individualAcknowledgeMode);
+    }
+
+    private void acknowledgeCompleted(Session session) throws JMSException {
+        Unacknowledged pending = unacknowledged.get();
+        boolean individual = !isClientAcknowledge(session);
+        try {
+            while (!pending.deliveries.isEmpty() && pending.deliveries.peekFirst().tracker().isDone()) {
+                Message completed = pending.deliveries.pollFirst().message();
+                if (individual) {
+                    completed.acknowledge();
+                } else {
+                    pending.completed = completed;
+                }
+            }
+            if (pending.completed != null && pending.deliveries.isEmpty()) {
+                pending.completed.acknowledge();
+                pending.completed = null;
+            }
+        } catch (JMSException e) {
+            // The session is broken and will be recreated; its unacknowledged messages are redelivered
+            pending.deliveries.clear();
+            pending.completed = null;
+            throw e;
+        }
+    }
+
+    private record Delivery(Message message, CustomerLanes.Tracker tracker) {
+    }
+
+    private static final class Unacknowledged {
+        // In delivery order
+        private final Deque<Delivery> deliveries = new ArrayDeque<>();
+        // CLIENT_ACKNOWLEDGE only: the latest message whose predecessors have all run, held back while later ones have not
+        private Message completed;
+    }
+}
@@ -1,55 +1,106 @@
 package org.example.walletservice.jms.listener;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
 import lombok.extern.slf4j.Slf4j;
 import org.example.walletservice.WalletRepository;
 import org.example.walletservice.dto.CustomerUpdateEvent;
 import org.example.walletservice.dto.UpdateEvent;
 import org.example.walletservice.enums.ActionType;
+import org.example.walletservice.jms.codec.EventCodecs;
 import org.example.walletservice.jms.publisher.EventPublisher;
+import org.example.walletservice.metrics.WalletMetrics;
 import org.example.walletservice.service.WalletService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.jms.annotation.JmsListener;
 import org.springframework.retry.annotation.Backoff;
 import org.springframework.retry.annotation.Retryable;
 import org.springframework.retry.annotation.Recover;
 import org.springframework.stereotype.Service;
 
-import java.math.BigDecimal;
 import java.util.HashSet;
 import java.util.Set;
 
+/**
+ * Creates wallets from {@code customer-update-queue}. With {@link CustomerLanes} enabled, messages are
+ * decoded on the container thread and then processed on their customer's lane, so registrations run in
+ * parallel while each customer's events stay in queue order. Keep the container at one consumer then
+ * ({@code spring.jms.listener.concurrency=1}), as several consumers would reorder the queue again.
+ * Messages are acknowledged only after their lane has processed them, see
+ * {@link LaneAcknowledgingListenerContainer}, so a crash redelivers what the lanes held.
+ */
 @Service
 @Slf4j
+@ConditionalOnProperty(name = "wallet.listener.batch.enabled", havingValue = "false", matchIfMissing = true)
 public class UserUpdateEventListener {
 
 
     private WalletService walletService;
 
 
-    private ObjectMapper objectMapper;
+    private EventCodecs eventCodecs;
 
 
     private final EventPublisher eventPublisher;
 
 
+    private final WalletMetrics walletMetrics;
+
+
+    private final CustomerLanes customerLanes;
+
+
     @Autowired
-    public UserUpdateEventListener( EventPublisher eventPublisher,ObjectMapper objectMapper, WalletService walletService) {
+    public UserUpdateEventListener( EventPublisher eventPublisher,EventCodecs eventCodecs, WalletService walletService,
+                                    WalletMetrics walletMetrics, CustomerLanes customerLanes) {
         this.eventPublisher = eventPublisher;
         this.walletService = walletService;
-        this.objectMapper = objectMapper;
+        this.eventCodecs = eventCodecs;
+        this.walletMetrics = walletMetrics;
+        this.customerLanes = customerLanes;
     }
 
-    @JmsListener(destination = "customer-update-queue")
-    public void onMessage(String message) throws JsonProcessingException {
-        log.info("Received message: {}", message);
+    // Only this instance's partitions, see PartitionRouter
+    @JmsListener(destination = "customer-update-queue", selector = "#{@partitionRouter.messageSelector()}",
+            containerFactory = "laneListenerContainerFactory")
+    public void onMessage(Message message) throws JMSException {
+        long start = System.nanoTime();
+
+        CustomerUpdateEvent customerUpdateEvent;
+        try {
+            // JSON or binary, depending on the message's content type
+            customerUpdateEvent = eventCodecs.decode(message, CustomerUpdateEvent.class);
+        } catch (RuntimeException | JMSException e) {
+            // A malformed message would fail every redelivery, so it is acknowledged and dropped
+            walletMetrics.listenerMessage(false, start);
+            log.error("Skipping undecodable message {} on customer-update-queue", message.getJMSMessageID(), e);
+            return;
+        }
+        log.info("Received message: {}", customerUpdateEvent);
+        if (!customerLanes.isEnabled()) {
+            process(customerUpdateEvent, start);
+            return;
+        }
+        Long customerId = customerUpdateEvent.getCustomerId();
+        try {
+            // Blocks while the lane is full, which holds back the consumer
+            customerLanes.dispatch(customerId == null ? 0L : customerId, () -> process(customerUpdateEvent, start));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            walletMetrics.listenerMessage(false, start);
+            throw new IllegalStateException("Interrupted while waiting for a customer lane", e);
+        }
+    }
 
-        CustomerUpdateEvent customerUpdateEvent = objectMapper.readValue(message, CustomerUpdateEvent.class);
+    private void process(CustomerUpdateEvent customerUpdateEvent, long start) {
         try {
             createWalletWithRetry(customerUpdateEvent);
+            walletMetrics.listenerMessage(true, start);
         } catch (Exception e) {
-            log.error("Failed to process message after retries: {}", message, e);
+            walletMetrics.listenerMessage(false, start);
+            log.error("Failed to process message after retries: {}", customerUpdateEvent, e);
             // Optionally send to a dead-letter queue or other recovery mechanism
 
         }
@@ -62,7 +113,7 @@ public class UserUpdateEventListener {
     )
     private void createWalletWithRetry(CustomerUpdateEvent customerUpdateEvent) {
         try {
-            walletService.createWallet(customerUpdateEvent.getCustomerId(), BigDecimal.ZERO);
+            walletService.createWallet(customerUpdateEvent.getCustomerId(), 0L);
         } catch (Exception e) {
             log.error("Error creating wallet for customerId: {}", customerUpdateEvent.getCustomerId(), e);
             throw e; // Rethrow to trigger retry mechanism
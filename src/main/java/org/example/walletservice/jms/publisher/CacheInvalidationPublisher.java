@@ -0,0 +1,82 @@
+package org.example.walletservice.jms.publisher;
+
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.DeliveryMode;
+import jakarta.jms.Message;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tells the other replicas that a cached wallet changed, on a topic every replica subscribes to (see
+ * {@code BalanceUpdateEventListener}). The balance events themselves go to a queue with one consumer
+ * per message, so they cannot serve for this.
+ * <p>
+ * Invalidations carry no body, only the {@value #CUSTOMER_ID_PROPERTY} and {@value #SEQUENCE_PROPERTY}
+ * properties, and are sent non-persistent from a background thread so a write never waits on the broker.
+ * One that is lost or dropped because the queue of pending sends is full leaves a replica stale until its
+ * entry expires after {@code wallet.cache.invalidation.max-staleness}.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "wallet.cache.invalidation.enabled", havingValue = "true")
+public class CacheInvalidationPublisher implements DisposableBean {
+
+    public static final String CUSTOMER_ID_PROPERTY = "customerId";
+    public static final String SEQUENCE_PROPERTY = "sequence";
+
+    private static final int MAX_PENDING = 10_000;
+
+    private final JmsTemplate jmsTemplate;
+    private final String topic;
+    private final ThreadPoolExecutor senderThread;
+
+    @Autowired
+    public CacheInvalidationPublisher(ConnectionFactory connectionFactory,
+                                      @Value("${wallet.cache.invalidation.topic:wallet-cache-invalidation}") String topic) {
+        this.jmsTemplate = new JmsTemplate(connectionFactory);
+        this.jmsTemplate.setPubSubDomain(true);
+        this.jmsTemplate.setExplicitQosEnabled(true);
+        this.jmsTemplate.setDeliveryMode(DeliveryMode.NON_PERSISTENT);
+        this.topic = topic;
+        this.senderThread = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(MAX_PENDING),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "wallet-cache-invalidation");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (runnable, executor) -> log.warn("Cache invalidation dropped, {} already pending", MAX_PENDING));
+    }
+
+    /**
+     * Has other replicas drop their copy of the wallet unless it is already at {@code sequence} or later.
+     */
+    public void publish(long customerId, long sequence) {
+        senderThread.execute(() -> {
+            try {
+                jmsTemplate.send(topic, session -> {
+                    Message message = session.createMessage();
+                    message.setLongProperty(CUSTOMER_ID_PROPERTY, customerId);
+                    message.setLongProperty(SEQUENCE_PROPERTY, sequence);
+                    return message;
+                });
+            } catch (Exception e) {
+                log.warn("Failed to publish cache invalidation for customer {} at sequence {}", customerId, sequence, e);
+            }
+        });
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        senderThread.shutdown();
+        senderThread.awaitTermination(5, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,96 @@
+package org.example.walletservice.jms.publisher;
+
+import org.example.walletservice.dto.UpdateEvent;
+import org.example.walletservice.entity.OutboxEvent;
+import org.example.walletservice.enums.ActionType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Merges the outbox events of a destination listed in {@code wallet.events.conflation.destinations}: the
+ * relay holds them back until the oldest has waited {@code wallet.events.conflation.window}, then sends one
+ * event per customer with the net amount and the final balance. Consumers that only need the latest
+ * balance then see one message per customer and window instead of one per transaction.
+ * <p>
+ * With a non-empty {@code wallet.events.conflation.detail-suffix}, every original event still goes out
+ * unchanged on the destination name plus that suffix, e.g. {@code balance-update-event.detail}.
+ */
+@Component
+public class EventConflator {
+
+    private final Set<String> destinations;
+    private final Duration window;
+    private final String detailSuffix;
+
+    @Autowired
+    public EventConflator(@Value("${wallet.events.conflation.destinations:}") List<String> destinations,
+                          @Value("${wallet.events.conflation.window:250ms}") Duration window,
+                          @Value("${wallet.events.conflation.detail-suffix:.detail}") String detailSuffix) {
+        this.destinations = destinations.stream().map(String::trim).filter(name -> !name.isEmpty()).collect(Collectors.toUnmodifiableSet());
+        this.window = window;
+        this.detailSuffix = detailSuffix.trim();
+    }
+
+    public boolean conflates(String destination) {
+        return destinations.contains(destination);
+    }
+
+    public Set<String> destinations() {
+        return destinations;
+    }
+
+    /**
+     * A customer's held events are ready to go once one of them was created at or before this instant,
+     * i.e. has waited a whole window.
+     */
+    public Instant dueBefore(Instant now) {
+        return now.minus(window);
+    }
+
+    /**
+     * Where the per-transaction events of a conflated destination go, or {@code null} when they are dropped.
+     */
+    public String detailDestination(String destination) {
+        return detailSuffix.isEmpty() ? null : destination + detailSuffix;
+    }
+
+    /**
+     * One event per destination and customer, in order of each group's first outbox row. A customer's rows
+     * must be in id order, which is the order its balance changed.
+     */
+    public List<Conflated> conflate(List<OutboxEvent> events) {
+        Map<String, List<OutboxEvent>> groups = new LinkedHashMap<>();
+        for (OutboxEvent event : events) {
+            groups.computeIfAbsent(event.getDestination() + '\0' + event.getCustomerId(), key -> new ArrayList<>()).add(event);
+        }
+        List<Conflated> conflated = new ArrayList<>(groups.size());
+        for (List<OutboxEvent> group : groups.values()) {
+            // Deposits go out as DEBIT and withdrawals as CREDIT, see WalletService
+            long net = 0;
+            for (OutboxEvent event : group) {
+                net += event.getActionType() == ActionType.DEBIT ? event.getAmount() : -event.getAmount();
+            }
+            OutboxEvent last = group.get(group.size() - 1);
+            UpdateEvent merged = new UpdateEvent(last.getCustomerId(), Math.abs(net),
+                    net >= 0 ? ActionType.DEBIT : ActionType.CREDIT, last.getBalance());
+            conflated.add(new Conflated(last.getDestination(), merged, group));
+        }
+        return conflated;
+    }
+
+    /**
+     * A merged event and the outbox rows it stands for.
+     */
+    public record Conflated(String destination, UpdateEvent event, List<OutboxEvent> rows) {
+    }
+}
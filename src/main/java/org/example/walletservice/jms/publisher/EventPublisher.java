@@ -3,8 +3,19 @@ package org.example.walletservice.jms.publisher;
 
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.CompletableFuture;
+
 
 public interface EventPublisher<T> {
 
     public void publish (T event,String topic);
+
+    /**
+     * Publishes without blocking the caller. The future completes once the event is with the broker,
+     * either on the topic or, after retries are exhausted, on the dead-letter queue; it only completes
+     * exceptionally when neither accepted it.
+     */
+    default CompletableFuture<Void> publishAsync(T event, String topic) {
+        return CompletableFuture.runAsync(() -> publish(event, topic));
+    }
 }
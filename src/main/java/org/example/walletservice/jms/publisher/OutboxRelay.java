@@ -0,0 +1,231 @@
+package org.example.walletservice.jms.publisher;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.walletservice.OutboxEventRepository;
+import org.example.walletservice.dto.UpdateEvent;
+import org.example.walletservice.entity.OutboxEvent;
+import org.example.walletservice.jms.publisher.EventConflator.Conflated;
+import org.example.walletservice.partition.PartitionRouter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drains the outbox in id order and publishes each row through {@link EventPublisher#publishAsync}, so a
+ * whole batch is pipelined to the broker (bounded by the publisher's in-flight window). A batch is
+ * claimed for {@code wallet.outbox.claim-lease} in one short transaction, published with no transaction
+ * or connection held, and marked sent in a second one; a claim left by a relay that died expires and its
+ * rows are picked up again. Rows whose publish failed even to the dead-letter queue, or was not confirmed
+ * within {@code wallet.outbox.send-timeout}, stay unsent and are released to the next run, together with
+ * every later row of the same customer and destination. Those
+ * may have reached the broker ahead of the failed one; they go out again after it, so the last event a
+ * consumer sees for a customer is always the latest.
+ * <p>
+ * Each instance relays only the rows of the {@link PartitionRouter} partitions it owns, the first one
+ * also those written before rows carried a partition. A customer's events are therefore published by
+ * one relay, in the order of its balance changes. That holds as long as each customer's writes go to
+ * one instance: a single instance, or instances listed in {@code wallet.partition.instances}. Replicas
+ * behind a plain load balancer all own every partition, and their relays interleave.
+ * <p>
+ * Rows for destinations the {@link EventConflator} conflates are selected apart from the others: once
+ * a customer's oldest unsent row has waited the window, up to {@code wallet.events.conflation.max-rows}
+ * of its pending rows go out merged into one event, however long the burst that wrote them. Customers
+ * not due yet leave their rows alone and hold back nothing else.
+ */
+@Component
+@Slf4j
+public class OutboxRelay {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final EventPublisher<UpdateEvent> eventPublisher;
+    private final EventConflator eventConflator;
+    private final PartitionRouter partitionRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int conflationMaxRows;
+    private final Duration sendTimeout;
+    private final Duration claimLease;
+    private final Duration retention;
+
+    @Autowired
+    public OutboxRelay(OutboxEventRepository outboxEventRepository,
+                       EventPublisher<UpdateEvent> eventPublisher,
+                       EventConflator eventConflator,
+                       PartitionRouter partitionRouter,
+                       PlatformTransactionManager transactionManager,
+                       @Value("${wallet.outbox.batch-size:100}") int batchSize,
+                       @Value("${wallet.events.conflation.max-rows:10000}") int conflationMaxRows,
+                       @Value("${wallet.outbox.send-timeout:10s}") Duration sendTimeout,
+                       @Value("${wallet.outbox.claim-lease:60s}") Duration claimLease,
+                       @Value("${wallet.outbox.retention:24h}") Duration retention) {
+        if (claimLease.compareTo(sendTimeout) <= 0) {
+            throw new IllegalArgumentException("wallet.outbox.claim-lease must be longer than wallet.outbox.send-timeout");
+        }
+        this.outboxEventRepository = outboxEventRepository;
+        this.eventPublisher = eventPublisher;
+        this.eventConflator = eventConflator;
+        this.partitionRouter = partitionRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.conflationMaxRows = conflationMaxRows;
+        this.sendTimeout = sendTimeout;
+        this.claimLease = claimLease;
+        this.retention = retention;
+    }
+
+    @Scheduled(fixedDelayString = "${wallet.outbox.poll-interval-ms:200}")
+    public void relay() {
+        boolean drained;
+        do {
+            drained = relayBatch();
+        } while (!drained);
+    }
+
+    /**
+     * Publishes one batch. Returns {@code false} when a page came back full and more rows may be waiting.
+     */
+    private boolean relayBatch() {
+        Claimed claimed = transactionTemplate.execute(status -> claimBatch());
+        List<OutboxEvent> direct = claimed.direct();
+        List<OutboxEvent> conflatable = claimed.conflatable();
+        int rowCount = direct.size() + conflatable.size();
+        if (rowCount == 0) {
+            return true;
+        }
+
+        // Each send stands for the rows at the same index, which are only marked sent if it succeeds
+        List<CompletableFuture<Void>> sends = new ArrayList<>(rowCount);
+        List<List<OutboxEvent>> sendRows = new ArrayList<>(rowCount);
+        for (OutboxEvent outboxEvent : direct) {
+            sends.add(eventPublisher.publishAsync(toEvent(outboxEvent), outboxEvent.getDestination()));
+            sendRows.add(List.of(outboxEvent));
+        }
+        for (Conflated conflated : eventConflator.conflate(conflatable)) {
+            sends.add(publishConflated(conflated));
+            sendRows.add(conflated.rows());
+        }
+
+        // Bounded, as the claim must outlast the wait and a send may be retried for the publisher's whole budget
+        try {
+            CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new))
+                    .orTimeout(sendTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                    .join();
+        } catch (CompletionException e) {
+            // Failed and unconfirmed sends are told apart below
+        }
+
+        List<Long> sentIds = new ArrayList<>(rowCount);
+        List<Long> unsentIds = new ArrayList<>();
+        // Destination and customer of every failed send; their later rows in this batch are not marked sent
+        Set<String> failedStreams = new HashSet<>();
+        for (int i = 0; i < sends.size(); i++) {
+            CompletableFuture<Void> send = sends.get(i);
+            List<OutboxEvent> rows = sendRows.get(i);
+            String stream = rows.get(0).getDestination() + '\0' + rows.get(0).getCustomerId();
+            if (failedStreams.contains(stream)) {
+                rows.forEach(row -> unsentIds.add(row.getId()));
+                continue;
+            }
+            if (send.isDone() && !send.isCompletedExceptionally()) {
+                rows.forEach(row -> sentIds.add(row.getId()));
+            } else {
+                failedStreams.add(stream);
+                rows.forEach(row -> unsentIds.add(row.getId()));
+                Throwable failure = send.isDone() ? send.handle((ignored, error) -> error).join() : null;
+                log.error("Failed to relay outbox event ids :{} ({}), will retry them and the customer's later events on next run",
+                        rows.stream().map(OutboxEvent::getId).toList(),
+                        failure == null ? "not confirmed within " + sendTimeout : "publish failed", failure);
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!sentIds.isEmpty()) {
+                outboxEventRepository.markSent(sentIds, Instant.now());
+            }
+            if (!unsentIds.isEmpty()) {
+                outboxEventRepository.releaseClaim(unsentIds);
+            }
+        });
+        log.debug("Relayed {} of {} outbox events in {} messages", sentIds.size(), rowCount, sends.size());
+        // A failed row comes back in the next batch, so wait for the next run rather than spin on it
+        boolean full = direct.size() == batchSize || claimed.dueCustomers() == batchSize || conflatable.size() == conflationMaxRows;
+        return !full || sentIds.size() < rowCount;
+    }
+
+    /**
+     * Locks the next batch and claims it, so that it stays out of other relays' way once the locks go with
+     * the transaction.
+     */
+    private Claimed claimBatch() {
+        List<Integer> partitions = partitionRouter.ownedPartitions();
+        boolean unassigned = partitionRouter.ownsUnassigned();
+        Set<String> conflatedDestinations = eventConflator.destinations();
+        PageRequest page = PageRequest.of(0, batchSize);
+        Instant now = Instant.now();
+
+        // Conflated destinations are paged separately, so rows held for their window never stand in the way
+        List<OutboxEvent> direct = conflatedDestinations.isEmpty()
+                ? outboxEventRepository.lockUnsent(partitions, unassigned, now, page)
+                : outboxEventRepository.lockUnsentExcept(conflatedDestinations, partitions, unassigned, now, page);
+        List<Long> dueCustomers = conflatedDestinations.isEmpty()
+                ? List.of()
+                : outboxEventRepository.findCustomersUnsentSince(conflatedDestinations,
+                        eventConflator.dueBefore(now), partitions, unassigned, now, page);
+        // Everything the due customers have pending, however many pages of direct rows that would have been
+        List<OutboxEvent> conflatable = dueCustomers.isEmpty()
+                ? List.of()
+                : outboxEventRepository.lockUnsentOf(conflatedDestinations, dueCustomers, now,
+                        PageRequest.of(0, conflationMaxRows));
+
+        List<Long> ids = new ArrayList<>(direct.size() + conflatable.size());
+        direct.forEach(row -> ids.add(row.getId()));
+        conflatable.forEach(row -> ids.add(row.getId()));
+        if (!ids.isEmpty()) {
+            outboxEventRepository.claim(ids, now.plus(claimLease));
+        }
+        return new Claimed(direct, dueCustomers.size(), conflatable);
+    }
+
+    private CompletableFuture<Void> publishConflated(Conflated conflated) {
+        String detailDestination = eventConflator.detailDestination(conflated.destination());
+        if (detailDestination == null) {
+            return eventPublisher.publishAsync(conflated.event(), conflated.destination());
+        }
+        List<CompletableFuture<Void>> sends = new ArrayList<>(conflated.rows().size() + 1);
+        for (OutboxEvent row : conflated.rows()) {
+            sends.add(eventPublisher.publishAsync(toEvent(row), detailDestination));
+        }
+        sends.add(eventPublisher.publishAsync(conflated.event(), conflated.destination()));
+        return CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new));
+    }
+
+    private static UpdateEvent toEvent(OutboxEvent outboxEvent) {
+        return new UpdateEvent(outboxEvent.getCustomerId(), outboxEvent.getAmount(),
+                outboxEvent.getActionType(), outboxEvent.getBalance());
+    }
+
+    @Scheduled(fixedDelayString = "${wallet.outbox.purge-interval-ms:3600000}")
+    public void purgeSent() {
+        Integer purged = transactionTemplate.execute(status ->
+                outboxEventRepository.deleteSentBefore(Instant.now().minus(retention)));
+        log.info("Purged {} sent outbox events older than {}", purged, retention);
+    }
+
+    // Rows of one batch, and how many due customers they came from
+    private record Claimed(List<OutboxEvent> direct, int dueCustomers, List<OutboxEvent> conflatable) {
+    }
+}
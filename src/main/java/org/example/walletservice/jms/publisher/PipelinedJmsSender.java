@@ -0,0 +1,208 @@
+package org.example.walletservice.jms.publisher;
+
+import jakarta.jms.CompletionListener;
+import jakarta.jms.Connection;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.Destination;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+import lombok.extern.slf4j.Slf4j;
+import org.example.walletservice.jms.codec.EventCodecs;
+import org.example.walletservice.metrics.WalletMetrics;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jms.support.converter.MessageConversionException;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends events, encoded by {@link EventCodecs}, over one long-lived session and producer using JMS asynchronous sends, so up to
+ * {@code wallet.publisher.max-in-flight} messages can await broker acknowledgement at once instead of
+ * one round trip per message.
+ * <p>
+ * The session is only touched from a single sender thread, as JMS requires. Failed sends are retried
+ * on that thread after a backoff, and once attempts run out the message goes to the dead-letter queue,
+ * mirroring {@code UpdateEventPublisher}'s {@code @Retryable}/{@code @Recover} without blocking callers.
+ */
+@Component
+@Slf4j
+public class PipelinedJmsSender implements DisposableBean {
+
+    private static final String DEAD_LETTER_QUEUE = "dead-letter-queue";
+
+    private final ConnectionFactory connectionFactory;
+    private final EventCodecs eventCodecs;
+    private final WalletMetrics walletMetrics;
+    private final Semaphore window;
+    private final int maxAttempts;
+    private final long retryBackoffMillis;
+    private final ScheduledExecutorService senderThread;
+
+    // Owned by the sender thread
+    private final Map<String, Destination> destinations = new HashMap<>();
+    private Connection connection;
+    private Session session;
+    private MessageProducer producer;
+
+    @Autowired
+    public PipelinedJmsSender(ConnectionFactory connectionFactory, EventCodecs eventCodecs, WalletMetrics walletMetrics,
+                              @Value("${wallet.publisher.max-in-flight:256}") int maxInFlight,
+                              @Value("${wallet.publisher.max-attempts:5}") int maxAttempts,
+                              @Value("${wallet.publisher.retry-backoff-ms:1000}") long retryBackoffMillis) {
+        this.connectionFactory = connectionFactory;
+        this.eventCodecs = eventCodecs;
+        this.walletMetrics = walletMetrics;
+        this.window = new Semaphore(maxInFlight);
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffMillis = retryBackoffMillis;
+        this.senderThread = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "wallet-jms-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public CompletableFuture<Void> send(String destination, Object event) {
+        Outgoing outgoing = new Outgoing(destination, event, false);
+        senderThread.execute(() -> attempt(outgoing));
+        return outgoing.result;
+    }
+
+    private void attempt(Outgoing outgoing) {
+        try {
+            window.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            outgoing.result.completeExceptionally(e);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            MessageProducer producer = producer();
+            // Encoded again on every attempt, so the event is all a queued or retried send holds on to
+            Message encoded = eventCodecs.encode(outgoing.event, session);
+            producer.send(destination(outgoing.destination), encoded, new CompletionListener() {
+                @Override
+                public void onCompletion(Message message) {
+                    window.release();
+                    completed(outgoing, start);
+                }
+
+                @Override
+                public void onException(Message message, Exception exception) {
+                    window.release();
+                    failed(outgoing, start, exception);
+                }
+            });
+        } catch (MessageConversionException e) {
+            // Retrying would not help, and the dead-letter queue could not take it either
+            window.release();
+            log.error("Could not encode event: {}", outgoing.event, e);
+            outgoing.result.completeExceptionally(e);
+        } catch (Exception e) {
+            window.release();
+            // The session may be unusable after a send failure, so start over with a fresh connection
+            close();
+            failed(outgoing, start, e);
+        }
+    }
+
+    private void completed(Outgoing outgoing, long start) {
+        if (outgoing.deadLetter) {
+            walletMetrics.deadLetter(true);
+            log.info("Successfully published to dead-letter-queue: {}", outgoing.event);
+        } else {
+            walletMetrics.publishAttempt(outgoing.attempt, true, start);
+        }
+        outgoing.result.complete(null);
+    }
+
+    private void failed(Outgoing outgoing, long start, Exception cause) {
+        if (outgoing.deadLetter) {
+            walletMetrics.deadLetter(false);
+            log.error("Failed to send message to dead-letter-queue: {}", outgoing.event, cause);
+            outgoing.result.completeExceptionally(cause);
+            return;
+        }
+        walletMetrics.publishAttempt(outgoing.attempt, false, start);
+        if (++outgoing.attempt < maxAttempts) {
+            log.warn("Publish attempt {} to {} failed, retrying in {} ms", outgoing.attempt, outgoing.destination, retryBackoffMillis, cause);
+            senderThread.schedule(() -> attempt(outgoing), retryBackoffMillis, TimeUnit.MILLISECONDS);
+            return;
+        }
+        log.error("Failed to publish message: {} after retries, sending to dead-letter queue", outgoing.event, cause);
+        Outgoing deadLetter = new Outgoing(DEAD_LETTER_QUEUE, outgoing.event, true);
+        deadLetter.result.whenComplete((ignored, error) -> {
+            if (error == null) {
+                outgoing.result.complete(null);
+            } else {
+                outgoing.result.completeExceptionally(error);
+            }
+        });
+        senderThread.execute(() -> attempt(deadLetter));
+    }
+
+    private MessageProducer producer() throws JMSException {
+        if (producer == null) {
+            connection = connectionFactory.createConnection();
+            session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            producer = session.createProducer(null);
+        }
+        return producer;
+    }
+
+    private Destination destination(String name) throws JMSException {
+        Destination destination = destinations.get(name);
+        if (destination == null) {
+            destination = session.createQueue(name);
+            destinations.put(name, destination);
+        }
+        return destination;
+    }
+
+    private void close() {
+        destinations.clear();
+        producer = null;
+        session = null;
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (JMSException e) {
+                log.warn("Failed to close publisher connection", e);
+            }
+            connection = null;
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        senderThread.execute(this::close);
+        senderThread.shutdown();
+        senderThread.awaitTermination(retryBackoffMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static final class Outgoing {
+
+        private final String destination;
+        private final Object event;
+        private final boolean deadLetter;
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+        private int attempt;
+
+        private Outgoing(String destination, Object event, boolean deadLetter) {
+            this.destination = destination;
+            this.event = event;
+            this.deadLetter = deadLetter;
+        }
+    }
+}
@@ -1,19 +1,23 @@
 package org.example.walletservice.jms.publisher;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.example.walletservice.dto.UpdateEvent;
 import org.example.walletservice.exception.EventPublishException;
+import org.example.walletservice.jms.codec.EventCodecs;
+import org.example.walletservice.metrics.WalletMetrics;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jms.annotation.JmsListener;
 import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.support.converter.MessageConversionException;
 import org.springframework.retry.annotation.Backoff;
 import org.springframework.retry.annotation.Recover;
+import org.springframework.retry.RetryContext;
 import org.springframework.retry.annotation.Retryable;
+import org.springframework.retry.support.RetrySynchronizationManager;
 import org.springframework.stereotype.Service;
 
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 
 
 @Service
@@ -25,7 +29,13 @@ public class UpdateEventPublisher implements EventPublisher<UpdateEvent> {
     private JmsTemplate jmsTemplate;
 
     @Autowired
-    private ObjectMapper objectMapper;
+    private EventCodecs eventCodecs;
+
+    @Autowired
+    private WalletMetrics walletMetrics;
+
+    @Autowired
+    private PipelinedJmsSender pipelinedJmsSender;
 
     @Override
     @Retryable(
@@ -35,23 +45,32 @@ public class UpdateEventPublisher implements EventPublisher<UpdateEvent> {
     )
     public void publish(UpdateEvent event,String topic) {
         log.info(" Event Sent for userUpdatedEvent .  Event :{}", event);
-        String message = "";
+        long start = System.nanoTime();
+        RetryContext retryContext = RetrySynchronizationManager.getContext();
+        int attempt = retryContext == null ? 0 : retryContext.getRetryCount();
         try {
             // Publish customer update event
-            message =  objectMapper.writeValueAsString(event);
-            jmsTemplate.convertAndSend(topic,message);
-        } catch (JsonProcessingException ex) {
-            log.error("Error Parsing Json for Message:{}",message);
+            jmsTemplate.send(topic, session -> eventCodecs.encode(event, session));
+        } catch (MessageConversionException ex) {
+            walletMetrics.publishAttempt(attempt, false, start);
+            log.error("Error encoding Event:{}",event);
             log.error("Exception Message:{}",ex.getMessage());
-            throw new EventPublishException("Error Parsing Json for message");
+            throw new EventPublishException("Error encoding message");
         } catch (Exception ex) {
+            walletMetrics.publishAttempt(attempt, false, start);
             log.error("Exception while publishing message to solace");
             log.error("Exception Message:{}",ex.getMessage());
             throw new EventPublishException("Error publishing event :{}" + event  );
         }
+        walletMetrics.publishAttempt(attempt, true, start);
         log.info(" Successfully published. Event :{}", event);
     }
 
+    @Override
+    public CompletableFuture<Void> publishAsync(UpdateEvent event, String topic) {
+        return pipelinedJmsSender.send(topic, event);
+    }
+
 
 
     @Recover
@@ -63,8 +82,10 @@ public class UpdateEventPublisher implements EventPublisher<UpdateEvent> {
     private void sendToDeadLetterQueue(String message) {
         try {
             jmsTemplate.convertAndSend("dead-letter-queue", message);
+            walletMetrics.deadLetter(true);
             log.info("Successfully published to dead-letter-queue: {}", message);
         } catch (Exception e) {
+            walletMetrics.deadLetter(false);
             log.error("Failed to send message to dead-letter-queue: {}", message, e);
         }
     }
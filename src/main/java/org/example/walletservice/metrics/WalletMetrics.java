@@ -0,0 +1,169 @@
+package org.example.walletservice.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timers and counters for the wallet hot paths. Every meter is registered up front, so recording is a
+ * {@code System.nanoTime()} call plus an array lookup and never resolves tags on the request thread.
+ * <p>
+ * Stage timing is chained: {@link #lap} records the time since {@code stageStart} and returns the current
+ * time, which becomes the start of the next stage.
+ */
+@Component
+public class WalletMetrics {
+
+    public enum Operation { DEPOSIT, WITHDRAW, BALANCE, AUTHORIZE, CAPTURE, VOID, EXPIRE }
+
+    public enum Stage { IDEMPOTENCY_LOOKUP, BALANCE_UPDATE, LEDGER_APPEND, OUTBOX_ENQUEUE, IDEMPOTENCY_RECORD }
+
+    public enum Outcome { OK, REPLAYED, UNKNOWN_CUSTOMER, INSUFFICIENT_FUNDS, FAILED }
+
+    public enum ShedReason { CUSTOMER_RATE, CLIENT_RATE, CONCURRENCY }
+
+    private final Timer[][] stageTimers;
+    private final Timer[][] operationTimers;
+    private final Timer publishSuccessTimer;
+    private final Timer publishFailureTimer;
+    private final Counter publishRetries;
+    private final Counter deadLetterSent;
+    private final Counter deadLetterFailed;
+    private final Timer listenerSuccessTimer;
+    private final Timer listenerFailureTimer;
+    private final Timer listenerBatchTimer;
+    private final DistributionSummary listenerBatchSize;
+    private final Timer reconciliationTimer;
+    private final Counter reconciledWallets;
+    private final Counter reconciliationMismatches;
+    private final Counter[] shedCounters;
+
+    @Autowired
+    public WalletMetrics(MeterRegistry meterRegistry) {
+        stageTimers = new Timer[Operation.values().length][Stage.values().length];
+        operationTimers = new Timer[Operation.values().length][Outcome.values().length];
+        for (Operation operation : Operation.values()) {
+            for (Stage stage : Stage.values()) {
+                stageTimers[operation.ordinal()][stage.ordinal()] = Timer.builder("wallet.operation.stage")
+                        .tag("operation", tagValue(operation))
+                        .tag("stage", tagValue(stage))
+                        .publishPercentileHistogram()
+                        .register(meterRegistry);
+            }
+            for (Outcome outcome : Outcome.values()) {
+                operationTimers[operation.ordinal()][outcome.ordinal()] = Timer.builder("wallet.operation")
+                        .tag("operation", tagValue(operation))
+                        .tag("outcome", tagValue(outcome))
+                        .publishPercentileHistogram()
+                        .register(meterRegistry);
+            }
+        }
+
+        publishSuccessTimer = publishTimer(meterRegistry, Outcome.OK);
+        publishFailureTimer = publishTimer(meterRegistry, Outcome.FAILED);
+        publishRetries = Counter.builder("wallet.publish.retries")
+                .description("Publish attempts beyond the first one")
+                .register(meterRegistry);
+        deadLetterSent = deadLetterCounter(meterRegistry, Outcome.OK);
+        deadLetterFailed = deadLetterCounter(meterRegistry, Outcome.FAILED);
+
+        listenerSuccessTimer = listenerTimer(meterRegistry, Outcome.OK);
+        listenerFailureTimer = listenerTimer(meterRegistry, Outcome.FAILED);
+        listenerBatchTimer = Timer.builder("wallet.listener.batch")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        listenerBatchSize = DistributionSummary.builder("wallet.listener.batch.size")
+                .register(meterRegistry);
+
+        reconciliationTimer = Timer.builder("wallet.reconciliation")
+                .description("Ledger-vs-balance reconciliation run")
+                .register(meterRegistry);
+        reconciledWallets = Counter.builder("wallet.reconciliation.wallets")
+                .register(meterRegistry);
+        reconciliationMismatches = Counter.builder("wallet.reconciliation.mismatches")
+                .description("Wallets whose balance differs from the one rebuilt from their ledger")
+                .register(meterRegistry);
+
+        shedCounters = new Counter[ShedReason.values().length];
+        for (ShedReason reason : ShedReason.values()) {
+            shedCounters[reason.ordinal()] = Counter.builder("wallet.admission.shed")
+                    .description("Requests rejected with 429 before reaching the service")
+                    .tag("reason", tagValue(reason))
+                    .register(meterRegistry);
+        }
+    }
+
+    public long lap(Operation operation, Stage stage, long stageStart) {
+        long now = System.nanoTime();
+        stageTimers[operation.ordinal()][stage.ordinal()].record(now - stageStart, TimeUnit.NANOSECONDS);
+        return now;
+    }
+
+    public void complete(Operation operation, Outcome outcome, long operationStart) {
+        operationTimers[operation.ordinal()][outcome.ordinal()].record(System.nanoTime() - operationStart, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records one publish attempt; {@code attempt} is zero-based, so anything above zero is a retry.
+     */
+    public void publishAttempt(int attempt, boolean succeeded, long start) {
+        if (attempt > 0) {
+            publishRetries.increment();
+        }
+        (succeeded ? publishSuccessTimer : publishFailureTimer).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    public void deadLetter(boolean sent) {
+        (sent ? deadLetterSent : deadLetterFailed).increment();
+    }
+
+    public void listenerMessage(boolean succeeded, long start) {
+        (succeeded ? listenerSuccessTimer : listenerFailureTimer).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    public void listenerBatch(int messages, long start) {
+        listenerBatchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        listenerBatchSize.record(messages);
+    }
+
+    public void reconciliation(long wallets, long mismatches, long start) {
+        reconciliationTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        reconciledWallets.increment(wallets);
+        reconciliationMismatches.increment(mismatches);
+    }
+
+    public void shed(ShedReason reason) {
+        shedCounters[reason.ordinal()].increment();
+    }
+
+    private static Timer publishTimer(MeterRegistry meterRegistry, Outcome outcome) {
+        return Timer.builder("wallet.publish")
+                .description("Single attempt to send an event to the broker")
+                .tag("outcome", tagValue(outcome))
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private static Counter deadLetterCounter(MeterRegistry meterRegistry, Outcome outcome) {
+        return Counter.builder("wallet.publish.dead_letter")
+                .tag("outcome", tagValue(outcome))
+                .register(meterRegistry);
+    }
+
+    private static Timer listenerTimer(MeterRegistry meterRegistry, Outcome outcome) {
+        return Timer.builder("wallet.listener.message")
+                .tag("outcome", tagValue(outcome))
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private static String tagValue(Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,133 @@
+package org.example.walletservice.money;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Money held as a {@code long} count of minor units (cents) at a fixed scale of {@value #SCALE} decimal
+ * places, so {@code 12.34} is {@code 1234}. Arithmetic is overflow-checked and throws
+ * {@link ArithmeticException} instead of wrapping.
+ * <p>
+ * Parsing and formatting work on caller-supplied {@code char[]} buffers and do not allocate; the
+ * {@code String} and {@code BigDecimal} conversions are for logging and interop only.
+ */
+public final class MinorUnits {
+
+    public static final int SCALE = 2;
+    public static final long PER_UNIT = 100;
+
+    /**
+     * Buffer size that fits any formatted value: sign, 17 integer digits, point and {@value #SCALE} decimals.
+     */
+    public static final int MAX_CHARS = 21;
+
+    private MinorUnits() {
+    }
+
+    public static long add(long amount, long other) {
+        return Math.addExact(amount, other);
+    }
+
+    public static long subtract(long amount, long other) {
+        return Math.subtractExact(amount, other);
+    }
+
+    /**
+     * Parses a plain decimal such as {@code 12}, {@code 12.3} or {@code -0.05}. More than {@value #SCALE}
+     * decimal places are rejected unless the extra digits are zeros; exponents are not accepted.
+     *
+     * @throws NumberFormatException if the text is not a plain decimal or is more precise than the scale
+     * @throws ArithmeticException   if the value does not fit in a {@code long} of minor units
+     */
+    public static long parse(char[] chars, int offset, int length) {
+        int end = offset + length;
+        int i = offset;
+        boolean negative = false;
+        if (i < end && (chars[i] == '-' || chars[i] == '+')) {
+            negative = chars[i] == '-';
+            i++;
+        }
+
+        long units = 0;
+        int digits = 0;
+        for (; i < end && chars[i] != '.'; i++, digits++) {
+            units = Math.addExact(Math.multiplyExact(units, 10), digit(chars, i, offset, length));
+        }
+
+        long fraction = 0;
+        int fractionDigits = 0;
+        if (i < end) {
+            for (i++; i < end; i++, digits++) {
+                int digit = digit(chars, i, offset, length);
+                if (fractionDigits < SCALE) {
+                    fraction = fraction * 10 + digit;
+                    fractionDigits++;
+                } else if (digit != 0) {
+                    throw new NumberFormatException("More than " + SCALE + " decimal places: " + new String(chars, offset, length));
+                }
+            }
+        }
+        if (digits == 0) {
+            throw new NumberFormatException("No digits: " + new String(chars, offset, length));
+        }
+        for (; fractionDigits < SCALE; fractionDigits++) {
+            fraction *= 10;
+        }
+
+        long minorUnits = Math.addExact(Math.multiplyExact(units, PER_UNIT), fraction);
+        return negative ? -minorUnits : minorUnits;
+    }
+
+    public static long parse(String text) {
+        return parse(text.toCharArray(), 0, text.length());
+    }
+
+    /**
+     * Writes {@code minorUnits} as a plain decimal with exactly {@value #SCALE} decimals, right-aligned at
+     * the end of {@code buffer} (at least {@link #MAX_CHARS} long). Returns the index of the first char.
+     */
+    public static int format(long minorUnits, char[] buffer) {
+        int position = buffer.length;
+        // Work on the negative value so Long.MIN_VALUE needs no special case
+        long remaining = minorUnits < 0 ? minorUnits : -minorUnits;
+        for (int i = 0; i < SCALE; i++) {
+            buffer[--position] = (char) ('0' - remaining % 10);
+            remaining /= 10;
+        }
+        buffer[--position] = '.';
+        do {
+            buffer[--position] = (char) ('0' - remaining % 10);
+            remaining /= 10;
+        } while (remaining != 0);
+        if (minorUnits < 0) {
+            buffer[--position] = '-';
+        }
+        return position;
+    }
+
+    public static String toString(long minorUnits) {
+        char[] buffer = new char[MAX_CHARS];
+        int start = format(minorUnits, buffer);
+        return new String(buffer, start, buffer.length - start);
+    }
+
+    public static BigDecimal toBigDecimal(long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    /**
+     * @throws ArithmeticException if {@code amount} has more than {@value #SCALE} significant decimals or
+     *                             does not fit in a {@code long} of minor units
+     */
+    public static long of(BigDecimal amount) {
+        return amount.setScale(SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+    }
+
+    private static int digit(char[] chars, int index, int offset, int length) {
+        int digit = chars[index] - '0';
+        if (digit < 0 || digit > 9) {
+            throw new NumberFormatException("Not a plain decimal: " + new String(chars, offset, length));
+        }
+        return digit;
+    }
+}
@@ -0,0 +1,40 @@
+package org.example.walletservice.money;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+
+import java.io.IOException;
+
+/**
+ * Reads a JSON number (or numeric string) straight from the parser's text buffer into minor units, so
+ * the value never passes through {@code double} or {@code BigDecimal}. Values with more than
+ * {@value MinorUnits#SCALE} decimals, exponents or out of range are rejected. JSON {@code null} reads
+ * as zero.
+ */
+public class MinorUnitsDeserializer extends StdDeserializer<Long> {
+
+    public MinorUnitsDeserializer() {
+        super(Long.class);
+    }
+
+    @Override
+    public Long deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token != JsonToken.VALUE_NUMBER_INT && token != JsonToken.VALUE_NUMBER_FLOAT && token != JsonToken.VALUE_STRING) {
+            return (Long) context.handleUnexpectedToken(Long.class, parser);
+        }
+        try {
+            return MinorUnits.parse(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw InvalidFormatException.from(parser, "Not a valid amount: " + e.getMessage(), parser.getText(), Long.class);
+        }
+    }
+
+    @Override
+    public Long getNullValue(DeserializationContext context) {
+        return 0L;
+    }
+}
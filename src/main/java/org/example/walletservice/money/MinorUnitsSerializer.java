@@ -0,0 +1,24 @@
+package org.example.walletservice.money;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * Writes a minor-unit amount as a JSON number with {@value MinorUnits#SCALE} decimals.
+ */
+public class MinorUnitsSerializer extends StdSerializer<Long> {
+
+    public MinorUnitsSerializer() {
+        super(Long.class);
+    }
+
+    @Override
+    public void serialize(Long value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        char[] buffer = new char[MinorUnits.MAX_CHARS];
+        int start = MinorUnits.format(value, buffer);
+        generator.writeNumber(buffer, start, buffer.length - start);
+    }
+}
@@ -0,0 +1,22 @@
+package org.example.walletservice.money;
+
+import com.fasterxml.jackson.annotation.JacksonAnnotationsInside;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a {@code long} minor-unit amount so it is read and written in JSON as a plain decimal
+ * ({@code 12.34}), keeping the wire format of requests, responses and events unchanged.
+ */
+@Target({ElementType.FIELD, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@JacksonAnnotationsInside
+@JsonSerialize(using = MinorUnitsSerializer.class)
+@JsonDeserialize(using = MinorUnitsDeserializer.class)
+public @interface Money {
+}
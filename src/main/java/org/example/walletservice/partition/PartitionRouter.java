@@ -0,0 +1,112 @@
+package org.example.walletservice.partition;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Maps customers to a fixed number of logical partitions ({@code wallet.partition.count}) and partitions
+ * to service instances. Assignment is static: with the instances listed in {@code wallet.partition.instances}
+ * (base URLs, the same list and order on every instance), partition {@code p} belongs to instance
+ * {@code p % instances}, and {@code wallet.partition.self} is this instance's position in the list.
+ * <p>
+ * With fewer than two instances every partition is owned locally and routing is a no-op. The partition
+ * count must never change once wallets exist, since it decides which instance a customer lives on.
+ */
+@Component
+@Slf4j
+public class PartitionRouter {
+
+    /**
+     * JMS property carrying the partition of a message's customer, set by producers of
+     * {@code customer-update-queue} and matched by each instance's message selector.
+     */
+    public static final String PARTITION_PROPERTY = "walletPartition";
+
+    private final int partitionCount;
+    private final List<String> instances;
+    private final int self;
+
+    @Autowired
+    public PartitionRouter(@Value("${wallet.partition.count:64}") int partitionCount,
+                           @Value("${wallet.partition.instances:}") List<String> instances,
+                           @Value("${wallet.partition.self:0}") int self) {
+        this.partitionCount = partitionCount;
+        this.instances = instances.stream().filter(url -> !url.isBlank()).map(PartitionRouter::trimSlash).toList();
+        this.self = self;
+        if (isPartitioned() && (self < 0 || self >= this.instances.size())) {
+            throw new IllegalArgumentException("wallet.partition.self " + self + " is not an index of wallet.partition.instances");
+        }
+        if (isPartitioned()) {
+            log.info("Instance {} of {} owns partitions {}", self, this.instances.size(), ownedPartitions());
+        }
+    }
+
+    public boolean isPartitioned() {
+        return instances.size() > 1;
+    }
+
+    /**
+     * Stable partition of a customer. The id is mixed first so that consecutive ids spread evenly and the
+     * partition does not correlate with the engine's shard index.
+     */
+    public int partitionOf(long customerId) {
+        return Math.floorMod(Long.hashCode(customerId * 0x9E3779B97F4A7C15L), partitionCount);
+    }
+
+    public boolean owns(long customerId) {
+        return !isPartitioned() || ownerOf(partitionOf(customerId)) == self;
+    }
+
+    /**
+     * Base URL of the instance owning {@code customerId}'s partition.
+     */
+    public String ownerUrl(long customerId) {
+        return instances.get(ownerOf(partitionOf(customerId)));
+    }
+
+    public List<Integer> ownedPartitions() {
+        return IntStream.range(0, partitionCount)
+                .filter(partition -> !isPartitioned() || ownerOf(partition) == self)
+                .boxed()
+                .toList();
+    }
+
+    /**
+     * Whether this instance also takes work carrying no partition, written or sent before partitions
+     * existed. That is the first instance, or the only one.
+     */
+    public boolean ownsUnassigned() {
+        return self == 0 || !isPartitioned();
+    }
+
+    /**
+     * JMS message selector matching this instance's partitions, or an empty string (no selector) when
+     * not partitioned. The first instance also takes messages without the partition property, so events
+     * from producers that do not set it yet are still consumed.
+     */
+    public String messageSelector() {
+        if (!isPartitioned()) {
+            return "";
+        }
+        // IN only takes string literals in JMS selectors, and the property is numeric
+        String selector = ownedPartitions().stream()
+                .map(partition -> PARTITION_PROPERTY + " = " + partition)
+                .collect(Collectors.joining(" OR "));
+        return self == 0 ? PARTITION_PROPERTY + " IS NULL OR " + selector : selector;
+    }
+
+    private int ownerOf(int partition) {
+        return partition % instances.size();
+    }
+
+    private static String trimSlash(String url) {
+        String trimmed = url.trim();
+        return trimmed.endsWith("/") ? trimmed.substring(0, trimmed.length() - 1) : trimmed;
+    }
+}
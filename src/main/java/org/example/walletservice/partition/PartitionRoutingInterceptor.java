@@ -0,0 +1,57 @@
+package org.example.walletservice.partition;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Sends single-customer wallet requests for a partition owned by another instance there with a
+ * {@code 307 Temporary Redirect}, which clients repeat with the same method, headers and body. The
+ * customer is taken from the {@code userId} header; requests without one are left to the controller.
+ */
+@Component
+@Slf4j
+public class PartitionRoutingInterceptor implements HandlerInterceptor {
+
+    private static final String USER_ID_HEADER = "userId";
+
+    private final PartitionRouter partitionRouter;
+
+    @Autowired
+    public PartitionRoutingInterceptor(PartitionRouter partitionRouter) {
+        this.partitionRouter = partitionRouter;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!partitionRouter.isPartitioned()) {
+            return true;
+        }
+        String userId = request.getHeader(USER_ID_HEADER);
+        if (userId == null) {
+            return true;
+        }
+        long customerId;
+        try {
+            customerId = Long.parseLong(userId.trim());
+        } catch (NumberFormatException e) {
+            return true;
+        }
+        if (partitionRouter.owns(customerId)) {
+            return true;
+        }
+
+        String location = partitionRouter.ownerUrl(customerId) + request.getRequestURI()
+                + (request.getQueryString() == null ? "" : "?" + request.getQueryString());
+        log.debug("customerId :{} is in partition {} owned by {}, redirecting", customerId,
+                partitionRouter.partitionOf(customerId), location);
+        response.setStatus(HttpStatus.TEMPORARY_REDIRECT.value());
+        response.setHeader(HttpHeaders.LOCATION, location);
+        return false;
+    }
+}
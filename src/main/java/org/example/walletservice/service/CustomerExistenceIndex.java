@@ -0,0 +1,222 @@
+package org.example.walletservice.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.example.walletservice.WalletRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Answers "this customer has a wallet" and "this customer has no wallet" without a database round trip.
+ * <p>
+ * Known customers are kept in an exact set of primitive longs (open addressing, 11 to 22 bytes per
+ * customer), loaded from the wallet table on startup and added to when this instance creates wallets.
+ * Wallets are never deleted, so {@link Existence#EXISTS} is always right. Customers found missing in the
+ * database are remembered for {@code negative-ttl}; with {@code authoritative} set, every customer not in
+ * the set is reported absent, which is only safe when no other instance creates wallets for the customers
+ * this one serves.
+ * <p>
+ * Reads are lock-free; writers are serialized and publish a new table when the set grows.
+ */
+@Component
+@Slf4j
+public class CustomerExistenceIndex implements SmartLifecycle {
+
+    public enum Existence {
+        EXISTS, ABSENT, UNKNOWN
+    }
+
+    private static final int INITIAL_CAPACITY = 1 << 10;
+    private static final int LOAD_PAGE_SIZE = 10_000;
+
+    private final WalletRepository walletRepository;
+    private final boolean enabled;
+    private final boolean authoritative;
+    private final Cache<Long, Boolean> absent;
+
+    private volatile AtomicLongArray table = new AtomicLongArray(INITIAL_CAPACITY);
+    private volatile boolean containsZero;
+    private int size;
+    private volatile boolean ready;
+    private volatile boolean running;
+
+    @Autowired
+    public CustomerExistenceIndex(WalletRepository walletRepository,
+                                  @Value("${wallet.existence.enabled:true}") boolean enabled,
+                                  @Value("${wallet.existence.authoritative:false}") boolean authoritative,
+                                  @Value("${wallet.existence.negative-ttl:2s}") Duration negativeTtl,
+                                  @Value("${wallet.existence.negative-max-size:100000}") long negativeMaxSize) {
+        this.walletRepository = walletRepository;
+        this.enabled = enabled;
+        this.authoritative = authoritative;
+        this.absent = enabled && !negativeTtl.isZero()
+                ? Caffeine.newBuilder().expireAfterWrite(negativeTtl).maximumSize(negativeMaxSize).build()
+                : null;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Existence lookup(long customerId) {
+        if (!enabled) {
+            return Existence.UNKNOWN;
+        }
+        if (contains(customerId)) {
+            return Existence.EXISTS;
+        }
+        if (authoritative && ready) {
+            return Existence.ABSENT;
+        }
+        if (absent != null && absent.getIfPresent(customerId) != null) {
+            return Existence.ABSENT;
+        }
+        return Existence.UNKNOWN;
+    }
+
+    /**
+     * Remembers a customer the database just reported as having no wallet.
+     */
+    public void recordAbsent(long customerId) {
+        if (absent != null) {
+            absent.put(customerId, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Adds customers whose wallets the surrounding transaction creates, once it commits. Nothing is added
+     * if it rolls back.
+     */
+    public void addAfterCommit(Collection<Long> customerIds) {
+        if (!enabled || customerIds.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            List<Long> ids = List.copyOf(customerIds);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    addAll(ids);
+                }
+            });
+        } else {
+            addAll(customerIds);
+        }
+    }
+
+    public synchronized int size() {
+        return size + (containsZero ? 1 : 0);
+    }
+
+    @Override
+    public synchronized void start() {
+        if (!enabled || running) {
+            return;
+        }
+        long startedAt = System.nanoTime();
+        long from = Long.MIN_VALUE;
+        while (true) {
+            List<Long> page = walletRepository.findCustomerIdsFrom(from, PageRequest.of(0, LOAD_PAGE_SIZE));
+            addAll(page);
+            if (page.size() < LOAD_PAGE_SIZE || page.get(page.size() - 1) == Long.MAX_VALUE) {
+                break;
+            }
+            from = page.get(page.size() - 1) + 1;
+        }
+        ready = true;
+        running = true;
+        log.info("Customer existence index loaded {} customers in {} ms", size(),
+                (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Loaded before the listener containers and the web server start calling the service
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    private boolean contains(long customerId) {
+        if (customerId == 0) {
+            return containsZero;
+        }
+        AtomicLongArray slots = table;
+        int mask = slots.length() - 1;
+        for (int i = slot(customerId, mask); ; i = (i + 1) & mask) {
+            long value = slots.get(i);
+            if (value == customerId) {
+                return true;
+            }
+            if (value == 0) {
+                return false;
+            }
+        }
+    }
+
+    private synchronized void addAll(Collection<Long> customerIds) {
+        for (long customerId : customerIds) {
+            if (absent != null) {
+                absent.invalidate(customerId);
+            }
+            if (customerId == 0) {
+                containsZero = true;
+            } else if (insert(table, customerId)) {
+                size++;
+                // Grow at three quarters full so probe sequences stay short
+                if (size > table.length() / 4 * 3) {
+                    table = rehash(table, table.length() * 2);
+                }
+            }
+        }
+    }
+
+    private static boolean insert(AtomicLongArray slots, long customerId) {
+        int mask = slots.length() - 1;
+        for (int i = slot(customerId, mask); ; i = (i + 1) & mask) {
+            long value = slots.get(i);
+            if (value == customerId) {
+                return false;
+            }
+            if (value == 0) {
+                slots.set(i, customerId);
+                return true;
+            }
+        }
+    }
+
+    private static AtomicLongArray rehash(AtomicLongArray slots, int capacity) {
+        AtomicLongArray grown = new AtomicLongArray(capacity);
+        for (int i = 0; i < slots.length(); i++) {
+            long value = slots.get(i);
+            if (value != 0) {
+                insert(grown, value);
+            }
+        }
+        return grown;
+    }
+
+    private static int slot(long customerId, int mask) {
+        long mixed = customerId * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32)) & mask;
+    }
+}
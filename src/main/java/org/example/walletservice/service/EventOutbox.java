@@ -0,0 +1,58 @@
+package org.example.walletservice.service;
+
+import org.example.walletservice.OutboxEventRepository;
+import org.example.walletservice.dto.UpdateEvent;
+import org.example.walletservice.entity.OutboxEvent;
+import org.example.walletservice.partition.PartitionRouter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Queues events for publishing as part of the caller's transaction. Nothing is sent here; the
+ * {@code OutboxRelay} picks the rows up once the transaction has committed.
+ */
+@Component
+public class EventOutbox {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final PartitionRouter partitionRouter;
+
+    @Autowired
+    public EventOutbox(OutboxEventRepository outboxEventRepository, PartitionRouter partitionRouter) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.partitionRouter = partitionRouter;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(UpdateEvent event, String destination) {
+        outboxEventRepository.save(toOutboxEvent(event, destination, Instant.now()));
+    }
+
+    /**
+     * Queues several events at once; the rows are written with batched inserts.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueAll(List<UpdateEvent> events, String destination) {
+        Instant now = Instant.now();
+        outboxEventRepository.saveAll(events.stream()
+                .map(event -> toOutboxEvent(event, destination, now))
+                .toList());
+    }
+
+    private OutboxEvent toOutboxEvent(UpdateEvent event, String destination, Instant createdAt) {
+        return OutboxEvent.builder()
+                .destination(destination)
+                .customerId(event.getCustomerId())
+                .partition(partitionRouter.partitionOf(event.getCustomerId()))
+                .amount(event.getAmount())
+                .actionType(event.getActionType())
+                .balance(event.getBalance())
+                .createdAt(createdAt)
+                .build();
+    }
+}
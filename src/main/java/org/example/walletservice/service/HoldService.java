@@ -0,0 +1,390 @@
+package org.example.walletservice.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.walletservice.WalletHoldRepository;
+import org.example.walletservice.WalletRepository;
+import org.example.walletservice.dto.BalanceUpdate;
+import org.example.walletservice.dto.UpdateEvent;
+import org.example.walletservice.engine.WalletEngine;
+import org.example.walletservice.entity.Wallet;
+import org.example.walletservice.entity.WalletHold;
+import org.example.walletservice.enums.ActionType;
+import org.example.walletservice.enums.HoldStatus;
+import org.example.walletservice.enums.OperationType;
+import org.example.walletservice.exception.HoldNotFoundException;
+import org.example.walletservice.exception.HoldStateConflictException;
+import org.example.walletservice.exception.InsufficientBalanceException;
+import org.example.walletservice.exception.InvalidCustomerException;
+import org.example.walletservice.metrics.WalletMetrics;
+import org.example.walletservice.metrics.WalletMetrics.Operation;
+import org.example.walletservice.metrics.WalletMetrics.Outcome;
+import org.example.walletservice.metrics.WalletMetrics.Stage;
+import org.example.walletservice.money.MinorUnits;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Two-phase withdrawals. {@link #authorize} reserves part of the available balance under a hold,
+ * {@link #capture} turns the hold into a withdrawal and {@link #voidHold} releases it. Holds neither
+ * captured nor voided are released when they expire.
+ * <p>
+ * Only capture changes the balance, so it is the only step with a ledger entry and a
+ * {@code balance-update-event}; authorizing and voiding each cost one conditional update of the
+ * reserved amount and one of the hold. Expiry is driven by a {@link TimerWheel} holding the open holds
+ * of this instance, which are reloaded from the database on startup. Every {@code recovery-interval} the
+ * same wheel also sweeps the database for holds past their expiry that no instance released, such as
+ * those of an instance that went down after authorizing them.
+ * <p>
+ * Holds work on the database path only and are refused while the wallet engine is enabled.
+ */
+@Service
+@Slf4j
+public class HoldService implements SmartLifecycle {
+
+    private static final int RELOAD_PAGE_SIZE = 1000;
+    private static final Duration EXPIRY_RETRY_DELAY = Duration.ofSeconds(5);
+
+    private final WalletRepository walletRepository;
+    private final WalletHoldRepository walletHoldRepository;
+    private final WalletLedger walletLedger;
+    private final EventOutbox eventOutbox;
+    private final WalletCache walletCache;
+    private final WalletMetrics walletMetrics;
+    private final WalletEngine walletEngine;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration defaultTtl;
+    private final Duration maxTtl;
+    private final Duration recoveryInterval;
+    private final TimerWheel expiryWheel;
+    private final Map<String, TimerWheel.Timeout> expiries = new ConcurrentHashMap<>();
+    private volatile boolean running;
+
+    @Autowired
+    public HoldService(WalletRepository walletRepository, WalletHoldRepository walletHoldRepository, WalletLedger walletLedger,
+                       EventOutbox eventOutbox, WalletCache walletCache, WalletMetrics walletMetrics, WalletEngine walletEngine,
+                       PlatformTransactionManager transactionManager,
+                       @Value("${wallet.holds.default-ttl:15m}") Duration defaultTtl,
+                       @Value("${wallet.holds.max-ttl:24h}") Duration maxTtl,
+                       @Value("${wallet.holds.tick:100ms}") Duration tick,
+                       @Value("${wallet.holds.wheel-size:512}") int wheelSize,
+                       @Value("${wallet.holds.recovery-interval:5m}") Duration recoveryInterval) {
+        this.walletRepository = walletRepository;
+        this.walletHoldRepository = walletHoldRepository;
+        this.walletLedger = walletLedger;
+        this.eventOutbox = eventOutbox;
+        this.walletCache = walletCache;
+        this.walletMetrics = walletMetrics;
+        this.walletEngine = walletEngine;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.defaultTtl = defaultTtl;
+        this.maxTtl = maxTtl;
+        this.recoveryInterval = recoveryInterval;
+        this.expiryWheel = new TimerWheel("wallet-hold-expiry", tick.toNanos(), wheelSize);
+    }
+
+    /**
+     * Reserves {@code amount} of the customer's available balance until capture, void or {@code ttl}
+     * (the default when null, at most {@code max-ttl}). The hold id is the request id, so a replay returns
+     * the existing hold.
+     */
+    public WalletHold authorize(long customerId, String holdId, long amount, Duration ttl) {
+        requireDatabasePath();
+        Duration lifetime = ttl == null ? defaultTtl : ttl.compareTo(maxTtl) > 0 ? maxTtl : ttl;
+        return transactionTemplate.execute(status -> {
+            long operationStart = System.nanoTime();
+            Optional<WalletHold> existing = walletHoldRepository.findById(holdId);
+            long stageStart = walletMetrics.lap(Operation.AUTHORIZE, Stage.IDEMPOTENCY_LOOKUP, operationStart);
+            if (existing.isPresent()) {
+                if (!existing.get().getCustomerId().equals(customerId)) {
+                    walletMetrics.complete(Operation.AUTHORIZE, Outcome.FAILED, operationStart);
+                    throw new HoldStateConflictException("Hold " + holdId + " belongs to another customer");
+                }
+                log.info("Hold {} already authorized. Skipping authorization.", holdId);
+                walletMetrics.complete(Operation.AUTHORIZE, Outcome.REPLAYED, operationStart);
+                return existing.get();
+            }
+
+            log.info("Authorizing {} for customerId :{} under hold {}", MinorUnits.toString(amount), customerId, holdId);
+            int reserved = walletRepository.reserve(customerId, amount);
+            walletMetrics.lap(Operation.AUTHORIZE, Stage.BALANCE_UPDATE, stageStart);
+            if (reserved == 0) {
+                // Nothing was updated: either the wallet is missing or too little of it is available
+                if (walletRepository.findBalanceByCustomerId(customerId).isEmpty()) {
+                    log.info("Customer Not Present: {}", customerId);
+                    walletMetrics.complete(Operation.AUTHORIZE, Outcome.UNKNOWN_CUSTOMER, operationStart);
+                    throw new InvalidCustomerException("Customer with id " + customerId + " does not exist");
+                }
+                log.info("Insufficient available balance to authorize {} for customerId :{}", MinorUnits.toString(amount), customerId);
+                walletMetrics.complete(Operation.AUTHORIZE, Outcome.INSUFFICIENT_FUNDS, operationStart);
+                throw new InsufficientBalanceException("Insufficient funds");
+            }
+            Instant now = Instant.now();
+            WalletHold hold = WalletHold.builder()
+                    .holdId(holdId)
+                    .customerId(customerId)
+                    .amount(amount)
+                    .status(HoldStatus.AUTHORIZED)
+                    .createdAt(now)
+                    .expiresAt(now.plus(lifetime))
+                    .build();
+            walletHoldRepository.save(hold);
+            walletCache.evictAfterCommit(customerId);
+            afterCommit(() -> scheduleExpiry(hold));
+            walletMetrics.complete(Operation.AUTHORIZE, Outcome.OK, operationStart);
+            return hold;
+        });
+    }
+
+    /**
+     * Withdraws the held amount: one balance update, ledger entry and event, as a withdrawal would.
+     * Capturing a captured hold again returns the wallet as it is now.
+     */
+    public Wallet capture(long customerId, String holdId) {
+        requireDatabasePath();
+        return transactionTemplate.execute(status -> {
+            long operationStart = System.nanoTime();
+            WalletHold hold = find(customerId, holdId);
+            if (walletHoldRepository.transition(holdId, HoldStatus.AUTHORIZED, HoldStatus.CAPTURED) == 0) {
+                HoldStatus current = currentStatus(holdId);
+                if (current != HoldStatus.CAPTURED) {
+                    walletMetrics.complete(Operation.CAPTURE, Outcome.FAILED, operationStart);
+                    throw new HoldStateConflictException("Hold " + holdId + " is " + current);
+                }
+                log.info("Hold {} already captured. Skipping capture.", holdId);
+                walletMetrics.complete(Operation.CAPTURE, Outcome.REPLAYED, operationStart);
+                return walletRepository.findByCustomerId(customerId).orElseThrow();
+            }
+
+            long amount = hold.getAmount();
+            BalanceUpdate update = walletRepository.captureReserved(customerId, amount);
+            long stageStart = walletMetrics.lap(Operation.CAPTURE, Stage.BALANCE_UPDATE, operationStart);
+            if (!update.applied()) {
+                throw new IllegalStateException("Wallet of customerId " + customerId + " does not reserve hold " + holdId);
+            }
+            Wallet savedWallet = Wallet.builder().customerId(customerId).balance(update.balance()).sequence(update.sequence())
+                    .reserved(update.reserved()).build();
+            log.info("Captured {} for customerId :{} from hold {}. New Balance: {}", MinorUnits.toString(amount), customerId,
+                    holdId, MinorUnits.toString(update.balance()));
+            walletLedger.append(WalletLedger.entry(customerId, holdId, OperationType.WITHDRAW, amount, update));
+            stageStart = walletMetrics.lap(Operation.CAPTURE, Stage.LEDGER_APPEND, stageStart);
+            eventOutbox.enqueue(new UpdateEvent(customerId, amount, ActionType.CREDIT, update.balance()), "balance-update-event");
+            walletMetrics.lap(Operation.CAPTURE, Stage.OUTBOX_ENQUEUE, stageStart);
+            walletCache.putAfterCommit(savedWallet);
+            afterCommit(() -> cancelExpiry(holdId));
+            walletMetrics.complete(Operation.CAPTURE, Outcome.OK, operationStart);
+            return savedWallet;
+        });
+    }
+
+    /**
+     * Releases the held amount without touching the balance. Voiding a hold that was already voided or
+     * has expired returns it unchanged.
+     */
+    public WalletHold voidHold(long customerId, String holdId) {
+        requireDatabasePath();
+        return transactionTemplate.execute(status -> {
+            long operationStart = System.nanoTime();
+            WalletHold hold = find(customerId, holdId);
+            if (walletHoldRepository.transition(holdId, HoldStatus.AUTHORIZED, HoldStatus.VOIDED) == 0) {
+                HoldStatus current = currentStatus(holdId);
+                if (current == HoldStatus.CAPTURED) {
+                    walletMetrics.complete(Operation.VOID, Outcome.FAILED, operationStart);
+                    throw new HoldStateConflictException("Hold " + holdId + " is " + current);
+                }
+                log.info("Hold {} already {}. Skipping void.", holdId, current);
+                walletMetrics.complete(Operation.VOID, Outcome.REPLAYED, operationStart);
+                hold.setStatus(current);
+                return hold;
+            }
+            release(hold);
+            afterCommit(() -> cancelExpiry(holdId));
+            walletMetrics.complete(Operation.VOID, Outcome.OK, operationStart);
+            hold.setStatus(HoldStatus.VOIDED);
+            return hold;
+        });
+    }
+
+    /**
+     * Releases a hold whose time is up, unless it was captured or voided in the meantime. Called from the
+     * expiry wheel; a failure is retried a few seconds later.
+     */
+    public void expire(String holdId) {
+        expiries.remove(holdId);
+        long operationStart = System.nanoTime();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Optional<WalletHold> hold = walletHoldRepository.findById(holdId);
+                if (hold.isPresent() && walletHoldRepository.transition(holdId, HoldStatus.AUTHORIZED, HoldStatus.EXPIRED) == 1) {
+                    release(hold.get());
+                    log.info("Hold {} of customerId :{} expired", holdId, hold.get().getCustomerId());
+                }
+            });
+            walletMetrics.complete(Operation.EXPIRE, Outcome.OK, operationStart);
+        } catch (RuntimeException e) {
+            log.warn("Expiring hold {} failed, retrying in {}", holdId, EXPIRY_RETRY_DELAY, e);
+            walletMetrics.complete(Operation.EXPIRE, Outcome.FAILED, operationStart);
+            if (running) {
+                expiries.put(holdId, expiryWheel.schedule(System.nanoTime() + EXPIRY_RETRY_DELAY.toNanos(), () -> expire(holdId)));
+            }
+        }
+    }
+
+    /**
+     * Releases the holds past their expiry that are still authorized and not waiting on this instance's
+     * wheel. Runs on the wheel every {@code recovery-interval} and schedules its next run.
+     */
+    void sweepExpired() {
+        if (!running) {
+            return;
+        }
+        try {
+            int swept = 0;
+            Instant now = Instant.now();
+            String after = "";
+            while (true) {
+                List<WalletHold> page = walletHoldRepository.findByStatusAndExpiresAtBeforeAndHoldIdGreaterThanOrderByHoldId(
+                        HoldStatus.AUTHORIZED, now, after, PageRequest.of(0, RELOAD_PAGE_SIZE));
+                for (WalletHold hold : page) {
+                    if (!expiries.containsKey(hold.getHoldId())) {
+                        expire(hold.getHoldId());
+                        swept++;
+                    }
+                }
+                if (page.size() < RELOAD_PAGE_SIZE) {
+                    break;
+                }
+                after = page.get(page.size() - 1).getHoldId();
+            }
+            if (swept > 0) {
+                log.info("Recovery sweep expired {} overdue holds", swept);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Hold recovery sweep failed, retrying in {}", recoveryInterval, e);
+        } finally {
+            scheduleSweep();
+        }
+    }
+
+    /**
+     * Open holds of this instance waiting for their expiry.
+     */
+    public int pendingExpiries() {
+        return expiries.size();
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running || walletEngine.isEnabled()) {
+            return;
+        }
+        expiryWheel.start();
+        running = true;
+        // Holds opened on any instance; whichever gets there first expires them
+        int reloaded = 0;
+        String after = "";
+        while (true) {
+            List<WalletHold> page = walletHoldRepository.findByStatusAndHoldIdGreaterThanOrderByHoldId(
+                    HoldStatus.AUTHORIZED, after, PageRequest.of(0, RELOAD_PAGE_SIZE));
+            page.forEach(this::scheduleExpiry);
+            reloaded += page.size();
+            if (page.size() < RELOAD_PAGE_SIZE) {
+                break;
+            }
+            after = page.get(page.size() - 1).getHoldId();
+        }
+        if (reloaded > 0) {
+            log.info("Scheduled expiry of {} open holds", reloaded);
+        }
+        scheduleSweep();
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        expiryWheel.stop();
+        expiries.clear();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Alongside the wallet engine, before the listener containers and the web server
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    private void requireDatabasePath() {
+        if (walletEngine.isEnabled()) {
+            throw new HoldStateConflictException("Holds are not available while the wallet engine is enabled");
+        }
+    }
+
+    private WalletHold find(long customerId, String holdId) {
+        return walletHoldRepository.findById(holdId)
+                .filter(hold -> hold.getCustomerId() == customerId)
+                .orElseThrow(() -> new HoldNotFoundException("Hold " + holdId + " not found for customer " + customerId));
+    }
+
+    private HoldStatus currentStatus(String holdId) {
+        return walletHoldRepository.findById(holdId).orElseThrow().getStatus();
+    }
+
+    private void release(WalletHold hold) {
+        if (walletRepository.release(hold.getCustomerId(), hold.getAmount()) == 0) {
+            throw new IllegalStateException("Wallet of customerId " + hold.getCustomerId() + " does not reserve hold " + hold.getHoldId());
+        }
+        walletCache.evictAfterCommit(hold.getCustomerId());
+    }
+
+    private void scheduleExpiry(WalletHold hold) {
+        String holdId = hold.getHoldId();
+        long delayNanos = Duration.between(Instant.now(), hold.getExpiresAt()).toNanos();
+        expiries.put(holdId, expiryWheel.schedule(System.nanoTime() + delayNanos, () -> expire(holdId)));
+    }
+
+    private void scheduleSweep() {
+        if (running) {
+            expiryWheel.schedule(System.nanoTime() + recoveryInterval.toNanos(), this::sweepExpired);
+        }
+    }
+
+    private void cancelExpiry(String holdId) {
+        TimerWheel.Timeout timeout = expiries.remove(holdId);
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package org.example.walletservice.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.example.walletservice.ProcessedRequestRepository;
+import org.example.walletservice.entity.ProcessedRequest;
+import org.example.walletservice.entity.Wallet;
+import org.example.walletservice.exception.RequestIdConflictException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Remembers which deposit/withdraw requests were already applied and the wallet they returned.
+ * Recent results are kept in a bounded in-memory cache; the {@code processed_request} table is the
+ * source of truth so replays are detected after a restart and across replicas.
+ */
+@Component
+@Slf4j
+public class IdempotencyStore {
+
+    private final ProcessedRequestRepository processedRequestRepository;
+    private final Cache<String, Wallet> recentResults;
+    private final Duration retention;
+
+    @Autowired
+    public IdempotencyStore(ProcessedRequestRepository processedRequestRepository,
+                            @Value("${wallet.idempotency.max-size:100000}") long maxSize,
+                            @Value("${wallet.idempotency.retention:24h}") Duration retention) {
+        this.processedRequestRepository = processedRequestRepository;
+        this.retention = retention;
+        this.recentResults = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(retention)
+                .build();
+    }
+
+    public Optional<Wallet> find(String requestId) {
+        Wallet cached = recentResults.getIfPresent(requestId);
+        if (cached != null) {
+            return Optional.of(copyOf(cached));
+        }
+        Optional<ProcessedRequest> processedRequest = processedRequestRepository.findById(requestId);
+        if (processedRequest.isEmpty()) {
+            return Optional.empty();
+        }
+        Wallet result = Wallet.builder()
+                .customerId(processedRequest.get().getCustomerId())
+                .balance(processedRequest.get().getBalance())
+                .sequence(processedRequest.get().getSequence())
+                .build();
+        recentResults.put(requestId, result);
+        return Optional.of(copyOf(result));
+    }
+
+    /**
+     * The stored result of {@code requestId} if {@code customerId} already made that request. Throws
+     * {@link RequestIdConflictException} when another customer did, so one customer never gets back
+     * another's wallet.
+     */
+    public Optional<Wallet> findReplay(long customerId, String requestId) {
+        Optional<Wallet> result = find(requestId);
+        if (result.isPresent() && result.get().getCustomerId() != customerId) {
+            throw new RequestIdConflictException("Request id " + requestId + " was already used by another customer");
+        }
+        return result;
+    }
+
+    /**
+     * Records the result of a request. The row joins the caller's transaction; the in-memory entry is
+     * only added once that transaction commits so a rolled back request can be retried. A concurrent
+     * duplicate fails that commit with a {@code DataIntegrityViolationException}; callers then answer it
+     * with {@link #findReplay}.
+     */
+    public void record(String requestId, Wallet result) {
+        Wallet snapshot = copyOf(result);
+        processedRequestRepository.save(ProcessedRequest.builder()
+                .requestId(requestId)
+                .customerId(snapshot.getCustomerId())
+                .balance(snapshot.getBalance())
+                .sequence(snapshot.getSequence())
+                .processedAt(Instant.now())
+                .build());
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    recentResults.put(requestId, snapshot);
+                }
+            });
+        } else {
+            recentResults.put(requestId, snapshot);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${wallet.idempotency.purge-interval-ms:3600000}")
+    @Transactional
+    public void purgeExpired() {
+        int purged = processedRequestRepository.deleteProcessedBefore(Instant.now().minus(retention));
+        log.info("Purged {} processed request ids older than {}", purged, retention);
+    }
+
+    private static Wallet copyOf(Wallet wallet) {
+        return Wallet.builder()
+                .customerId(wallet.getCustomerId())
+                .balance(wallet.getBalance())
+                .sequence(wallet.getSequence())
+                .reserved(wallet.getReserved())
+                .build();
+    }
+}
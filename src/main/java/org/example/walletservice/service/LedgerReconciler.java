@@ -0,0 +1,227 @@
+package org.example.walletservice.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.walletservice.WalletRepository;
+import org.example.walletservice.dto.ReconciliationMismatch;
+import org.example.walletservice.dto.ReconciliationReport;
+import org.example.walletservice.entity.Wallet;
+import org.example.walletservice.metrics.WalletMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Checks that every wallet's balance is the one its ledger adds up to. Each wallet is compared with
+ * {@link WalletLedger#rebuildBalance} up to the wallet's own {@code sequence}: entries up to it were
+ * committed together with that balance, so the check is exact on a live database without locking
+ * anything, whatever is written meanwhile.
+ * <p>
+ * The customer id range is split in halves on a dedicated fork-join pool of
+ * {@code wallet.reconciliation.parallelism} workers (all cores when 0), into about eight leaves per worker
+ * so that work stealing evens out ranges of different density. A leaf walks its range in keyset pages of
+ * {@code wallet.reconciliation.page-size}. Every query is a short read-only transaction of its own, and
+ * each worker holds one connection at a time, so the pool size should not exceed the connection pool.
+ * <p>
+ * Runs on {@code wallet.reconciliation.cron} (off by default) or on demand. At most one scheduled or
+ * {@link #start started} run is in flight at a time; the report of the latest run is kept for
+ * {@link #lastReport}.
+ */
+@Component
+@Slf4j
+public class LedgerReconciler {
+
+    private static final int LEAVES_PER_WORKER = 8;
+
+    private final WalletRepository walletRepository;
+    private final WalletLedger walletLedger;
+    private final WalletMetrics walletMetrics;
+    private final int parallelism;
+    private final int pageSize;
+    private final int maxReported;
+    private final AtomicBoolean inFlight = new AtomicBoolean();
+    private volatile ReconciliationReport lastReport;
+
+    @Autowired
+    public LedgerReconciler(WalletRepository walletRepository, WalletLedger walletLedger, WalletMetrics walletMetrics,
+                            @Value("${wallet.reconciliation.parallelism:0}") int parallelism,
+                            @Value("${wallet.reconciliation.page-size:500}") int pageSize,
+                            @Value("${wallet.reconciliation.max-reported:1000}") int maxReported) {
+        this.walletRepository = walletRepository;
+        this.walletLedger = walletLedger;
+        this.walletMetrics = walletMetrics;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.pageSize = pageSize;
+        this.maxReported = maxReported;
+    }
+
+    @Scheduled(cron = "${wallet.reconciliation.cron:-}")
+    public void reconcileAll() {
+        if (!inFlight.compareAndSet(false, true)) {
+            log.warn("Skipping scheduled reconciliation, another run is still in flight");
+            return;
+        }
+        try {
+            reconcile(Long.MIN_VALUE, Long.MAX_VALUE);
+        } finally {
+            inFlight.set(false);
+        }
+    }
+
+    /**
+     * Starts checking the wallets with {@code fromCustomerId <= customerId <= toCustomerId} on a thread of
+     * its own, unless a run is already in flight. Returns whether it started; its report then becomes the
+     * {@link #lastReport}.
+     */
+    public boolean start(long fromCustomerId, long toCustomerId) {
+        if (!inFlight.compareAndSet(false, true)) {
+            return false;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                reconcile(fromCustomerId, toCustomerId);
+            } catch (RuntimeException e) {
+                log.error("Reconciliation of customers {} to {} failed", fromCustomerId, toCustomerId, e);
+            } finally {
+                inFlight.set(false);
+            }
+        }, "wallet-reconciliation");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    public boolean isInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Report of the latest run to complete, if any has since startup.
+     */
+    public Optional<ReconciliationReport> lastReport() {
+        return Optional.ofNullable(lastReport);
+    }
+
+    /**
+     * Checks the wallets with {@code fromCustomerId <= customerId <= toCustomerId}.
+     */
+    public ReconciliationReport reconcile(long fromCustomerId, long toCustomerId) {
+        long start = System.nanoTime();
+        Run run = new Run();
+        // Narrow the range to the ids in use, so that halving it splits actual wallets
+        Long first = walletRepository.findMinCustomerIdInRange(fromCustomerId, toCustomerId);
+        Long last = walletRepository.findMaxCustomerIdInRange(fromCustomerId, toCustomerId);
+        if (first != null && last != null) {
+            long leafWidth = Math.max(1, halfWidth(first, last) / (parallelism * LEAVES_PER_WORKER) * 2);
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                pool.invoke(new RangeTask(first, last, leafWidth, run));
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        List<ReconciliationMismatch> mismatches = new ArrayList<>(run.reported);
+        long mismatchCount = run.mismatches.get();
+        walletMetrics.reconciliation(run.checked.sum(), mismatchCount, start);
+        ReconciliationReport report = new ReconciliationReport(fromCustomerId, toCustomerId, run.checked.sum(), mismatchCount,
+                mismatches, (System.nanoTime() - start) / 1_000_000);
+        if (mismatchCount > 0) {
+            mismatches.forEach(mismatch -> log.warn("Ledger mismatch: {}", mismatch));
+            log.error("Reconciliation of customers {} to {} found {} mismatches in {} wallets ({} ms)", fromCustomerId,
+                    toCustomerId, mismatchCount, report.getWalletsChecked(), report.getDurationMs());
+        } else {
+            log.info("Reconciliation of customers {} to {} checked {} wallets, no mismatches ({} ms)", fromCustomerId,
+                    toCustomerId, report.getWalletsChecked(), report.getDurationMs());
+        }
+        lastReport = report;
+        return report;
+    }
+
+    private void reconcileLeaf(long from, long to, Run run) {
+        long next = from;
+        while (true) {
+            List<Wallet> page = walletRepository.findPageInRange(next, to, PageRequest.of(0, pageSize));
+            for (Wallet wallet : page) {
+                check(wallet, run);
+            }
+            if (page.size() < pageSize) {
+                return;
+            }
+            long lastId = page.get(page.size() - 1).getCustomerId();
+            if (lastId >= to) {
+                return;
+            }
+            next = lastId + 1;
+        }
+    }
+
+    private void check(Wallet wallet, Run run) {
+        run.checked.increment();
+        Long ledgerBalance;
+        try {
+            ledgerBalance = walletLedger.rebuildBalance(wallet.getCustomerId(), wallet.getSequence());
+        } catch (ArithmeticException e) {
+            ledgerBalance = null;
+        }
+        if (ledgerBalance != null && ledgerBalance == wallet.getBalance()) {
+            return;
+        }
+        if (run.mismatches.incrementAndGet() <= maxReported) {
+            run.reported.add(new ReconciliationMismatch(wallet.getCustomerId(), wallet.getSequence(), wallet.getBalance(), ledgerBalance));
+        }
+    }
+
+    // Half of last - first, which cannot overflow whatever the signs
+    private static long halfWidth(long first, long last) {
+        return (last >> 1) - (first >> 1);
+    }
+
+    /**
+     * Tallies of one run, shared by its tasks.
+     */
+    private static class Run {
+
+        private final LongAdder checked = new LongAdder();
+        private final AtomicLong mismatches = new AtomicLong();
+        private final Queue<ReconciliationMismatch> reported = new ConcurrentLinkedQueue<>();
+    }
+
+    private class RangeTask extends RecursiveAction {
+
+        private final long from;
+        private final long to;
+        private final long leafWidth;
+        private final Run run;
+
+        private RangeTask(long from, long to, long leafWidth, Run run) {
+            this.from = from;
+            this.to = to;
+            this.leafWidth = leafWidth;
+            this.run = run;
+        }
+
+        @Override
+        protected void compute() {
+            if (halfWidth(from, to) <= leafWidth / 2) {
+                reconcileLeaf(from, to, run);
+                return;
+            }
+            // Floor of the average without overflow
+            long middle = (from & to) + ((from ^ to) >> 1);
+            invokeAll(new RangeTask(from, middle, leafWidth, run), new RangeTask(middle + 1, to, leafWidth, run));
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package org.example.walletservice.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hashed timing wheel: {@code wheelSize} buckets, one advanced every {@code tickNanos} by a single thread.
+ * Scheduling and cancelling are O(1) queue offers from any thread; the wheel thread moves new timeouts
+ * into their bucket and unlinks cancelled ones at the next tick, then fires what is due in the current
+ * bucket. A timeout further out than one revolution waits out the remaining rounds in its bucket.
+ * <p>
+ * Timeouts fire up to one tick late and never early. Tasks run on the wheel thread, so a slow task
+ * delays the following ticks rather than losing them.
+ */
+@Slf4j
+public final class TimerWheel {
+
+    public interface Timeout {
+
+        /**
+         * Returns false if the task has already run or been cancelled.
+         */
+        boolean cancel();
+    }
+
+    private static final int PENDING = 0;
+    private static final int CANCELLED = 1;
+    private static final int FIRED = 2;
+
+    private final String name;
+    private final long tickNanos;
+    private final Bucket[] buckets;
+    private final int mask;
+    private final Queue<Entry> scheduled = new ConcurrentLinkedQueue<>();
+    private final Queue<Entry> cancelled = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private volatile long startNanos;
+    private volatile boolean running;
+    private Thread worker;
+
+    public TimerWheel(String name, long tickNanos, int wheelSize) {
+        if (tickNanos <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("tick and wheel size must be positive");
+        }
+        this.name = name;
+        this.tickNanos = tickNanos;
+        int capacity = 1;
+        while (capacity < wheelSize) {
+            capacity <<= 1;
+        }
+        this.buckets = new Bucket[capacity];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new Bucket();
+        }
+        this.mask = buckets.length - 1;
+    }
+
+    /**
+     * Runs {@code task} on the wheel thread once {@code System.nanoTime()} reaches {@code deadlineNanos}.
+     * A deadline already passed fires on the next tick.
+     */
+    public Timeout schedule(long deadlineNanos, Runnable task) {
+        Entry entry = new Entry(deadlineNanos, task);
+        size.incrementAndGet();
+        scheduled.offer(entry);
+        return entry;
+    }
+
+    /**
+     * Timeouts scheduled and neither fired nor cancelled yet.
+     */
+    public int size() {
+        return size.get();
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        startNanos = System.nanoTime();
+        running = true;
+        worker = new Thread(this::run, name);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Stops the wheel thread; timeouts that have not fired are dropped.
+     */
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(worker);
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        long tick = 0;
+        while (running) {
+            long tickEnd = startNanos + (tick + 1) * tickNanos;
+            long now;
+            while ((now = System.nanoTime()) < tickEnd && running) {
+                LockSupport.parkNanos(this, tickEnd - now);
+            }
+            if (!running) {
+                return;
+            }
+            unlinkCancelled();
+            transferScheduled(tick);
+            buckets[(int) (tick & mask)].expire();
+            tick++;
+        }
+    }
+
+    private void unlinkCancelled() {
+        Entry entry;
+        while ((entry = cancelled.poll()) != null) {
+            if (entry.bucket != null) {
+                entry.bucket.remove(entry);
+            }
+        }
+    }
+
+    private void transferScheduled(long currentTick) {
+        Entry entry;
+        while ((entry = scheduled.poll()) != null) {
+            if (entry.state.get() != PENDING) {
+                continue;
+            }
+            // The tick whose end passes the deadline; anything overdue goes in the current bucket
+            long dueTick = Math.max(Math.floorDiv(entry.deadlineNanos - startNanos, tickNanos), currentTick);
+            entry.rounds = (dueTick - currentTick) / buckets.length;
+            buckets[(int) (dueTick & mask)].add(entry);
+        }
+    }
+
+    private final class Entry implements Timeout {
+
+        private final long deadlineNanos;
+        private final Runnable task;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+        // Only touched by the wheel thread
+        private long rounds;
+        private Bucket bucket;
+        private Entry previous;
+        private Entry next;
+
+        private Entry(long deadlineNanos, Runnable task) {
+            this.deadlineNanos = deadlineNanos;
+            this.task = task;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (!state.compareAndSet(PENDING, CANCELLED)) {
+                return false;
+            }
+            size.decrementAndGet();
+            cancelled.offer(this);
+            return true;
+        }
+    }
+
+    // Doubly linked so that a cancelled entry is unlinked in O(1)
+    private final class Bucket {
+
+        private Entry head;
+        private Entry tail;
+
+        private void add(Entry entry) {
+            entry.bucket = this;
+            entry.previous = tail;
+            entry.next = null;
+            if (tail == null) {
+                head = entry;
+            } else {
+                tail.next = entry;
+            }
+            tail = entry;
+        }
+
+        private void remove(Entry entry) {
+            if (entry.previous == null) {
+                head = entry.next;
+            } else {
+                entry.previous.next = entry.next;
+            }
+            if (entry.next == null) {
+                tail = entry.previous;
+            } else {
+                entry.next.previous = entry.previous;
+            }
+            entry.bucket = null;
+            entry.previous = null;
+            entry.next = null;
+        }
+
+        private void expire() {
+            Entry entry = head;
+            while (entry != null) {
+                Entry next = entry.next;
+                if (entry.rounds > 0) {
+                    entry.rounds--;
+                } else {
+                    remove(entry);
+                    if (entry.state.compareAndSet(PENDING, FIRED)) {
+                        size.decrementAndGet();
+                        fire(entry);
+                    }
+                }
+                entry = next;
+            }
+        }
+
+        private void fire(Entry entry) {
+            try {
+                entry.task.run();
+            } catch (RuntimeException e) {
+                log.error("Timer task failed on {}", name, e);
+            }
+        }
+    }
+}
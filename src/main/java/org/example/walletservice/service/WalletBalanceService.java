@@ -0,0 +1,102 @@
+package org.example.walletservice.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.walletservice.WalletRepository;
+import org.example.walletservice.engine.EngineResult;
+import org.example.walletservice.engine.WalletEngine;
+import org.example.walletservice.entity.Wallet;
+import org.example.walletservice.partition.PartitionRouter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Balance reads for many customers at once, for dashboards and risk checks. Wallets are fetched
+ * {@code wallet.balances.chunk-size} at a time with one {@code IN} query per chunk (or from the
+ * {@link WalletEngine} when it is enabled) and handed to a {@link BalanceVisitor} chunk by chunk, so a
+ * caller can stream them out. Unknown customers are reported rather than failing the whole lookup, and
+ * so are customers whose partition is owned by another instance.
+ */
+@Service
+@Slf4j
+public class WalletBalanceService {
+
+    private final WalletRepository walletRepository;
+    private final WalletEngine walletEngine;
+    private final PartitionRouter partitionRouter;
+    private final int chunkSize;
+
+    @Autowired
+    public WalletBalanceService(WalletRepository walletRepository, WalletEngine walletEngine, PartitionRouter partitionRouter,
+                                @Value("${wallet.balances.chunk-size:1000}") int chunkSize) {
+        this.walletRepository = walletRepository;
+        this.walletEngine = walletEngine;
+        this.partitionRouter = partitionRouter;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Visits every distinct customer of {@code customerIds} once, in request order.
+     */
+    public void lookup(List<Long> customerIds, BalanceVisitor visitor) {
+        List<Long> owned = new ArrayList<>(customerIds.size());
+        for (Long customerId : new LinkedHashSet<>(customerIds)) {
+            if (partitionRouter.owns(customerId)) {
+                owned.add(customerId);
+            } else {
+                visitor.wrongPartition(customerId);
+            }
+        }
+        if (walletEngine.isEnabled()) {
+            owned.forEach(customerId -> lookupInEngine(customerId, visitor));
+        } else {
+            for (int from = 0; from < owned.size(); from += chunkSize) {
+                lookupChunk(owned.subList(from, Math.min(from + chunkSize, owned.size())), visitor);
+            }
+        }
+        log.info("Looked up balances of {} customers", owned.size());
+    }
+
+    private void lookupChunk(List<Long> chunk, BalanceVisitor visitor) {
+        Map<Long, Wallet> wallets = new HashMap<>(chunk.size() * 2);
+        for (Wallet wallet : walletRepository.findByCustomerIdIn(chunk)) {
+            wallets.put(wallet.getCustomerId(), wallet);
+        }
+        for (Long customerId : chunk) {
+            Wallet wallet = wallets.get(customerId);
+            if (wallet != null) {
+                visitor.found(wallet);
+            } else {
+                visitor.unknown(customerId);
+            }
+        }
+    }
+
+    private void lookupInEngine(Long customerId, BalanceVisitor visitor) {
+        EngineResult result = walletEngine.balance(customerId);
+        if (result.status() == EngineResult.Status.UNKNOWN_CUSTOMER) {
+            visitor.unknown(customerId);
+            return;
+        }
+        visitor.found(Wallet.builder()
+                .customerId(result.customerId())
+                .balance(result.balance())
+                .sequence(result.sequence())
+                .build());
+    }
+
+    public interface BalanceVisitor {
+
+        void found(Wallet wallet);
+
+        void unknown(long customerId);
+
+        void wrongPartition(long customerId);
+    }
+}
@@ -0,0 +1,183 @@
+package org.example.walletservice.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.walletservice.dto.BalanceUpdate;
+import org.example.walletservice.dto.BatchOperation;
+import org.example.walletservice.dto.BatchOperationResult;
+import org.example.walletservice.dto.UpdateEvent;
+import org.example.walletservice.engine.EngineResult;
+import org.example.walletservice.engine.WalletEngine;
+import org.example.walletservice.entity.LedgerEntry;
+import org.example.walletservice.entity.Wallet;
+import org.example.walletservice.enums.ActionType;
+import org.example.walletservice.enums.BatchOperationStatus;
+import org.example.walletservice.enums.OperationType;
+import org.example.walletservice.exception.RequestIdConflictException;
+import org.example.walletservice.partition.PartitionRouter;
+import org.example.walletservice.store.WalletStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+/**
+ * Applies many deposits/withdrawals in one call, for settlement jobs. Operations are applied
+ * {@code wallet.batch.chunk-size} per transaction, each with the same idempotency and balance rules as
+ * the single-operation endpoints. Within a chunk they run in customer id order, so that concurrent batches
+ * lock wallet rows in the same order instead of deadlocking; each customer's operations keep their request
+ * order, and results come back in request order. A rejected operation is reported in its result and does
+ * not affect the others; the events of a chunk are queued to the outbox together. A chunk whose transaction
+ * fails reports its operations as {@link BatchOperationStatus#FAILED}, without losing the results of the
+ * chunks committed before it. With the {@link WalletEngine} enabled
+ * the operations go to the engine one by one instead. Operations on customers whose partition is owned
+ * by another instance are not applied and come back as {@link BatchOperationStatus#WRONG_PARTITION}.
+ */
+@Service
+@Slf4j
+public class WalletBatchService {
+
+    private final WalletStore walletStore;
+    private final WalletLedger walletLedger;
+    private final EventOutbox eventOutbox;
+    private final IdempotencyStore idempotencyStore;
+    private final WalletCache walletCache;
+    private final WalletEngine walletEngine;
+    private final PartitionRouter partitionRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    @Autowired
+    public WalletBatchService(WalletStore walletStore, WalletLedger walletLedger, EventOutbox eventOutbox,
+                              IdempotencyStore idempotencyStore, WalletCache walletCache, WalletEngine walletEngine,
+                              PartitionRouter partitionRouter, PlatformTransactionManager transactionManager,
+                              @Value("${wallet.batch.chunk-size:500}") int chunkSize) {
+        this.walletStore = walletStore;
+        this.walletLedger = walletLedger;
+        this.eventOutbox = eventOutbox;
+        this.idempotencyStore = idempotencyStore;
+        this.walletCache = walletCache;
+        this.walletEngine = walletEngine;
+        this.partitionRouter = partitionRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    public List<BatchOperationResult> apply(List<BatchOperation> operations) {
+        List<BatchOperationResult> results = new ArrayList<>(operations.size());
+        if (walletEngine.isEnabled()) {
+            for (BatchOperation operation : operations) {
+                results.add(partitionRouter.owns(operation.getUserId())
+                        ? applyInEngine(operation)
+                        : result(operation, BatchOperationStatus.WRONG_PARTITION, null));
+            }
+            log.info("Applied batch of {} operations in the engine", operations.size());
+            return results;
+        }
+        for (int from = 0; from < operations.size(); from += chunkSize) {
+            List<BatchOperation> chunk = operations.subList(from, Math.min(from + chunkSize, operations.size()));
+            List<BatchOperationResult> chunkResults;
+            try {
+                chunkResults = applyChunkInTransaction(chunk);
+            } catch (DataAccessException | TransactionException e) {
+                log.warn("Batch chunk of {} operations failed and was rolled back, reporting them as failed", chunk.size(), e);
+                chunkResults = chunk.stream().map(operation -> result(operation, BatchOperationStatus.FAILED, null)).toList();
+            }
+            results.addAll(chunkResults);
+        }
+        log.info("Applied batch of {} operations in chunks of {}", operations.size(), chunkSize);
+        return results;
+    }
+
+    private List<BatchOperationResult> applyChunkInTransaction(List<BatchOperation> chunk) {
+        try {
+            return transactionTemplate.execute(status -> applyChunk(chunk));
+        } catch (DataIntegrityViolationException e) {
+            // A request of the chunk was recorded concurrently; the chunk rolled back, and applied again
+            // that request is a replay
+            log.info("Batch chunk raced a concurrent duplicate request, applying it again", e);
+            return transactionTemplate.execute(status -> applyChunk(chunk));
+        }
+    }
+
+    private List<BatchOperationResult> applyChunk(List<BatchOperation> chunk) {
+        BatchOperationResult[] results = new BatchOperationResult[chunk.size()];
+        List<LedgerEntry> entries = new ArrayList<>(chunk.size());
+        List<UpdateEvent> events = new ArrayList<>(chunk.size());
+        // A stable sort, so operations on the same customer stay in request order
+        int[] order = IntStream.range(0, chunk.size()).boxed()
+                .sorted(Comparator.comparing(i -> chunk.get(i).getUserId()))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        for (int i : order) {
+            results[i] = applyOperation(chunk.get(i), entries, events);
+        }
+        if (!events.isEmpty()) {
+            walletLedger.appendAll(entries);
+            eventOutbox.enqueueAll(events, "balance-update-event");
+        }
+        return Arrays.asList(results);
+    }
+
+    private BatchOperationResult applyOperation(BatchOperation operation, List<LedgerEntry> entries, List<UpdateEvent> events) {
+        Long id = operation.getUserId();
+        if (!partitionRouter.owns(id)) {
+            return result(operation, BatchOperationStatus.WRONG_PARTITION, null);
+        }
+        Optional<Wallet> processedResult;
+        try {
+            processedResult = idempotencyStore.findReplay(id, operation.getRequestId());
+        } catch (RequestIdConflictException e) {
+            return result(operation, BatchOperationStatus.REQUEST_ID_CONFLICT, null);
+        }
+        if (processedResult.isPresent()) {
+            log.info("Request ID {} already processed. Skipping batch operation.", operation.getRequestId());
+            return result(operation, BatchOperationStatus.OK, processedResult.get().getBalance());
+        }
+
+        long amount = operation.getAmount();
+        boolean deposit = operation.getType() == OperationType.DEPOSIT;
+        BalanceUpdate update = deposit ? walletStore.credit(id, amount) : walletStore.debit(id, amount);
+        if (!update.applied()) {
+            if (walletStore.findBalanceByCustomerId(id).isEmpty()) {
+                return result(operation, BatchOperationStatus.UNKNOWN_CUSTOMER, null);
+            }
+            return result(operation, deposit ? BatchOperationStatus.BALANCE_LIMIT_EXCEEDED : BatchOperationStatus.INSUFFICIENT_FUNDS, null);
+        }
+
+        Wallet savedWallet = Wallet.builder().customerId(id).balance(update.balance()).sequence(update.sequence())
+                .reserved(update.reserved()).build();
+        entries.add(WalletLedger.entry(id, operation.getRequestId(), operation.getType(), amount, update));
+        events.add(new UpdateEvent(id, amount, deposit ? ActionType.DEBIT : ActionType.CREDIT, update.balance()));
+        idempotencyStore.record(operation.getRequestId(), savedWallet);
+        walletCache.putAfterCommit(savedWallet);
+        return result(operation, BatchOperationStatus.OK, update.balance());
+    }
+
+    private BatchOperationResult applyInEngine(BatchOperation operation) {
+        EngineResult result = operation.getType() == OperationType.DEPOSIT
+                ? walletEngine.deposit(operation.getUserId(), operation.getAmount(), operation.getRequestId())
+                : walletEngine.withdraw(operation.getUserId(), operation.getAmount(), operation.getRequestId());
+        return switch (result.status()) {
+            case OK, REPLAYED -> result(operation, BatchOperationStatus.OK, result.balance());
+            case UNKNOWN_CUSTOMER -> result(operation, BatchOperationStatus.UNKNOWN_CUSTOMER, null);
+            case INSUFFICIENT_FUNDS -> result(operation, BatchOperationStatus.INSUFFICIENT_FUNDS, null);
+            case BALANCE_LIMIT_EXCEEDED -> result(operation, BatchOperationStatus.BALANCE_LIMIT_EXCEEDED, null);
+            case REQUEST_ID_CONFLICT -> result(operation, BatchOperationStatus.REQUEST_ID_CONFLICT, null);
+        };
+    }
+
+    private static BatchOperationResult result(BatchOperation operation, BatchOperationStatus status, Long balance) {
+        return new BatchOperationResult(operation.getUserId(), operation.getRequestId(), status, balance);
+    }
+}
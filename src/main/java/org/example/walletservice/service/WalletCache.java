@@ -0,0 +1,129 @@
+package org.example.walletservice.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.example.walletservice.entity.Wallet;
+import org.example.walletservice.jms.publisher.CacheInvalidationPublisher;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Size-bounded (W-TinyLFU) cache of wallets keyed by customerId, kept current write-through by
+ * deposit/withdraw.
+ * <p>
+ * A write is put into the cache after its transaction commits and before the service call returns,
+ * so a caller never reads an older balance after its own write succeeded. Loads and puts for one key
+ * are serialized by Caffeine, so a load that read the old row cannot overwrite a newer put, and a put
+ * only replaces an entry at a lower {@code sequence}, so commits whose callbacks run out of order
+ * cannot leave the older wallet behind.
+ * <p>
+ * With {@code wallet.cache.invalidation.enabled}, every change is also announced to the other replicas
+ * through {@link CacheInvalidationPublisher}, and entries expire after {@code max-staleness} in case an
+ * announcement is lost.
+ */
+@Component
+@Slf4j
+public class WalletCache {
+
+    private final Cache<Long, Wallet> wallets;
+    private final CacheInvalidationPublisher invalidationPublisher;
+
+    @Autowired
+    public WalletCache(MeterRegistry meterRegistry, @Value("${wallet.cache.max-size:100000}") long maxSize,
+                       ObjectProvider<CacheInvalidationPublisher> invalidationPublisher,
+                       @Value("${wallet.cache.invalidation.max-staleness:30s}") Duration maxStaleness) {
+        this.invalidationPublisher = invalidationPublisher.getIfAvailable();
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats();
+        if (this.invalidationPublisher != null) {
+            builder.expireAfterWrite(maxStaleness);
+        }
+        this.wallets = builder.build();
+        CaffeineCacheMetrics.monitor(meterRegistry, wallets, "wallet-balance");
+    }
+
+    public Optional<Wallet> get(Long customerId, Function<Long, Optional<Wallet>> loader) {
+        Wallet wallet = wallets.get(customerId, id -> loader.apply(id).map(WalletCache::copyOf).orElse(null));
+        return Optional.ofNullable(wallet).map(WalletCache::copyOf);
+    }
+
+    /**
+     * Caches the wallet produced by a balance change once the surrounding transaction commits. Nothing is
+     * cached if it rolls back.
+     */
+    public void putAfterCommit(Wallet wallet) {
+        Wallet snapshot = copyOf(wallet);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    putIfNewer(snapshot);
+                }
+            });
+        } else {
+            putIfNewer(snapshot);
+        }
+    }
+
+    /**
+     * Drops the customer's entry once the surrounding transaction commits, for changes that do not produce
+     * a whole wallet to put, such as holds being placed or released.
+     */
+    public void evictAfterCommit(long customerId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(customerId);
+                }
+            });
+        } else {
+            evict(customerId);
+        }
+    }
+
+    /**
+     * Applies a change made by another replica: the entry is dropped unless it is already at
+     * {@code sequence} or later (as it is for this replica's own writes).
+     */
+    public void onRemoteUpdate(long customerId, long sequence) {
+        wallets.asMap().computeIfPresent(customerId, (id, cached) -> cached.getSequence() >= sequence ? cached : null);
+    }
+
+    private void putIfNewer(Wallet snapshot) {
+        wallets.asMap().merge(snapshot.getCustomerId(), snapshot, (cached, incoming) ->
+                incoming.getSequence() > cached.getSequence() ? incoming : cached);
+        if (invalidationPublisher != null) {
+            invalidationPublisher.publish(snapshot.getCustomerId(), snapshot.getSequence());
+        }
+    }
+
+    private void evict(long customerId) {
+        wallets.invalidate(customerId);
+        if (invalidationPublisher != null) {
+            // Holds change a wallet without moving its sequence, so every copy has to go
+            invalidationPublisher.publish(customerId, Long.MAX_VALUE);
+        }
+    }
+
+    private static Wallet copyOf(Wallet wallet) {
+        return Wallet.builder()
+                .customerId(wallet.getCustomerId())
+                .balance(wallet.getBalance())
+                .sequence(wallet.getSequence())
+                .reserved(wallet.getReserved())
+                .build();
+    }
+}
@@ -0,0 +1,94 @@
+package org.example.walletservice.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.walletservice.WalletRepository;
+import org.example.walletservice.engine.WalletEngine;
+import org.example.walletservice.entity.Wallet;
+import org.example.walletservice.enums.ExportFormat;
+import org.example.walletservice.money.MinorUnits;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes every wallet, or those in a customer id range, as NDJSON or CSV for the nightly reconciliation.
+ * Rows come from a database cursor ({@link WalletRepository#forEachWallet}) and are formatted straight
+ * into a buffered writer, so memory use does not depend on the number of wallets. Disjoint ranges can
+ * be exported in parallel and concatenated. With the {@link WalletEngine} enabled it is checkpointed
+ * first, so the export holds every operation acknowledged before it started.
+ */
+@Service
+@Slf4j
+public class WalletExportService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final WalletRepository walletRepository;
+    private final WalletEngine walletEngine;
+
+    @Autowired
+    public WalletExportService(WalletRepository walletRepository, WalletEngine walletEngine) {
+        this.walletRepository = walletRepository;
+        this.walletEngine = walletEngine;
+    }
+
+    /**
+     * Writes the wallets with {@code fromCustomerId <= customerId <= toCustomerId} to {@code out} and
+     * returns how many there were. {@code out} is flushed but not closed.
+     */
+    public long export(ExportFormat format, long fromCustomerId, long toCustomerId, OutputStream out) throws IOException {
+        if (walletEngine.isEnabled()) {
+            walletEngine.checkpoint();
+        }
+        long start = System.nanoTime();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        char[] amount = new char[MinorUnits.MAX_CHARS];
+        if (format == ExportFormat.CSV) {
+            writer.write("customerId,balance,sequence\n");
+        }
+        long exported;
+        try {
+            exported = walletRepository.forEachWallet(fromCustomerId, toCustomerId, wallet -> {
+                try {
+                    write(format, wallet, amount, writer);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+        log.info("Exported {} wallets in customer id range {}-{} as {} in {} ms", exported, fromCustomerId, toCustomerId,
+                format, (System.nanoTime() - start) / 1_000_000);
+        return exported;
+    }
+
+    private static void write(ExportFormat format, Wallet wallet, char[] amount, Writer writer) throws IOException {
+        int start = MinorUnits.format(wallet.getBalance(), amount);
+        if (format == ExportFormat.NDJSON) {
+            // Same fields and number format as the JSON API
+            writer.write("{\"customerId\":");
+            writer.write(Long.toString(wallet.getCustomerId()));
+            writer.write(",\"balance\":");
+            writer.write(amount, start, amount.length - start);
+            writer.write(",\"sequence\":");
+            writer.write(Long.toString(wallet.getSequence()));
+            writer.write("}\n");
+        } else {
+            writer.write(Long.toString(wallet.getCustomerId()));
+            writer.write(',');
+            writer.write(amount, start, amount.length - start);
+            writer.write(',');
+            writer.write(Long.toString(wallet.getSequence()));
+            writer.write('\n');
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package org.example.walletservice.service;
+
+import org.example.walletservice.BalanceSnapshotRepository;
+import org.example.walletservice.LedgerEntryRepository;
+import org.example.walletservice.dto.BalanceUpdate;
+import org.example.walletservice.dto.LedgerPage;
+import org.example.walletservice.entity.BalanceSnapshot;
+import org.example.walletservice.entity.LedgerEntry;
+import org.example.walletservice.enums.OperationType;
+import org.example.walletservice.money.MinorUnits;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only history of balance changes. Every update gets one {@link LedgerEntry} in the caller's
+ * transaction, and every {@code wallet.ledger.snapshot-interval}-th entry of a wallet also writes a
+ * {@link BalanceSnapshot}, so {@link #rebuildBalance} replays at most that many entries.
+ */
+@Component
+public class WalletLedger {
+
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final BalanceSnapshotRepository balanceSnapshotRepository;
+    private final long snapshotInterval;
+    private final int maxPageSize;
+
+    @Autowired
+    public WalletLedger(LedgerEntryRepository ledgerEntryRepository, BalanceSnapshotRepository balanceSnapshotRepository,
+                        @Value("${wallet.ledger.snapshot-interval:100}") long snapshotInterval,
+                        @Value("${wallet.ledger.max-page-size:500}") int maxPageSize) {
+        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.balanceSnapshotRepository = balanceSnapshotRepository;
+        this.snapshotInterval = snapshotInterval;
+        this.maxPageSize = maxPageSize;
+    }
+
+    public static LedgerEntry entry(long customerId, String requestId, OperationType type, long amount, BalanceUpdate update) {
+        return LedgerEntry.builder()
+                .customerId(customerId)
+                .sequence(update.sequence())
+                .requestId(requestId)
+                .type(type)
+                .amount(amount)
+                .balanceAfter(update.balance())
+                .build();
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(LedgerEntry entry) {
+        appendAll(List.of(entry));
+    }
+
+    /**
+     * Appends several entries at once; the rows are written with batched inserts.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void appendAll(List<LedgerEntry> entries) {
+        Instant now = Instant.now();
+        List<BalanceSnapshot> snapshots = new ArrayList<>();
+        for (LedgerEntry entry : entries) {
+            entry.setCreatedAt(now);
+            if (entry.getSequence() % snapshotInterval == 0) {
+                snapshots.add(snapshot(entry.getCustomerId(), entry.getSequence(), entry.getBalanceAfter(), now));
+            }
+        }
+        ledgerEntryRepository.saveAll(entries);
+        if (!snapshots.isEmpty()) {
+            balanceSnapshotRepository.saveAll(snapshots);
+        }
+    }
+
+    /**
+     * Records the balance new wallets start with, so a rebuild does not assume they started empty.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void openAll(List<Long> customerIds, long openingBalance) {
+        Instant now = Instant.now();
+        balanceSnapshotRepository.saveAll(customerIds.stream()
+                .map(customerId -> snapshot(customerId, 0, openingBalance, now))
+                .toList());
+    }
+
+    /**
+     * Entries older than {@code beforeSequence} (or the newest ones when it is null), newest first.
+     */
+    @Transactional(readOnly = true)
+    public LedgerPage page(long customerId, Long beforeSequence, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, maxPageSize));
+        List<LedgerEntry> entries = ledgerEntryRepository.findPageBefore(customerId,
+                beforeSequence == null ? Long.MAX_VALUE : beforeSequence, PageRequest.of(0, pageSize));
+        Long nextBefore = entries.size() == pageSize ? entries.get(pageSize - 1).getSequence() : null;
+        return new LedgerPage(entries, nextBefore);
+    }
+
+    /**
+     * The balance right after entry {@code upToSequence}, computed from the latest snapshot at or before
+     * it plus the entries that follow.
+     */
+    @Transactional(readOnly = true)
+    public long rebuildBalance(long customerId, long upToSequence) {
+        List<BalanceSnapshot> latest = balanceSnapshotRepository.findLatest(customerId, upToSequence, PageRequest.of(0, 1));
+        long fromSequence = latest.isEmpty() ? 0 : latest.get(0).getSequence();
+        long fromBalance = latest.isEmpty() ? 0 : latest.get(0).getBalance();
+        return MinorUnits.add(fromBalance,
+                ledgerEntryRepository.sumChangesBetween(customerId, fromSequence, upToSequence, OperationType.DEPOSIT));
+    }
+
+    private static BalanceSnapshot snapshot(long customerId, long sequence, long balance, Instant createdAt) {
+        return BalanceSnapshot.builder()
+                .customerId(customerId)
+                .sequence(sequence)
+                .balance(balance)
+                .createdAt(createdAt)
+                .build();
+    }
+}
@@ -1,18 +1,34 @@
 package org.example.walletservice.service;
 
 import lombok.extern.slf4j.Slf4j;
-import org.example.walletservice.WalletRepository;
+import org.example.walletservice.dto.BalanceUpdate;
+import org.example.walletservice.dto.LedgerPage;
 import org.example.walletservice.dto.UpdateEvent;
+import org.example.walletservice.engine.EngineResult;
+import org.example.walletservice.engine.WalletEngine;
 import org.example.walletservice.entity.Wallet;
 import org.example.walletservice.enums.ActionType;
+import org.example.walletservice.enums.OperationType;
+import org.example.walletservice.exception.BalanceLimitExceededException;
 import org.example.walletservice.exception.InsufficientBalanceException;
 import org.example.walletservice.exception.InvalidCustomerException;
-import org.example.walletservice.jms.publisher.EventPublisher;
+import org.example.walletservice.exception.RequestIdConflictException;
+import org.example.walletservice.metrics.WalletMetrics;
+import org.example.walletservice.metrics.WalletMetrics.Operation;
+import org.example.walletservice.metrics.WalletMetrics.Outcome;
+import org.example.walletservice.metrics.WalletMetrics.Stage;
+import org.example.walletservice.money.MinorUnits;
+import org.example.walletservice.service.CustomerExistenceIndex.Existence;
+import org.example.walletservice.store.WalletStore;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.math.BigDecimal;
-import java.util.HashSet;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
@@ -20,22 +36,44 @@ import java.util.Set;
 @Slf4j
 public class WalletService {
 
-    private final WalletRepository walletRepository;
-    private final EventPublisher eventPublisher;
-    public final Set<String> processedRequestIds = new HashSet<>();
+    private final WalletStore walletStore;
+    private final WalletLedger walletLedger;
+    private final EventOutbox eventOutbox;
+    private final IdempotencyStore idempotencyStore;
+    private final WalletCache walletCache;
+    private final WalletMetrics walletMetrics;
+    private final WalletEngine walletEngine;
+    private final CustomerExistenceIndex existenceIndex;
+    private final TransactionTemplate transactionTemplate;
 
     @Autowired
-    public WalletService(WalletRepository walletRepository, EventPublisher eventPublisher) {
-        this.walletRepository = walletRepository;
-        this.eventPublisher = eventPublisher;
+    public WalletService(WalletStore walletStore, WalletLedger walletLedger, EventOutbox eventOutbox,
+                         IdempotencyStore idempotencyStore, WalletCache walletCache, WalletMetrics walletMetrics,
+                         WalletEngine walletEngine, CustomerExistenceIndex existenceIndex,
+                         PlatformTransactionManager transactionManager) {
+        this.walletStore = walletStore;
+        this.walletLedger = walletLedger;
+        this.eventOutbox = eventOutbox;
+        this.idempotencyStore = idempotencyStore;
+        this.walletCache = walletCache;
+        this.walletMetrics = walletMetrics;
+        this.walletEngine = walletEngine;
+        this.existenceIndex = existenceIndex;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
 
-    public void createWallet(Long customerId, BigDecimal initialBalance) {
+    @Transactional
+    public void createWallet(Long customerId, long initialBalance) {
 
 
         log.info("Creating wallet for customerId :{} ", customerId);
-        Optional<Wallet> existingWallet = walletRepository.findByCustomerId(customerId);
+        // Redelivered registrations are answered from memory
+        if (existenceIndex.lookup(customerId) == Existence.EXISTS) {
+            log.info("Wallet already exists for customerId :{} ", customerId);
+            return;
+        }
+        Optional<Wallet> existingWallet = walletStore.findByCustomerId(customerId);
         if (existingWallet.isPresent()) {
             log.info("Wallet already exists for customerId :{} ", customerId);
             return; // No need to create a new wallet if it already exists
@@ -45,65 +83,245 @@ public class WalletService {
                 .customerId(customerId)
                 .balance(initialBalance)
                 .build();
-        walletRepository.save(wallet);
+        walletStore.insert(wallet);
+        if (initialBalance != 0) {
+            walletLedger.openAll(List.of(customerId), initialBalance);
+        }
+        walletEngine.registerAfterCommit(List.of(customerId), initialBalance);
+        existenceIndex.addAfterCommit(List.of(customerId));
         log.info("Successfully created wallet for customerId :{} ", customerId);
 
     }
 
-    public Wallet deposit(Long id, BigDecimal amount, String requestId) {
-        if (processedRequestIds.contains(requestId)) {
+    /**
+     * Creates wallets for every customer in {@code customerIds} that does not have one yet, using one
+     * existence query and batched inserts. Returns the number of wallets created.
+     */
+    @Transactional
+    public int createWallets(Collection<Long> customerIds, long initialBalance) {
+        if (customerIds.isEmpty()) {
+            return 0;
+        }
+        List<Long> candidates = customerIds.stream()
+                .filter(customerId -> existenceIndex.lookup(customerId) != Existence.EXISTS)
+                .toList();
+        Set<Long> existingCustomerIds = candidates.isEmpty() ? Set.of() : walletStore.findExistingCustomerIds(candidates);
+        List<Wallet> newWallets = candidates.stream()
+                .filter(customerId -> !existingCustomerIds.contains(customerId))
+                .map(customerId -> Wallet.builder().customerId(customerId).balance(initialBalance).build())
+                .toList();
+        walletStore.insertAll(newWallets);
+        List<Long> newCustomerIds = newWallets.stream().map(Wallet::getCustomerId).toList();
+        if (initialBalance != 0 && !newCustomerIds.isEmpty()) {
+            walletLedger.openAll(newCustomerIds, initialBalance);
+        }
+        walletEngine.registerAfterCommit(newCustomerIds, initialBalance);
+        existenceIndex.addAfterCommit(newCustomerIds);
+        log.info("Created {} wallets, {} already existed", newWallets.size(), customerIds.size() - newWallets.size());
+        return newWallets.size();
+    }
+
+    public Wallet deposit(Long id, long amount, String requestId) {
+        long operationStart = System.nanoTime();
+        if (walletEngine.isEnabled()) {
+            log.debug("Depositing {} for customerId :{} in the engine", MinorUnits.toString(amount), id);
+            return engineResult(Operation.DEPOSIT, walletEngine.deposit(id, amount, requestId), operationStart);
+        }
+        rejectIfAbsent(Operation.DEPOSIT, id, operationStart);
+        try {
+            return transactionTemplate.execute(status -> depositInDatabase(id, amount, requestId, operationStart));
+        } catch (DataIntegrityViolationException e) {
+            return concurrentReplay(id, requestId, e);
+        }
+    }
+
+    public Wallet withdraw(Long id, long amount, String requestId) {
+        long operationStart = System.nanoTime();
+        if (walletEngine.isEnabled()) {
+            log.debug("Withdrawing {} for customerId :{} in the engine", MinorUnits.toString(amount), id);
+            return engineResult(Operation.WITHDRAW, walletEngine.withdraw(id, amount, requestId), operationStart);
+        }
+        rejectIfAbsent(Operation.WITHDRAW, id, operationStart);
+        try {
+            return transactionTemplate.execute(status -> withdrawInDatabase(id, amount, requestId, operationStart));
+        } catch (DataIntegrityViolationException e) {
+            return concurrentReplay(id, requestId, e);
+        }
+    }
+
+    private Wallet depositInDatabase(Long id, long amount, String requestId, long operationStart) {
+        Optional<Wallet> processedResult = findReplay(Operation.DEPOSIT, id, requestId, operationStart);
+        long stageStart = walletMetrics.lap(Operation.DEPOSIT, Stage.IDEMPOTENCY_LOOKUP, operationStart);
+        if (processedResult.isPresent()) {
             log.info("Request ID {} already processed. Skipping deposit.", requestId);
-            return walletRepository.findByCustomerId(id)
-                    .orElseThrow(() -> new InvalidCustomerException("Customer with id " + id + " does not exist"));
+            walletMetrics.complete(Operation.DEPOSIT, Outcome.REPLAYED, operationStart);
+            return processedResult.get();
         }
 
-        log.info("Depositing {} for customerId :{} ", amount, id);
-        Optional<Wallet> wallet = walletRepository.findByCustomerId(id);
-        if (wallet.isEmpty()) {
-            log.info("Customer Not Present: {}", id);
-            throw new InvalidCustomerException("Customer with id " + id + " does not exist");
+        log.info("Depositing {} for customerId :{} ", MinorUnits.toString(amount), id);
+        BalanceUpdate update = walletStore.credit(id, amount);
+        stageStart = walletMetrics.lap(Operation.DEPOSIT, Stage.BALANCE_UPDATE, stageStart);
+        if (!update.applied()) {
+            // Nothing was updated: either the wallet is missing or the balance would overflow
+            if (walletStore.findBalanceByCustomerId(id).isEmpty()) {
+                log.info("Customer Not Present: {}", id);
+                existenceIndex.recordAbsent(id);
+                walletMetrics.complete(Operation.DEPOSIT, Outcome.UNKNOWN_CUSTOMER, operationStart);
+                throw new InvalidCustomerException("Customer with id " + id + " does not exist");
+            }
+            log.info("Deposit of {} would exceed the balance limit for customerId :{}", MinorUnits.toString(amount), id);
+            walletMetrics.complete(Operation.DEPOSIT, Outcome.FAILED, operationStart);
+            throw new BalanceLimitExceededException("Deposit would exceed the balance limit");
         }
-        Wallet existingWallet = wallet.get();
-        BigDecimal newBalance = existingWallet.getBalance().add(amount);
-        existingWallet.setBalance(newBalance);
-        Wallet savedWallet = walletRepository.save(existingWallet);
-        log.info("Deposited {} for customerId :{}. New Balance: {}", amount, id, newBalance);
-        eventPublisher.publish(new UpdateEvent(id, amount, ActionType.DEBIT, newBalance),"balance-update-event");
-        processedRequestIds.add(requestId);
+        long newBalance = update.balance();
+        Wallet savedWallet = Wallet.builder().customerId(id).balance(newBalance).sequence(update.sequence())
+                .reserved(update.reserved()).build();
+        log.info("Deposited {} for customerId :{}. New Balance: {}", MinorUnits.toString(amount), id, MinorUnits.toString(newBalance));
+        walletLedger.append(WalletLedger.entry(id, requestId, OperationType.DEPOSIT, amount, update));
+        stageStart = walletMetrics.lap(Operation.DEPOSIT, Stage.LEDGER_APPEND, stageStart);
+        eventOutbox.enqueue(new UpdateEvent(id, amount, ActionType.DEBIT, newBalance),"balance-update-event");
+        stageStart = walletMetrics.lap(Operation.DEPOSIT, Stage.OUTBOX_ENQUEUE, stageStart);
+        idempotencyStore.record(requestId, savedWallet);
+        walletMetrics.lap(Operation.DEPOSIT, Stage.IDEMPOTENCY_RECORD, stageStart);
+        walletCache.putAfterCommit(savedWallet);
+        walletMetrics.complete(Operation.DEPOSIT, Outcome.OK, operationStart);
         return savedWallet;
     }
 
-    public Wallet withdraw(Long id, BigDecimal amount, String requestId) {
-        if (processedRequestIds.contains(requestId)) {
+    private Wallet withdrawInDatabase(Long id, long amount, String requestId, long operationStart) {
+        Optional<Wallet> processedResult = findReplay(Operation.WITHDRAW, id, requestId, operationStart);
+        long stageStart = walletMetrics.lap(Operation.WITHDRAW, Stage.IDEMPOTENCY_LOOKUP, operationStart);
+        if (processedResult.isPresent()) {
             log.info("Request ID {} already processed. Skipping withdrawal.", requestId);
-            return walletRepository.findByCustomerId(id)
-                    .orElseThrow(() -> new InvalidCustomerException("Customer with id " + id + " does not exist"));
+            walletMetrics.complete(Operation.WITHDRAW, Outcome.REPLAYED, operationStart);
+            return processedResult.get();
         }
 
-        log.info("Withdrawing {} for customerId :{} ", amount, id);
-        Optional<Wallet> wallet = walletRepository.findByCustomerId(id);
-        if (wallet.isEmpty()) {
-            log.info("Customer Not Present: {}", id);
-            throw new InvalidCustomerException("Customer with id " + id + " does not exist");
-        }
-        Wallet existingWallet = wallet.get();
-        if (existingWallet.getBalance().compareTo(amount) < 0) {
+        log.info("Withdrawing {} for customerId :{} ", MinorUnits.toString(amount), id);
+        BalanceUpdate update = walletStore.debit(id, amount);
+        stageStart = walletMetrics.lap(Operation.WITHDRAW, Stage.BALANCE_UPDATE, stageStart);
+        if (!update.applied()) {
+            // Nothing was updated: either the wallet is missing or it holds less than the amount
+            Optional<Long> balance = walletStore.findBalanceByCustomerId(id);
+            if (balance.isEmpty()) {
+                log.info("Customer Not Present: {}", id);
+                existenceIndex.recordAbsent(id);
+                walletMetrics.complete(Operation.WITHDRAW, Outcome.UNKNOWN_CUSTOMER, operationStart);
+                throw new InvalidCustomerException("Customer with id " + id + " does not exist");
+            }
             log.info("Insufficient balance to withdraw. Balance: {}, Withdrawal Request: {}, UserId: {}",
-                    existingWallet.getBalance(), amount, id);
+                    MinorUnits.toString(balance.get()), MinorUnits.toString(amount), id);
+            walletMetrics.complete(Operation.WITHDRAW, Outcome.INSUFFICIENT_FUNDS, operationStart);
             throw new InsufficientBalanceException("Insufficient funds");
         }
-        BigDecimal newBalance = existingWallet.getBalance().subtract(amount);
-        existingWallet.setBalance(newBalance);
-        Wallet savedWallet = walletRepository.save(existingWallet);
-        log.info("Withdrew {} for customerId :{} . New Balance: {}", amount, id, newBalance);
-        eventPublisher.publish(new UpdateEvent(id, amount, ActionType.CREDIT, newBalance),"balance-update-event");
-        processedRequestIds.add(requestId);
+        long newBalance = update.balance();
+        Wallet savedWallet = Wallet.builder().customerId(id).balance(newBalance).sequence(update.sequence())
+                .reserved(update.reserved()).build();
+        log.info("Withdrew {} for customerId :{} . New Balance: {}", MinorUnits.toString(amount), id, MinorUnits.toString(newBalance));
+        walletLedger.append(WalletLedger.entry(id, requestId, OperationType.WITHDRAW, amount, update));
+        stageStart = walletMetrics.lap(Operation.WITHDRAW, Stage.LEDGER_APPEND, stageStart);
+        eventOutbox.enqueue(new UpdateEvent(id, amount, ActionType.CREDIT, newBalance),"balance-update-event");
+        stageStart = walletMetrics.lap(Operation.WITHDRAW, Stage.OUTBOX_ENQUEUE, stageStart);
+        idempotencyStore.record(requestId, savedWallet);
+        walletMetrics.lap(Operation.WITHDRAW, Stage.IDEMPOTENCY_RECORD, stageStart);
+        walletCache.putAfterCommit(savedWallet);
+        walletMetrics.complete(Operation.WITHDRAW, Outcome.OK, operationStart);
         return savedWallet;
     }
 
     public Wallet getWallet(Long id) {
+        long operationStart = System.nanoTime();
         log.info("Balance check for customerId :{} ", id);
-        return walletRepository.findByCustomerId(id)
-                .orElseThrow(() -> new InvalidCustomerException("Wallet not found for user with id " + id));
+        if (walletEngine.isEnabled()) {
+            return engineResult(Operation.BALANCE, walletEngine.balance(id), operationStart);
+        }
+        if (existenceIndex.lookup(id) == Existence.ABSENT) {
+            walletMetrics.complete(Operation.BALANCE, Outcome.UNKNOWN_CUSTOMER, operationStart);
+            throw new InvalidCustomerException("Wallet not found for user with id " + id);
+        }
+        Optional<Wallet> wallet = walletCache.get(id, walletStore::findByCustomerId);
+        walletMetrics.complete(Operation.BALANCE, wallet.isPresent() ? Outcome.OK : Outcome.UNKNOWN_CUSTOMER, operationStart);
+        if (wallet.isEmpty()) {
+            existenceIndex.recordAbsent(id);
+        }
+        return wallet.orElseThrow(() -> new InvalidCustomerException("Wallet not found for user with id " + id));
+    }
+
+    private Optional<Wallet> findReplay(Operation operation, Long id, String requestId, long operationStart) {
+        try {
+            return idempotencyStore.findReplay(id, requestId);
+        } catch (RequestIdConflictException e) {
+            log.info("Request ID {} was already used by another customer than {}", requestId, id);
+            walletMetrics.complete(operation, Outcome.FAILED, operationStart);
+            throw e;
+        }
+    }
+
+    /**
+     * Answers a request whose commit failed because the same request, arriving concurrently, recorded its
+     * result first: that one was applied, so this one is a replay of it.
+     */
+    private Wallet concurrentReplay(Long id, String requestId, DataIntegrityViolationException e) {
+        Optional<Wallet> processedResult = idempotencyStore.findReplay(id, requestId);
+        if (processedResult.isEmpty()) {
+            throw e;
+        }
+        log.info("Request ID {} was applied concurrently. Returning its result.", requestId);
+        return processedResult.get();
+    }
+
+    /**
+     * Fails a deposit or withdrawal for a customer the existence index knows has no wallet, before any
+     * database work.
+     */
+    private void rejectIfAbsent(Operation operation, Long id, long operationStart) {
+        if (existenceIndex.lookup(id) == Existence.ABSENT) {
+            log.info("Customer Not Present: {}", id);
+            walletMetrics.complete(operation, Outcome.UNKNOWN_CUSTOMER, operationStart);
+            throw new InvalidCustomerException("Customer with id " + id + " does not exist");
+        }
+    }
+
+    /**
+     * Maps what the engine did to the wallet it returns or the exception the JPA path would throw.
+     */
+    private Wallet engineResult(Operation operation, EngineResult result, long operationStart) {
+        walletMetrics.lap(operation, Stage.BALANCE_UPDATE, operationStart);
+        switch (result.status()) {
+            case UNKNOWN_CUSTOMER -> {
+                walletMetrics.complete(operation, Outcome.UNKNOWN_CUSTOMER, operationStart);
+                throw new InvalidCustomerException("Customer with id " + result.customerId() + " does not exist");
+            }
+            case INSUFFICIENT_FUNDS -> {
+                walletMetrics.complete(operation, Outcome.INSUFFICIENT_FUNDS, operationStart);
+                throw new InsufficientBalanceException("Insufficient funds");
+            }
+            case BALANCE_LIMIT_EXCEEDED -> {
+                walletMetrics.complete(operation, Outcome.FAILED, operationStart);
+                throw new BalanceLimitExceededException("Deposit would exceed the balance limit");
+            }
+            case REQUEST_ID_CONFLICT -> {
+                walletMetrics.complete(operation, Outcome.FAILED, operationStart);
+                throw new RequestIdConflictException("Request id was already used by another customer");
+            }
+            default -> {
+                walletMetrics.complete(operation,
+                        result.status() == EngineResult.Status.REPLAYED ? Outcome.REPLAYED : Outcome.OK, operationStart);
+                return Wallet.builder()
+                        .customerId(result.customerId())
+                        .balance(result.balance())
+                        .sequence(result.sequence())
+                        .build();
+            }
+        }
+    }
+
+    public LedgerPage getTransactions(Long id, Long beforeSequence, int limit) {
+        log.info("Transaction history for customerId :{} before sequence :{}", id, beforeSequence);
+        LedgerPage page = walletLedger.page(id, beforeSequence, limit);
+        if (page.getEntries().isEmpty() && !walletStore.exists(id)) {
+            throw new InvalidCustomerException("Wallet not found for user with id " + id);
+        }
+        return page;
     }
 }
@@ -0,0 +1,135 @@
+package org.example.walletservice.store;
+
+import org.example.walletservice.dto.BalanceUpdate;
+import org.example.walletservice.entity.Wallet;
+import org.example.walletservice.money.MinorUnits;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * {@link WalletStore} in plain SQL over the {@code wallet} table Hibernate maps, with no entities,
+ * persistence context or dirty checking in between. It joins the JPA transaction through the shared
+ * connection, so ledger, outbox and idempotency rows still commit atomically with the balance.
+ * <p>
+ * Every statement is a constant string, including the existence lookup, which pads its IN list to a
+ * fixed width, so the connection's prepared statement cache (H2's query cache, MySQL's
+ * {@code cachePrepStmts}, PostgreSQL's server-side prepare) parses each one once. Inserts go out as
+ * JDBC batches of {@code wallet.store.jdbc.batch-size}.
+ */
+@Component
+@ConditionalOnProperty(name = "wallet.store", havingValue = "jdbc")
+public class JdbcWalletStore implements WalletStore {
+
+    private static final int IN_LIST_WIDTH = 100;
+
+    private static final String SELECT_WALLET =
+            "select customer_id, balance, sequence, reserved from wallet where customer_id = ?";
+    private static final String SELECT_BALANCE = "select balance from wallet where customer_id = ?";
+    private static final String SELECT_EXISTING =
+            "select customer_id from wallet where customer_id in (" + "?, ".repeat(IN_LIST_WIDTH - 1) + "?)";
+    private static final String INSERT =
+            "insert into wallet (customer_id, balance, sequence, reserved) values (?, ?, ?, ?)";
+    private static final String CREDIT =
+            "update wallet set balance = balance + ?, sequence = sequence + 1 where customer_id = ? and balance <= ?";
+    private static final String DEBIT =
+            "update wallet set balance = balance - ?, sequence = sequence + 1 where customer_id = ? and balance - reserved >= ?";
+
+    private static final RowMapper<Wallet> WALLET_MAPPER = (resultSet, rowNum) -> Wallet.builder()
+            .customerId(resultSet.getLong(1))
+            .balance(resultSet.getLong(2))
+            .sequence(resultSet.getLong(3))
+            .reserved(resultSet.getLong(4))
+            .build();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    @Autowired
+    public JdbcWalletStore(JdbcTemplate jdbcTemplate, @Value("${wallet.store.jdbc.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public Optional<Wallet> findByCustomerId(long customerId) {
+        return jdbcTemplate.query(SELECT_WALLET, WALLET_MAPPER, customerId).stream().findFirst();
+    }
+
+    @Override
+    public Optional<Long> findBalanceByCustomerId(long customerId) {
+        return jdbcTemplate.queryForList(SELECT_BALANCE, Long.class, customerId).stream().findFirst();
+    }
+
+    @Override
+    public boolean exists(long customerId) {
+        return findBalanceByCustomerId(customerId).isPresent();
+    }
+
+    @Override
+    public Set<Long> findExistingCustomerIds(Collection<Long> customerIds) {
+        Set<Long> existing = new HashSet<>();
+        List<Long> ids = new ArrayList<>(customerIds);
+        for (int from = 0; from < ids.size(); from += IN_LIST_WIDTH) {
+            List<Long> chunk = ids.subList(from, Math.min(from + IN_LIST_WIDTH, ids.size()));
+            jdbcTemplate.query(SELECT_EXISTING, statement -> {
+                // Short chunks repeat their last id to fill the fixed-width list
+                for (int i = 0; i < IN_LIST_WIDTH; i++) {
+                    statement.setLong(i + 1, chunk.get(Math.min(i, chunk.size() - 1)));
+                }
+            }, resultSet -> {
+                existing.add(resultSet.getLong(1));
+            });
+        }
+        return existing;
+    }
+
+    @Override
+    public void insert(Wallet wallet) {
+        jdbcTemplate.update(INSERT, statement -> bindInsert(statement, wallet));
+    }
+
+    @Override
+    public void insertAll(Collection<Wallet> wallets) {
+        if (!wallets.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT, wallets, batchSize, JdbcWalletStore::bindInsert);
+        }
+    }
+
+    @Override
+    public BalanceUpdate credit(long customerId, long amount) {
+        return readBack(customerId, jdbcTemplate.update(CREDIT, amount, customerId, MinorUnits.subtract(Long.MAX_VALUE, amount)));
+    }
+
+    @Override
+    public BalanceUpdate debit(long customerId, long amount) {
+        return readBack(customerId, jdbcTemplate.update(DEBIT, amount, customerId, amount));
+    }
+
+    private BalanceUpdate readBack(long customerId, int updatedRows) {
+        if (updatedRows == 0) {
+            return BalanceUpdate.NONE;
+        }
+        Wallet wallet = findByCustomerId(customerId).orElseThrow();
+        return new BalanceUpdate(updatedRows, wallet.getBalance(), wallet.getSequence(), wallet.getReserved());
+    }
+
+    private static void bindInsert(PreparedStatement statement, Wallet wallet) throws SQLException {
+        statement.setLong(1, wallet.getCustomerId());
+        statement.setLong(2, wallet.getBalance());
+        statement.setLong(3, wallet.getSequence());
+        statement.setLong(4, wallet.getReserved());
+    }
+}
@@ -0,0 +1,70 @@
+package org.example.walletservice.store;
+
+import org.example.walletservice.WalletRepository;
+import org.example.walletservice.dto.BalanceUpdate;
+import org.example.walletservice.entity.Wallet;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * {@link WalletStore} on Spring Data JPA.
+ */
+@Component
+@ConditionalOnProperty(name = "wallet.store", havingValue = "jpa", matchIfMissing = true)
+public class JpaWalletStore implements WalletStore {
+
+    private final WalletRepository walletRepository;
+
+    @Autowired
+    public JpaWalletStore(WalletRepository walletRepository) {
+        this.walletRepository = walletRepository;
+    }
+
+    @Override
+    public Optional<Wallet> findByCustomerId(long customerId) {
+        return walletRepository.findByCustomerId(customerId);
+    }
+
+    @Override
+    public Optional<Long> findBalanceByCustomerId(long customerId) {
+        return walletRepository.findBalanceByCustomerId(customerId);
+    }
+
+    @Override
+    public boolean exists(long customerId) {
+        return walletRepository.existsById(customerId);
+    }
+
+    @Override
+    public Set<Long> findExistingCustomerIds(Collection<Long> customerIds) {
+        return walletRepository.findAllById(customerIds).stream()
+                .map(Wallet::getCustomerId)
+                .collect(Collectors.toSet());
+    }
+
+    @Override
+    public void insert(Wallet wallet) {
+        walletRepository.save(wallet);
+    }
+
+    @Override
+    public void insertAll(Collection<Wallet> wallets) {
+        walletRepository.insertAll(wallets);
+    }
+
+    @Override
+    public BalanceUpdate credit(long customerId, long amount) {
+        return walletRepository.credit(customerId, amount);
+    }
+
+    @Override
+    public BalanceUpdate debit(long customerId, long amount) {
+        return walletRepository.debit(customerId, amount);
+    }
+}
@@ -0,0 +1,47 @@
+package org.example.walletservice.store;
+
+import org.example.walletservice.dto.BalanceUpdate;
+import org.example.walletservice.entity.Wallet;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Wallet rows as the deposit, withdraw, balance and registration paths need them. Writes join the
+ * caller's transaction. Selected with {@code wallet.store}: {@code jpa} (the default) goes through
+ * {@link org.example.walletservice.WalletRepository}, {@code jdbc} issues plain SQL.
+ */
+public interface WalletStore {
+
+    Optional<Wallet> findByCustomerId(long customerId);
+
+    Optional<Long> findBalanceByCustomerId(long customerId);
+
+    boolean exists(long customerId);
+
+    /**
+     * The ones among {@code customerIds} that have a wallet.
+     */
+    Set<Long> findExistingCustomerIds(Collection<Long> customerIds);
+
+    void insert(Wallet wallet);
+
+    /**
+     * Inserts wallets that are known not to exist yet, in batches.
+     */
+    void insertAll(Collection<Wallet> wallets);
+
+    /**
+     * Adds {@code amount} minor units in a single UPDATE and reads the row back. Must run inside a
+     * transaction so the balance read back is the one this update produced. No row is updated when the
+     * customer is unknown or the new balance would overflow a {@code long}.
+     */
+    BalanceUpdate credit(long customerId, long amount);
+
+    /**
+     * Subtracts {@code amount} minor units only if at least that much is available, i.e. not reserved by
+     * holds. No row is updated when the customer is unknown or the funds are insufficient.
+     */
+    BalanceUpdate debit(long customerId, long amount);
+}
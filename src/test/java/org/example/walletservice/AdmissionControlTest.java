@@ -0,0 +1,148 @@
+package org.example.walletservice;
+
+import static org.junit.jupiter.api.Assertions.*;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.TimeUnit;
+import org.example.walletservice.admission.AdmissionInterceptor;
+import org.example.walletservice.admission.RateLimiter;
+import org.example.walletservice.metrics.WalletMetrics;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+class AdmissionControlTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void testBucketAllowsBurstThenRefillsAtRate() {
+        RateLimiter limiter = new RateLimiter(10, 3, 1_000, 16);
+        long start = System.nanoTime();
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.tryAcquire("42", start));
+        }
+        long wait = limiter.tryAcquire("42", start);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), wait);
+        // Another key has its own bucket
+        assertEquals(0, limiter.tryAcquire("43", start));
+
+        assertEquals(0, limiter.tryAcquire("42", start + wait));
+        assertTrue(limiter.tryAcquire("42", start + wait) > 0);
+        // Idle for a second: a full burst again, but no more
+        long later = start + TimeUnit.SECONDS.toNanos(1);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.tryAcquire("42", later));
+        }
+        assertTrue(limiter.tryAcquire("42", later) > 0);
+    }
+
+    @Test
+    void testKeysDoNotShareABucketUntilTheMapIsFull() {
+        // A single stripe: before, every key drew on the same budget
+        RateLimiter limiter = new RateLimiter(1, 1, 100, 1);
+        long now = System.nanoTime();
+
+        for (int key = 0; key < 100; key++) {
+            assertEquals(0, limiter.tryAcquire("customer-" + key, now));
+            assertTrue(limiter.tryAcquire("customer-" + key, now) > 0);
+        }
+        // Beyond the map's capacity new keys fall back to the shared stripe
+        assertEquals(0, limiter.tryAcquire("customer-100", now));
+        assertTrue(limiter.tryAcquire("customer-101", now) > 0);
+    }
+
+    @Test
+    void testCustomerOverRateIsShedWithRetryAfter() {
+        AdmissionInterceptor interceptor = new AdmissionInterceptor(true, 1, 2, 0, 1, "X-Client-Id", 0, 1_000, 16,
+                new WalletMetrics(meterRegistry));
+
+        assertTrue(interceptor.preHandle(request("7"), new MockHttpServletResponse(), null));
+        assertTrue(interceptor.preHandle(request("7"), new MockHttpServletResponse(), null));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertFalse(interceptor.preHandle(request("7"), response, null));
+
+        assertEquals(429, response.getStatus());
+        assertEquals("1", response.getHeader("Retry-After"));
+        assertTrue(interceptor.preHandle(request("8"), new MockHttpServletResponse(), null));
+        assertEquals(1.0, meterRegistry.get("wallet.admission.shed").tag("reason", "customer_rate").counter().count());
+    }
+
+    @Test
+    void testConcurrencyLimitReleasesOnCompletion() {
+        AdmissionInterceptor interceptor = new AdmissionInterceptor(true, 0, 1, 0, 1, "X-Client-Id", 2, 1_000, 16,
+                new WalletMetrics(meterRegistry));
+        MockHttpServletRequest first = request("1");
+        MockHttpServletRequest second = request("2");
+
+        assertTrue(interceptor.preHandle(first, new MockHttpServletResponse(), null));
+        assertTrue(interceptor.preHandle(second, new MockHttpServletResponse(), null));
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        assertFalse(interceptor.preHandle(request("3"), rejected, null));
+        assertEquals(429, rejected.getStatus());
+        assertEquals(2, interceptor.inFlight());
+
+        interceptor.afterCompletion(first, new MockHttpServletResponse(), null, null);
+        // Completing twice must not free a second permit
+        interceptor.afterCompletion(first, new MockHttpServletResponse(), null, null);
+        assertEquals(1, interceptor.inFlight());
+        assertTrue(interceptor.preHandle(request("3"), new MockHttpServletResponse(), null));
+        assertEquals(1.0, meterRegistry.get("wallet.admission.shed").tag("reason", "concurrency").counter().count());
+    }
+
+    @Test
+    void testShedRequestTakesNothingFromTheOtherLimits() {
+        // One token per customer and per client, one request in flight
+        AdmissionInterceptor interceptor = new AdmissionInterceptor(true, 1, 1, 1, 1, "X-Client-Id", 1, 1_000, 16,
+                new WalletMetrics(meterRegistry));
+        MockHttpServletRequest first = request("1", "a");
+
+        assertTrue(interceptor.preHandle(first, new MockHttpServletResponse(), null));
+        // Shed for concurrency: customer 2 and client b keep their tokens
+        assertFalse(interceptor.preHandle(request("2", "b"), new MockHttpServletResponse(), null));
+        interceptor.afterCompletion(first, new MockHttpServletResponse(), null, null);
+        // Shed by client a's bucket: customer 3 gets its token back and the permit is released
+        assertFalse(interceptor.preHandle(request("3", "a"), new MockHttpServletResponse(), null));
+        assertEquals(0, interceptor.inFlight());
+
+        MockHttpServletRequest second = request("2", "b");
+        assertTrue(interceptor.preHandle(second, new MockHttpServletResponse(), null));
+        interceptor.afterCompletion(second, new MockHttpServletResponse(), null, null);
+        assertTrue(interceptor.preHandle(request("3", "c"), new MockHttpServletResponse(), null));
+    }
+
+    @Test
+    void testRefundedPermitCanBeTakenAgain() {
+        RateLimiter limiter = new RateLimiter(1, 1, 1_000, 16);
+        long now = System.nanoTime();
+
+        assertEquals(0, limiter.tryAcquire("42", now));
+        assertTrue(limiter.tryAcquire("42", now) > 0);
+        limiter.refund("42");
+        assertEquals(0, limiter.tryAcquire("42", now));
+        assertTrue(limiter.tryAcquire("42", now) > 0);
+    }
+
+    @Test
+    void testDisabledAdmitsEverything() {
+        AdmissionInterceptor interceptor = new AdmissionInterceptor(false, 1, 1, 1, 1, "X-Client-Id", 1, 1_000, 16,
+                new WalletMetrics(meterRegistry));
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(interceptor.preHandle(request("7"), new MockHttpServletResponse(), null));
+        }
+        assertEquals(0, interceptor.inFlight());
+    }
+
+    private static MockHttpServletRequest request(String userId) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/wallet/withdraw");
+        request.addHeader("userId", userId);
+        return request;
+    }
+
+    private static MockHttpServletRequest request(String userId, String client) {
+        MockHttpServletRequest request = request(userId);
+        request.addHeader("X-Client-Id", client);
+        return request;
+    }
+}
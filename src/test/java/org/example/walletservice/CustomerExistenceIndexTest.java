@@ -0,0 +1,84 @@
+package org.example.walletservice;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.LongStream;
+import org.example.walletservice.service.CustomerExistenceIndex;
+import org.example.walletservice.service.CustomerExistenceIndex.Existence;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Pageable;
+
+class CustomerExistenceIndexTest {
+
+    @Mock
+    private WalletRepository walletRepository;
+
+    // Every third id from -30000, zero included, spanning several load pages
+    private final List<Long> customerIds = LongStream.rangeClosed(-10_000, 10_000).map(i -> i * 3).boxed().toList();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(walletRepository.findCustomerIdsFrom(anyLong(), any())).thenAnswer(invocation -> {
+            long from = invocation.getArgument(0);
+            Pageable pageable = invocation.getArgument(1);
+            return customerIds.stream().filter(id -> id >= from).limit(pageable.getPageSize()).toList();
+        });
+    }
+
+    @Test
+    void testLoadsEveryWalletOnStart() {
+        CustomerExistenceIndex index = new CustomerExistenceIndex(walletRepository, true, false, Duration.ofSeconds(2), 1000);
+        index.start();
+
+        assertEquals(customerIds.size(), index.size());
+        for (long customerId = -30_002; customerId <= 30_002; customerId++) {
+            Existence expected = customerId % 3 == 0 && Math.abs(customerId) <= 30_000 ? Existence.EXISTS : Existence.UNKNOWN;
+            assertEquals(expected, index.lookup(customerId), "customer " + customerId);
+        }
+    }
+
+    @Test
+    void testNegativeEntriesUntilCreated() {
+        CustomerExistenceIndex index = new CustomerExistenceIndex(walletRepository, true, false, Duration.ofSeconds(2), 1000);
+        index.start();
+
+        index.recordAbsent(1);
+        assertEquals(Existence.ABSENT, index.lookup(1));
+        assertEquals(Existence.UNKNOWN, index.lookup(2));
+
+        index.addAfterCommit(List.of(1L));
+        assertEquals(Existence.EXISTS, index.lookup(1));
+    }
+
+    @Test
+    void testAuthoritativeOnlyOnceLoaded() {
+        CustomerExistenceIndex index = new CustomerExistenceIndex(walletRepository, true, true, Duration.ZERO, 1000);
+        assertEquals(Existence.UNKNOWN, index.lookup(1));
+
+        index.start();
+        assertEquals(Existence.ABSENT, index.lookup(1));
+        assertEquals(Existence.EXISTS, index.lookup(3));
+        index.recordAbsent(4);
+        index.addAfterCommit(List.of(4L));
+        assertEquals(Existence.EXISTS, index.lookup(4));
+    }
+
+    @Test
+    void testDisabledKnowsNothing() {
+        CustomerExistenceIndex index = new CustomerExistenceIndex(walletRepository, false, true, Duration.ofSeconds(2), 1000);
+        index.start();
+
+        index.recordAbsent(1);
+        assertEquals(Existence.UNKNOWN, index.lookup(1));
+        assertEquals(Existence.UNKNOWN, index.lookup(3));
+        verify(walletRepository, never()).findCustomerIdsFrom(anyLong(), any());
+    }
+}
@@ -0,0 +1,148 @@
+package org.example.walletservice;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.example.walletservice.jms.listener.CustomerLanes;
+import org.junit.jupiter.api.Test;
+
+class CustomerLanesTest {
+
+    @Test
+    void testEventsOfACustomerRunInDispatchOrder() throws Exception {
+        CustomerLanes lanes = new CustomerLanes(4, 8, Duration.ofSeconds(30));
+        lanes.start();
+        Map<Long, List<Integer>> seen = new ConcurrentHashMap<>();
+        int customers = 32;
+        int eventsPerCustomer = 200;
+
+        for (int event = 0; event < eventsPerCustomer; event++) {
+            for (long customerId = 1; customerId <= customers; customerId++) {
+                int order = event;
+                long id = customerId;
+                lanes.dispatch(customerId, () -> seen.computeIfAbsent(id, key -> Collections.synchronizedList(new ArrayList<>())).add(order));
+            }
+        }
+        lanes.stop();
+
+        assertEquals(customers, seen.size());
+        for (List<Integer> orders : seen.values()) {
+            assertEquals(eventsPerCustomer, orders.size());
+            for (int i = 0; i < eventsPerCustomer; i++) {
+                assertEquals(i, orders.get(i));
+            }
+        }
+    }
+
+    @Test
+    void testFullLaneBlocksDispatch() throws Exception {
+        CustomerLanes lanes = new CustomerLanes(1, 2, Duration.ofSeconds(30));
+        lanes.start();
+        CountDownLatch release = new CountDownLatch(1);
+        // One task running and two queued fill the lane
+        for (int i = 0; i < 3; i++) {
+            lanes.dispatch(1L, () -> await(release));
+        }
+
+        AtomicBoolean dispatched = new AtomicBoolean();
+        Thread producer = new Thread(() -> {
+            try {
+                lanes.dispatch(1L, () -> { });
+                dispatched.set(true);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        producer.start();
+        producer.join(200);
+        assertFalse(dispatched.get());
+
+        release.countDown();
+        producer.join(5_000);
+        assertTrue(dispatched.get());
+        lanes.stop();
+    }
+
+    @Test
+    void testTrackerIsDoneOnceItsOwnTasksHaveRun() throws Exception {
+        CustomerLanes lanes = new CustomerLanes(2, 4, Duration.ofSeconds(30));
+        lanes.start();
+        CountDownLatch release = new CountDownLatch(1);
+        CustomerLanes.Tracker first = new CustomerLanes.Tracker();
+        lanes.track(first);
+        lanes.dispatch(1L, () -> await(release));
+        lanes.untrack();
+        long otherLaneCustomer = 2L;
+        while (lanes.laneOf(otherLaneCustomer) == lanes.laneOf(1L)) {
+            otherLaneCustomer++;
+        }
+        CustomerLanes.Tracker second = new CustomerLanes.Tracker();
+        lanes.track(second);
+        lanes.dispatch(otherLaneCustomer, () -> { });
+        lanes.untrack();
+        CustomerLanes.Tracker nothingDispatched = new CustomerLanes.Tracker();
+        lanes.track(nothingDispatched);
+        lanes.untrack();
+
+        // A later message completes while an earlier one is still running
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!second.isDone() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(second.isDone());
+        assertTrue(nothingDispatched.isDone());
+        assertFalse(first.isDone());
+
+        release.countDown();
+        deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!first.isDone() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(first.isDone());
+        lanes.stop();
+    }
+
+    @Test
+    void testStopGivesUpOnAFullLaneAtTheTimeout() throws Exception {
+        CustomerLanes lanes = new CustomerLanes(1, 1, Duration.ofMillis(200));
+        lanes.start();
+        CountDownLatch release = new CountDownLatch(1);
+        // One task stuck and one queued fill the lane
+        lanes.dispatch(1L, () -> await(release));
+        lanes.dispatch(1L, () -> { });
+
+        long start = System.nanoTime();
+        lanes.stop();
+
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        assertFalse(lanes.isRunning());
+        release.countDown();
+    }
+
+    @Test
+    void testCustomersSpreadOverLanes() {
+        CustomerLanes lanes = new CustomerLanes(8, 1, Duration.ofSeconds(30));
+        int[] counts = new int[8];
+        for (long customerId = 1; customerId <= 8000; customerId++) {
+            counts[lanes.laneOf(customerId)]++;
+        }
+        for (int count : counts) {
+            assertTrue(count > 800 && count < 1200, "lane holds " + count + " of 8000 customers");
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
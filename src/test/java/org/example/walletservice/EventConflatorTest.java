@@ -0,0 +1,81 @@
+package org.example.walletservice;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import org.example.walletservice.entity.OutboxEvent;
+import org.example.walletservice.enums.ActionType;
+import org.example.walletservice.jms.publisher.EventConflator;
+import org.example.walletservice.jms.publisher.EventConflator.Conflated;
+import org.junit.jupiter.api.Test;
+
+class EventConflatorTest {
+
+    private static final String BALANCES = "balance-update-event";
+    private static final Instant NOW = Instant.parse("2026-01-01T00:00:00Z");
+
+    private final EventConflator conflator = new EventConflator(List.of(BALANCES), Duration.ofMillis(250), ".detail");
+
+    @Test
+    void testEventsOfACustomerMergeIntoNetAmountAndFinalBalance() {
+        List<Conflated> conflated = conflator.conflate(List.of(
+                row(1, 7L, 10_00L, ActionType.DEBIT, 10_00L),
+                row(2, 8L, 5_00L, ActionType.DEBIT, 5_00L),
+                row(3, 7L, 3_00L, ActionType.CREDIT, 7_00L),
+                row(4, 7L, 1_00L, ActionType.DEBIT, 8_00L)));
+
+        assertEquals(2, conflated.size());
+        Conflated first = conflated.get(0);
+        assertEquals(BALANCES, first.destination());
+        assertEquals(7L, first.event().getCustomerId());
+        assertEquals(8_00L, first.event().getAmount());
+        assertEquals(ActionType.DEBIT, first.event().getActionType());
+        assertEquals(8_00L, first.event().getBalance());
+        assertEquals(List.of(1L, 3L, 4L), first.rows().stream().map(OutboxEvent::getId).toList());
+        assertEquals(8L, conflated.get(1).event().getCustomerId());
+        assertEquals(1, conflated.get(1).rows().size());
+    }
+
+    @Test
+    void testNetWithdrawalGoesOutAsCredit() {
+        List<Conflated> conflated = conflator.conflate(List.of(
+                row(1, 7L, 2_00L, ActionType.DEBIT, 12_00L),
+                row(2, 7L, 5_00L, ActionType.CREDIT, 7_00L)));
+
+        assertEquals(3_00L, conflated.get(0).event().getAmount());
+        assertEquals(ActionType.CREDIT, conflated.get(0).event().getActionType());
+        assertEquals(7_00L, conflated.get(0).event().getBalance());
+    }
+
+    @Test
+    void testHeldUntilOldestEventHasWaitedTheWindow() {
+        OutboxEvent event = row(1, 7L, 1_00L, ActionType.DEBIT, 1_00L);
+
+        assertTrue(event.getCreatedAt().isAfter(conflator.dueBefore(NOW.plusMillis(100))));
+        assertFalse(event.getCreatedAt().isAfter(conflator.dueBefore(NOW.plusMillis(250))));
+    }
+
+    @Test
+    void testOnlyListedDestinationsAreConflated() {
+        assertTrue(conflator.conflates(BALANCES));
+        assertFalse(conflator.conflates("dead-letter-queue"));
+        assertEquals(Set.of(BALANCES), conflator.destinations());
+        assertEquals("balance-update-event.detail", conflator.detailDestination(BALANCES));
+        assertNull(new EventConflator(List.of(BALANCES), Duration.ZERO, "").detailDestination(BALANCES));
+        assertFalse(new EventConflator(List.of(""), Duration.ZERO, "").conflates(""));
+    }
+
+    private static OutboxEvent row(long id, long customerId, long amount, ActionType actionType, long balance) {
+        return OutboxEvent.builder()
+                .id(id)
+                .destination(BALANCES)
+                .customerId(customerId)
+                .amount(amount)
+                .actionType(actionType)
+                .balance(balance)
+                .createdAt(NOW)
+                .build();
+    }
+}
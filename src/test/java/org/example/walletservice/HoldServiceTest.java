@@ -0,0 +1,237 @@
+package org.example.walletservice;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import org.example.walletservice.dto.BalanceUpdate;
+import org.example.walletservice.dto.UpdateEvent;
+import org.example.walletservice.engine.WalletEngine;
+import org.example.walletservice.entity.LedgerEntry;
+import org.example.walletservice.entity.Wallet;
+import org.example.walletservice.entity.WalletHold;
+import org.example.walletservice.enums.ActionType;
+import org.example.walletservice.enums.HoldStatus;
+import org.example.walletservice.exception.HoldNotFoundException;
+import org.example.walletservice.exception.HoldStateConflictException;
+import org.example.walletservice.exception.InsufficientBalanceException;
+import org.example.walletservice.metrics.WalletMetrics;
+import org.example.walletservice.service.EventOutbox;
+import org.example.walletservice.service.HoldService;
+import org.example.walletservice.service.WalletCache;
+import org.example.walletservice.service.WalletLedger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+
+class HoldServiceTest {
+
+    private static final long CUSTOMER_ID = 1L;
+    private static final String HOLD_ID = "hold-1";
+
+    @Mock
+    private WalletRepository walletRepository;
+
+    @Mock
+    private WalletHoldRepository walletHoldRepository;
+
+    @Mock
+    private WalletLedger walletLedger;
+
+    @Mock
+    private EventOutbox eventOutbox;
+
+    @Mock
+    private WalletCache walletCache;
+
+    @Mock
+    private WalletMetrics walletMetrics;
+
+    @Mock
+    private WalletEngine walletEngine;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private HoldService holdService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        holdService = new HoldService(walletRepository, walletHoldRepository, walletLedger, eventOutbox, walletCache,
+                walletMetrics, walletEngine, transactionManager, Duration.ofMinutes(15), Duration.ofHours(1),
+                Duration.ofMillis(10), 64, Duration.ofMillis(50));
+    }
+
+    @AfterEach
+    void tearDown() {
+        holdService.stop();
+    }
+
+    @Test
+    void testAuthorizeReservesAndSchedulesExpiry() {
+        when(walletHoldRepository.findById(HOLD_ID)).thenReturn(Optional.empty());
+        when(walletRepository.reserve(CUSTOMER_ID, 25_00L)).thenReturn(1);
+
+        WalletHold hold = holdService.authorize(CUSTOMER_ID, HOLD_ID, 25_00L, null);
+
+        assertEquals(HoldStatus.AUTHORIZED, hold.getStatus());
+        assertEquals(25_00L, hold.getAmount());
+        assertEquals(Duration.ofMinutes(15), Duration.between(hold.getCreatedAt(), hold.getExpiresAt()));
+        verify(walletHoldRepository).save(hold);
+        verify(walletCache).evictAfterCommit(CUSTOMER_ID);
+        verify(walletLedger, never()).append(any(LedgerEntry.class));
+        verify(eventOutbox, never()).enqueue(any(UpdateEvent.class), anyString());
+        assertEquals(1, holdService.pendingExpiries());
+    }
+
+    @Test
+    void testAuthorizeBeyondAvailableBalance() {
+        when(walletHoldRepository.findById(HOLD_ID)).thenReturn(Optional.empty());
+        when(walletRepository.reserve(CUSTOMER_ID, 25_00L)).thenReturn(0);
+        when(walletRepository.findBalanceByCustomerId(CUSTOMER_ID)).thenReturn(Optional.of(30_00L));
+
+        assertThrows(InsufficientBalanceException.class, () -> {
+            holdService.authorize(CUSTOMER_ID, HOLD_ID, 25_00L, null);
+        });
+
+        verify(walletHoldRepository, never()).save(any(WalletHold.class));
+        assertEquals(0, holdService.pendingExpiries());
+    }
+
+    @Test
+    void testReplayedAuthorizeReturnsExistingHold() {
+        WalletHold existing = hold(HoldStatus.AUTHORIZED);
+        when(walletHoldRepository.findById(HOLD_ID)).thenReturn(Optional.of(existing));
+
+        assertEquals(existing, holdService.authorize(CUSTOMER_ID, HOLD_ID, 25_00L, null));
+
+        verify(walletRepository, never()).reserve(anyLong(), anyLong());
+        verify(walletHoldRepository, never()).save(any(WalletHold.class));
+    }
+
+    @Test
+    void testCaptureWithdrawsTheHeldAmount() {
+        when(walletHoldRepository.findById(HOLD_ID)).thenReturn(Optional.of(hold(HoldStatus.AUTHORIZED)));
+        when(walletHoldRepository.transition(HOLD_ID, HoldStatus.AUTHORIZED, HoldStatus.CAPTURED)).thenReturn(1);
+        when(walletRepository.captureReserved(CUSTOMER_ID, 25_00L)).thenReturn(new BalanceUpdate(1, 75_00L, 4, 10_00L));
+
+        Wallet wallet = holdService.capture(CUSTOMER_ID, HOLD_ID);
+
+        assertEquals(Wallet.builder().customerId(CUSTOMER_ID).balance(75_00L).sequence(4).reserved(10_00L).build(), wallet);
+        assertEquals(65_00L, wallet.getAvailable());
+        verify(walletLedger).append(any(LedgerEntry.class));
+        verify(eventOutbox).enqueue(new UpdateEvent(CUSTOMER_ID, 25_00L, ActionType.CREDIT, 75_00L), "balance-update-event");
+        verify(walletCache).putAfterCommit(wallet);
+    }
+
+    @Test
+    void testCaptureOfExpiredHoldConflicts() {
+        WalletHold hold = hold(HoldStatus.EXPIRED);
+        when(walletHoldRepository.findById(HOLD_ID)).thenReturn(Optional.of(hold));
+        when(walletHoldRepository.transition(HOLD_ID, HoldStatus.AUTHORIZED, HoldStatus.CAPTURED)).thenReturn(0);
+
+        assertThrows(HoldStateConflictException.class, () -> {
+            holdService.capture(CUSTOMER_ID, HOLD_ID);
+        });
+
+        verify(walletRepository, never()).captureReserved(anyLong(), anyLong());
+    }
+
+    @Test
+    void testHoldOfAnotherCustomerIsNotFound() {
+        when(walletHoldRepository.findById(HOLD_ID)).thenReturn(Optional.of(hold(HoldStatus.AUTHORIZED)));
+
+        assertThrows(HoldNotFoundException.class, () -> {
+            holdService.voidHold(2L, HOLD_ID);
+        });
+
+        verify(walletHoldRepository, never()).transition(anyString(), any(), any());
+    }
+
+    @Test
+    void testVoidReleasesWithoutBalanceChange() {
+        when(walletHoldRepository.findById(HOLD_ID)).thenReturn(Optional.of(hold(HoldStatus.AUTHORIZED)));
+        when(walletHoldRepository.transition(HOLD_ID, HoldStatus.AUTHORIZED, HoldStatus.VOIDED)).thenReturn(1);
+        when(walletRepository.release(CUSTOMER_ID, 25_00L)).thenReturn(1);
+
+        WalletHold hold = holdService.voidHold(CUSTOMER_ID, HOLD_ID);
+
+        assertEquals(HoldStatus.VOIDED, hold.getStatus());
+        verify(walletRepository).release(CUSTOMER_ID, 25_00L);
+        verify(walletLedger, never()).append(any(LedgerEntry.class));
+        verify(eventOutbox, never()).enqueue(any(UpdateEvent.class), anyString());
+        verify(walletCache).evictAfterCommit(CUSTOMER_ID);
+    }
+
+    @Test
+    void testExpiryAfterVoidReleasesNothing() {
+        when(walletHoldRepository.findById(HOLD_ID)).thenReturn(Optional.of(hold(HoldStatus.VOIDED)));
+        when(walletHoldRepository.transition(HOLD_ID, HoldStatus.AUTHORIZED, HoldStatus.EXPIRED)).thenReturn(0);
+
+        holdService.expire(HOLD_ID);
+
+        verify(walletRepository, never()).release(anyLong(), anyLong());
+    }
+
+    @Test
+    void testUncapturedHoldExpiresOnTheWheel() {
+        holdService.start();
+        // Not there when authorized, there when it expires
+        when(walletHoldRepository.findById(HOLD_ID)).thenReturn(Optional.empty(), Optional.of(hold(HoldStatus.AUTHORIZED)));
+        when(walletRepository.reserve(CUSTOMER_ID, 25_00L)).thenReturn(1);
+        when(walletHoldRepository.transition(HOLD_ID, HoldStatus.AUTHORIZED, HoldStatus.EXPIRED)).thenReturn(1);
+        when(walletRepository.release(CUSTOMER_ID, 25_00L)).thenReturn(1);
+
+        holdService.authorize(CUSTOMER_ID, HOLD_ID, 25_00L, Duration.ofMillis(50));
+
+        verify(walletRepository, timeout(2_000)).release(CUSTOMER_ID, 25_00L);
+        assertEquals(0, holdService.pendingExpiries());
+    }
+
+    @Test
+    void testOverdueHoldOfAnotherInstanceIsReleasedBySweep() {
+        when(walletHoldRepository.findByStatusAndExpiresAtBeforeAndHoldIdGreaterThanOrderByHoldId(
+                eq(HoldStatus.AUTHORIZED), any(Instant.class), eq(""), any())).thenReturn(List.of(hold(HoldStatus.AUTHORIZED)));
+        when(walletHoldRepository.findById(HOLD_ID)).thenReturn(Optional.of(hold(HoldStatus.AUTHORIZED)));
+        when(walletHoldRepository.transition(HOLD_ID, HoldStatus.AUTHORIZED, HoldStatus.EXPIRED)).thenReturn(1, 0);
+        when(walletRepository.release(CUSTOMER_ID, 25_00L)).thenReturn(1);
+
+        holdService.start();
+
+        verify(walletHoldRepository, timeout(2_000).atLeast(2)).transition(HOLD_ID, HoldStatus.AUTHORIZED, HoldStatus.EXPIRED);
+        verify(walletRepository, times(1)).release(CUSTOMER_ID, 25_00L);
+    }
+
+    @Test
+    void testHoldsRefusedWhileEngineEnabled() {
+        when(walletEngine.isEnabled()).thenReturn(true);
+
+        assertThrows(HoldStateConflictException.class, () -> {
+            holdService.authorize(CUSTOMER_ID, HOLD_ID, 25_00L, null);
+        });
+
+        verify(walletRepository, never()).reserve(anyLong(), anyLong());
+    }
+
+    private static WalletHold hold(HoldStatus status) {
+        Instant now = Instant.now();
+        return WalletHold.builder()
+                .holdId(HOLD_ID)
+                .customerId(CUSTOMER_ID)
+                .amount(25_00L)
+                .status(status)
+                .createdAt(now)
+                .expiresAt(now.plus(Duration.ofMinutes(15)))
+                .build();
+    }
+}
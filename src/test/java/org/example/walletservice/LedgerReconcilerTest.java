@@ -0,0 +1,126 @@
+package org.example.walletservice;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+import org.example.walletservice.dto.ReconciliationMismatch;
+import org.example.walletservice.dto.ReconciliationReport;
+import org.example.walletservice.entity.Wallet;
+import org.example.walletservice.metrics.WalletMetrics;
+import org.example.walletservice.service.LedgerReconciler;
+import org.example.walletservice.service.WalletLedger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Pageable;
+
+class LedgerReconcilerTest {
+
+    private static final long WALLETS = 1000;
+
+    @Mock
+    private WalletRepository walletRepository;
+
+    @Mock
+    private WalletLedger walletLedger;
+
+    @Mock
+    private WalletMetrics walletMetrics;
+
+    // Sparse ids 10, 20, ..., 10000, each with a balance of ten times its sequence
+    private final List<Wallet> wallets = LongStream.rangeClosed(1, WALLETS)
+            .mapToObj(i -> Wallet.builder().customerId(i * 10).balance(i * 10).sequence(i).build())
+            .toList();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(walletRepository.findMinCustomerIdInRange(anyLong(), anyLong())).thenAnswer(invocation ->
+                inRange(invocation.getArgument(0), invocation.getArgument(1)).stream().map(Wallet::getCustomerId).findFirst().orElse(null));
+        when(walletRepository.findMaxCustomerIdInRange(anyLong(), anyLong())).thenAnswer(invocation ->
+                inRange(invocation.getArgument(0), invocation.getArgument(1)).stream().map(Wallet::getCustomerId).reduce((a, b) -> b).orElse(null));
+        when(walletRepository.findPageInRange(anyLong(), anyLong(), any())).thenAnswer(invocation -> {
+            Pageable pageable = invocation.getArgument(2);
+            return inRange(invocation.getArgument(0), invocation.getArgument(1)).stream().limit(pageable.getPageSize()).toList();
+        });
+        // Every 97th wallet's ledger is off by one minor unit
+        when(walletLedger.rebuildBalance(anyLong(), anyLong())).thenAnswer(invocation -> {
+            long sequence = invocation.getArgument(1);
+            return sequence * 10 + (sequence % 97 == 0 ? 1 : 0);
+        });
+    }
+
+    @Test
+    void testEveryWalletCheckedOnceAndMismatchesReported() {
+        LedgerReconciler reconciler = new LedgerReconciler(walletRepository, walletLedger, walletMetrics, 4, 16, 5);
+
+        ReconciliationReport report = reconciler.reconcile(Long.MIN_VALUE, Long.MAX_VALUE);
+
+        assertEquals(WALLETS, report.getWalletsChecked());
+        assertEquals(WALLETS / 97, report.getMismatchCount());
+        assertEquals(5, report.getMismatches().size());
+        for (ReconciliationMismatch mismatch : report.getMismatches()) {
+            assertEquals(0, mismatch.getSequence() % 97);
+            assertEquals(mismatch.getBalance() + 1, mismatch.getLedgerBalance());
+        }
+        verify(walletLedger, times((int) WALLETS)).rebuildBalance(anyLong(), anyLong());
+        verify(walletMetrics).reconciliation(eq(WALLETS), eq(WALLETS / 97), anyLong());
+    }
+
+    @Test
+    void testPartialRange() {
+        LedgerReconciler reconciler = new LedgerReconciler(walletRepository, walletLedger, walletMetrics, 2, 7, 100);
+
+        ReconciliationReport report = reconciler.reconcile(995, 2000);
+
+        // Wallets 1000, 1010, ..., 2000
+        assertEquals(101, report.getWalletsChecked());
+        assertEquals(List.of(1940L), report.getMismatches().stream().map(ReconciliationMismatch::getCustomerId).toList());
+    }
+
+    @Test
+    void testEmptyRange() {
+        LedgerReconciler reconciler = new LedgerReconciler(walletRepository, walletLedger, walletMetrics, 2, 7, 100);
+
+        ReconciliationReport report = reconciler.reconcile(1, 9);
+
+        assertEquals(0, report.getWalletsChecked());
+        verify(walletRepository, never()).findPageInRange(anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void testOneStartedRunAtATime() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(walletRepository.findMinCustomerIdInRange(anyLong(), anyLong())).thenAnswer(invocation -> {
+            blocked.countDown();
+            release.await();
+            return null;
+        });
+        LedgerReconciler reconciler = new LedgerReconciler(walletRepository, walletLedger, walletMetrics, 2, 7, 100);
+
+        assertTrue(reconciler.start(1, 9));
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        assertFalse(reconciler.start(1, 9));
+        assertTrue(reconciler.lastReport().isEmpty());
+
+        release.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (reconciler.isInFlight() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse(reconciler.isInFlight());
+        assertEquals(0, reconciler.lastReport().orElseThrow().getWalletsChecked());
+        assertTrue(reconciler.start(1, 9));
+    }
+
+    private List<Wallet> inRange(long from, long to) {
+        return wallets.stream().filter(wallet -> wallet.getCustomerId() >= from && wallet.getCustomerId() <= to).toList();
+    }
+}
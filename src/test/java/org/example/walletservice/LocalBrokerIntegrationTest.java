@@ -0,0 +1,66 @@
+package org.example.walletservice;
+
+import static org.junit.jupiter.api.Assertions.*;
+import jakarta.jms.Message;
+import java.time.Duration;
+import org.example.walletservice.dto.CustomerUpdateEvent;
+import org.example.walletservice.dto.UpdateEvent;
+import org.example.walletservice.enums.ActionType;
+import org.example.walletservice.jms.codec.EventCodecs;
+import org.example.walletservice.service.WalletService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * The real JMS wiring end to end against the embedded broker of the {@code local} profile: a customer
+ * event on {@code customer-update-queue} creates a wallet, and a deposit comes out on
+ * {@code balance-update-event} through the outbox relay.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = "spring.jms.template.receive-timeout=10s")
+@ActiveProfiles("local")
+class LocalBrokerIntegrationTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    @Autowired
+    private JmsTemplate jmsTemplate;
+
+    @Autowired
+    private EventCodecs eventCodecs;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private WalletService walletService;
+
+    @Test
+    void testCustomerEventCreatesWalletAndDepositIsPublished() throws Exception {
+        long customerId = 424242L;
+        jmsTemplate.send("customer-update-queue", session -> eventCodecs.encode(new CustomerUpdateEvent(customerId), session));
+        awaitWallet(customerId);
+
+        walletService.deposit(customerId, 12_34L, "local-broker-it-1");
+
+        Message message = jmsTemplate.receive("balance-update-event");
+        assertNotNull(message, "No balance event within the receive timeout");
+        UpdateEvent event = eventCodecs.decode(message, UpdateEvent.class);
+        assertEquals(customerId, event.getCustomerId());
+        // Deposits have always gone out as DEBIT on this topic
+        assertEquals(ActionType.DEBIT, event.getActionType());
+        assertEquals(12_34L, event.getAmount());
+        assertEquals(12_34L, event.getBalance());
+    }
+
+    private void awaitWallet(long customerId) throws InterruptedException {
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (!walletRepository.existsById(customerId)) {
+            assertTrue(System.nanoTime() < deadline, "Wallet " + customerId + " was not created");
+            Thread.sleep(50);
+        }
+    }
+}
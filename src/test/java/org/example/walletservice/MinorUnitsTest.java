@@ -0,0 +1,80 @@
+package org.example.walletservice;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import org.example.walletservice.dto.DepositRequestBody;
+import org.example.walletservice.dto.UpdateEvent;
+import org.example.walletservice.enums.ActionType;
+import org.example.walletservice.money.MinorUnits;
+import org.junit.jupiter.api.Test;
+
+class MinorUnitsTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void testParsePlainDecimals() {
+        assertEquals(1234L, MinorUnits.parse("12.34"));
+        assertEquals(1230L, MinorUnits.parse("12.3"));
+        assertEquals(1200L, MinorUnits.parse("12"));
+        assertEquals(5L, MinorUnits.parse("0.05"));
+        assertEquals(50L, MinorUnits.parse(".5"));
+        assertEquals(-5L, MinorUnits.parse("-0.05"));
+        assertEquals(1234L, MinorUnits.parse("12.3400"));
+    }
+
+    @Test
+    void testParseRejectsExtraPrecisionAndGarbage() {
+        assertThrows(NumberFormatException.class, () -> MinorUnits.parse("0.001"));
+        assertThrows(NumberFormatException.class, () -> MinorUnits.parse("1e2"));
+        assertThrows(NumberFormatException.class, () -> MinorUnits.parse("."));
+        assertThrows(NumberFormatException.class, () -> MinorUnits.parse(""));
+        assertThrows(NumberFormatException.class, () -> MinorUnits.parse("12a"));
+    }
+
+    @Test
+    void testParseRejectsOverflow() {
+        assertEquals(Long.MAX_VALUE, MinorUnits.parse("92233720368547758.07"));
+        assertThrows(ArithmeticException.class, () -> MinorUnits.parse("92233720368547758.08"));
+        assertThrows(ArithmeticException.class, () -> MinorUnits.parse("1000000000000000000000"));
+    }
+
+    @Test
+    void testFormat() {
+        assertEquals("0.00", MinorUnits.toString(0));
+        assertEquals("0.05", MinorUnits.toString(5));
+        assertEquals("12.34", MinorUnits.toString(1234));
+        assertEquals("-12.30", MinorUnits.toString(-1230));
+        assertEquals("92233720368547758.07", MinorUnits.toString(Long.MAX_VALUE));
+        assertEquals("-92233720368547758.08", MinorUnits.toString(Long.MIN_VALUE));
+    }
+
+    @Test
+    void testArithmeticIsOverflowChecked() {
+        assertEquals(300L, MinorUnits.add(100, 200));
+        assertThrows(ArithmeticException.class, () -> MinorUnits.add(Long.MAX_VALUE, 1));
+        assertThrows(ArithmeticException.class, () -> MinorUnits.subtract(Long.MIN_VALUE, 1));
+    }
+
+    @Test
+    void testEventJsonKeepsDecimalWireFormat() throws Exception {
+        UpdateEvent event = new UpdateEvent(7L, 25075L, ActionType.DEBIT, 1025075L);
+
+        String json = objectMapper.writeValueAsString(event);
+
+        assertTrue(json.contains("\"amount\":250.75"), json);
+        assertTrue(json.contains("\"balance\":10250.75"), json);
+        assertEquals(event, objectMapper.readValue(json, UpdateEvent.class));
+    }
+
+    @Test
+    void testRequestAmountParsedWithoutRounding() throws Exception {
+        assertEquals(10L, objectMapper.readValue("{\"amount\": 0.1}", DepositRequestBody.class).getAmount());
+        assertEquals(1999L, objectMapper.readValue("{\"amount\": \"19.99\"}", DepositRequestBody.class).getAmount());
+        assertEquals(0L, objectMapper.readValue("{\"amount\": null}", DepositRequestBody.class).getAmount());
+        assertThrows(InvalidFormatException.class,
+                () -> objectMapper.readValue("{\"amount\": 0.001}", DepositRequestBody.class));
+    }
+}
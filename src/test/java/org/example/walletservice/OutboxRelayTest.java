@@ -0,0 +1,141 @@
+package org.example.walletservice;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.LongStream;
+import org.example.walletservice.dto.UpdateEvent;
+import org.example.walletservice.entity.OutboxEvent;
+import org.example.walletservice.enums.ActionType;
+import org.example.walletservice.exception.EventPublishException;
+import org.example.walletservice.jms.publisher.EventConflator;
+import org.example.walletservice.jms.publisher.EventPublisher;
+import org.example.walletservice.jms.publisher.OutboxRelay;
+import org.example.walletservice.partition.PartitionRouter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+
+class OutboxRelayTest {
+
+    private static final String BALANCES = "balance-update-event";
+
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+
+    @Mock
+    private EventPublisher<UpdateEvent> eventPublisher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private OutboxRelay outboxRelay;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        outboxRelay = new OutboxRelay(outboxEventRepository, eventPublisher,
+                new EventConflator(List.of(), Duration.ofMillis(250), ".detail"),
+                new PartitionRouter(8, List.of(), 0), transactionManager, 100, 10_000, Duration.ofMillis(200), Duration.ofSeconds(60), Duration.ofHours(24));
+        when(eventPublisher.publishAsync(any(UpdateEvent.class), anyString())).thenReturn(CompletableFuture.completedFuture(null));
+    }
+
+    @Test
+    void testLaterEventsOfACustomerWaitForItsFailedOne() {
+        when(outboxEventRepository.lockUnsent(anyCollection(), anyBoolean(), any(Instant.class), any())).thenReturn(List.of(
+                row(1, 7L, 1_00L), row(2, 8L, 2_00L), row(3, 7L, 3_00L), row(4, 8L, 4_00L)));
+        when(eventPublisher.publishAsync(argThat(event -> event != null && event.getBalance() == 1_00L), eq(BALANCES)))
+                .thenReturn(CompletableFuture.failedFuture(new EventPublishException("broker down")));
+
+        outboxRelay.relay();
+
+        assertEquals(List.of(2L, 4L), markedSent());
+    }
+
+    @Test
+    void testBatchIsClaimedAndCommittedBeforeItIsPublished() {
+        when(outboxEventRepository.lockUnsent(anyCollection(), anyBoolean(), any(Instant.class), any())).thenReturn(List.of(
+                row(1, 7L, 1_00L), row(2, 8L, 2_00L), row(3, 7L, 3_00L)));
+        when(eventPublisher.publishAsync(argThat(event -> event != null && event.getBalance() == 1_00L), eq(BALANCES)))
+                .thenReturn(CompletableFuture.failedFuture(new EventPublishException("broker down")));
+
+        outboxRelay.relay();
+
+        InOrder inOrder = inOrder(outboxEventRepository, transactionManager, eventPublisher);
+        inOrder.verify(outboxEventRepository).claim(eq(List.of(1L, 2L, 3L)), any(Instant.class));
+        inOrder.verify(transactionManager).commit(any());
+        inOrder.verify(eventPublisher, atLeastOnce()).publishAsync(any(UpdateEvent.class), anyString());
+        inOrder.verify(outboxEventRepository).markSent(eq(List.of(2L)), any(Instant.class));
+        inOrder.verify(outboxEventRepository).releaseClaim(List.of(1L, 3L));
+        inOrder.verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void testUnconfirmedSendIsNotWaitedForBeyondTheTimeout() {
+        when(outboxEventRepository.lockUnsent(anyCollection(), anyBoolean(), any(Instant.class), any())).thenReturn(List.of(
+                row(1, 7L, 1_00L), row(2, 8L, 2_00L)));
+        when(eventPublisher.publishAsync(argThat(event -> event != null && event.getBalance() == 1_00L), eq(BALANCES)))
+                .thenReturn(new CompletableFuture<>());
+
+        long start = System.nanoTime();
+        outboxRelay.relay();
+
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(5).toNanos());
+        assertEquals(List.of(2L), markedSent());
+    }
+
+    @Test
+    void testBurstOfADueCustomerGoesOutAsOneEvent() {
+        OutboxRelay conflatingRelay = new OutboxRelay(outboxEventRepository, eventPublisher,
+                new EventConflator(List.of(BALANCES), Duration.ofMillis(250), ""),
+                new PartitionRouter(8, List.of(), 0), transactionManager, 100, 10_000, Duration.ofMillis(200), Duration.ofSeconds(60), Duration.ofHours(24));
+        // Many pages' worth of credits to one account, and a row for another destination behind them
+        List<OutboxEvent> burst = LongStream.rangeClosed(1, 1_000).mapToObj(id -> row(id, 7L, id * 1_00L)).toList();
+        OutboxEvent audit = row(1_001, 8L, 5_00L);
+        audit.setDestination("wallet-audit");
+        when(outboxEventRepository.lockUnsentExcept(eq(Set.of(BALANCES)), anyCollection(), anyBoolean(), any(Instant.class), any())).thenReturn(List.of(audit));
+        when(outboxEventRepository.findCustomersUnsentSince(eq(Set.of(BALANCES)), any(Instant.class), anyCollection(), anyBoolean(), any(Instant.class), any()))
+                .thenReturn(List.of(7L));
+        when(outboxEventRepository.lockUnsentOf(eq(Set.of(BALANCES)), eq(List.of(7L)), any(Instant.class), any())).thenReturn(burst);
+
+        conflatingRelay.relay();
+
+        verify(eventPublisher).publishAsync(new UpdateEvent(7L, 500_500_00L, ActionType.DEBIT, 1_000_00L), BALANCES);
+        verify(eventPublisher).publishAsync(new UpdateEvent(8L, 5_00L, ActionType.DEBIT, 5_00L), "wallet-audit");
+        verifyNoMoreInteractions(eventPublisher);
+        assertEquals(1_001, markedSent().size());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Long> markedSent() {
+        ArgumentCaptor<Collection<Long>> ids = ArgumentCaptor.forClass(Collection.class);
+        verify(outboxEventRepository).markSent(ids.capture(), any(Instant.class));
+        return List.copyOf(ids.getValue());
+    }
+
+    private static OutboxEvent row(long id, long customerId, long balance) {
+        return OutboxEvent.builder()
+                .id(id)
+                .destination(BALANCES)
+                .customerId(customerId)
+                .amount(balance)
+                .actionType(ActionType.DEBIT)
+                .balance(balance)
+                .createdAt(Instant.now())
+                .build();
+    }
+}
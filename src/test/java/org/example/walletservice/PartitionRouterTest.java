@@ -0,0 +1,74 @@
+package org.example.walletservice;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.List;
+import java.util.stream.LongStream;
+import org.example.walletservice.partition.PartitionRouter;
+import org.example.walletservice.partition.PartitionRoutingInterceptor;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+class PartitionRouterTest {
+
+    private final PartitionRouter first = new PartitionRouter(8, List.of("http://wallet-0:8082", "http://wallet-1:8082/"), 0);
+    private final PartitionRouter second = new PartitionRouter(8, List.of("http://wallet-0:8082", "http://wallet-1:8082/"), 1);
+
+    @Test
+    void testEveryCustomerHasExactlyOneOwner() {
+        LongStream.rangeClosed(1, 1000).forEach(customerId -> {
+            assertNotEquals(first.owns(customerId), second.owns(customerId));
+            assertEquals(first.partitionOf(customerId), second.partitionOf(customerId));
+        });
+        assertEquals(List.of(0, 2, 4, 6), first.ownedPartitions());
+        assertEquals(List.of(1, 3, 5, 7), second.ownedPartitions());
+        assertTrue(first.ownsUnassigned());
+        assertFalse(second.ownsUnassigned());
+    }
+
+    @Test
+    void testPartitionsAreSpreadEvenly() {
+        int[] counts = new int[8];
+        LongStream.rangeClosed(1, 8000).forEach(customerId -> counts[first.partitionOf(customerId)]++);
+        for (int count : counts) {
+            assertTrue(count > 800 && count < 1200, "partition holds " + count + " of 8000 customers");
+        }
+    }
+
+    @Test
+    void testSingleInstanceOwnsEverything() {
+        PartitionRouter router = new PartitionRouter(8, List.of(), 0);
+
+        assertFalse(router.isPartitioned());
+        assertTrue(router.owns(42L));
+        assertTrue(router.ownsUnassigned());
+        assertEquals("", router.messageSelector());
+    }
+
+    @Test
+    void testMessageSelectors() {
+        assertEquals("walletPartition IS NULL OR walletPartition = 0 OR walletPartition = 2 OR walletPartition = 4 OR walletPartition = 6",
+                first.messageSelector());
+        assertEquals("walletPartition = 1 OR walletPartition = 3 OR walletPartition = 5 OR walletPartition = 7",
+                second.messageSelector());
+    }
+
+    @Test
+    void testRequestForOtherPartitionIsRedirected() {
+        long foreignCustomer = LongStream.rangeClosed(1, 100).filter(id -> !first.owns(id)).findFirst().orElseThrow();
+        long ownCustomer = LongStream.rangeClosed(1, 100).filter(first::owns).findFirst().orElseThrow();
+        PartitionRoutingInterceptor interceptor = new PartitionRoutingInterceptor(first);
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/wallet/transactions");
+        request.setQueryString("limit=10");
+        request.addHeader("userId", String.valueOf(foreignCustomer));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertFalse(interceptor.preHandle(request, response, null));
+        assertEquals(307, response.getStatus());
+        assertEquals("http://wallet-1:8082/wallet/transactions?limit=10", response.getHeader("Location"));
+
+        MockHttpServletRequest ownRequest = new MockHttpServletRequest("POST", "/wallet/deposit");
+        ownRequest.addHeader("userId", String.valueOf(ownCustomer));
+        assertTrue(interceptor.preHandle(ownRequest, new MockHttpServletResponse(), null));
+    }
+}
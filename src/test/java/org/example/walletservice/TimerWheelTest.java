@@ -0,0 +1,65 @@
+package org.example.walletservice;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.example.walletservice.service.TimerWheel;
+import org.junit.jupiter.api.Test;
+
+class TimerWheelTest {
+
+    @Test
+    void testTimeoutsFireAfterDeadlineAcrossRounds() throws Exception {
+        // 8 buckets of 5 ms: deadlines up to 300 ms need several revolutions
+        TimerWheel wheel = new TimerWheel("test-wheel", TimeUnit.MILLISECONDS.toNanos(5), 8);
+        wheel.start();
+        int timeouts = 200;
+        CountDownLatch fired = new CountDownLatch(timeouts);
+        AtomicInteger early = new AtomicInteger();
+        long now = System.nanoTime();
+        for (int i = 0; i < timeouts; i++) {
+            long deadline = now + TimeUnit.MILLISECONDS.toNanos(i * 3L) - TimeUnit.MILLISECONDS.toNanos(10);
+            wheel.schedule(deadline, () -> {
+                if (System.nanoTime() < deadline) {
+                    early.incrementAndGet();
+                }
+                fired.countDown();
+            });
+        }
+
+        assertTrue(fired.await(5, TimeUnit.SECONDS));
+        assertEquals(0, early.get());
+        assertEquals(0, wheel.size());
+        wheel.stop();
+    }
+
+    @Test
+    void testCancelledTimeoutsNeverFire() throws Exception {
+        TimerWheel wheel = new TimerWheel("test-wheel", TimeUnit.MILLISECONDS.toNanos(5), 8);
+        wheel.start();
+        AtomicInteger fired = new AtomicInteger();
+        List<TimerWheel.Timeout> timeouts = new ArrayList<>();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(50);
+        for (int i = 0; i < 100; i++) {
+            timeouts.add(wheel.schedule(deadline, fired::incrementAndGet));
+        }
+        // Cancel half right away and half once they sit in their bucket
+        for (int i = 0; i < 50; i++) {
+            assertTrue(timeouts.get(i).cancel());
+        }
+        Thread.sleep(20);
+        for (int i = 50; i < 99; i++) {
+            assertTrue(timeouts.get(i).cancel());
+        }
+        assertFalse(timeouts.get(0).cancel());
+
+        Thread.sleep(150);
+        assertEquals(1, fired.get());
+        assertFalse(timeouts.get(99).cancel());
+        assertEquals(0, wheel.size());
+        wheel.stop();
+    }
+}
@@ -0,0 +1,101 @@
+package org.example.walletservice;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.LongStream;
+import org.example.walletservice.engine.EngineResult;
+import org.example.walletservice.engine.WalletEngine;
+import org.example.walletservice.entity.Wallet;
+import org.example.walletservice.partition.PartitionRouter;
+import org.example.walletservice.service.WalletBalanceService;
+import org.example.walletservice.service.WalletBalanceService.BalanceVisitor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+class WalletBalanceServiceTest {
+
+    @Mock
+    private WalletRepository walletRepository;
+
+    @Mock
+    private WalletEngine walletEngine;
+
+    private final RecordingVisitor visitor = new RecordingVisitor();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void testChunkedQueriesReportUnknownCustomers() {
+        // Even ids have wallets
+        when(walletRepository.findByCustomerIdIn(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return ids.stream().filter(id -> id % 2 == 0)
+                    .map(id -> Wallet.builder().customerId(id).balance(id * 1_00L).build())
+                    .toList();
+        });
+        WalletBalanceService service = new WalletBalanceService(walletRepository, walletEngine, new PartitionRouter(64, List.of(), 0), 4);
+
+        List<Long> requested = new ArrayList<>(LongStream.rangeClosed(1, 10).boxed().toList());
+        requested.add(2L);
+        service.lookup(requested, visitor);
+
+        verify(walletRepository, times(3)).findByCustomerIdIn(anyCollection());
+        assertEquals(List.of(2L, 4L, 6L, 8L, 10L), visitor.found.stream().map(Wallet::getCustomerId).toList());
+        assertEquals(4_00L, visitor.found.get(1).getBalance());
+        assertEquals(List.of(1L, 3L, 5L, 7L, 9L), visitor.unknown);
+        assertTrue(visitor.wrongPartition.isEmpty());
+    }
+
+    @Test
+    void testEngineAndForeignPartitions() {
+        PartitionRouter router = new PartitionRouter(8, List.of("http://wallet-0:8082", "http://wallet-1:8082"), 0);
+        when(walletEngine.isEnabled()).thenReturn(true);
+        when(walletEngine.balance(anyLong())).thenAnswer(invocation -> {
+            long id = invocation.getArgument(0);
+            return id == 1L
+                    ? new EngineResult(EngineResult.Status.UNKNOWN_CUSTOMER, id, 0L, 0L)
+                    : new EngineResult(EngineResult.Status.OK, id, 5_00L, 3L);
+        });
+        WalletBalanceService service = new WalletBalanceService(walletRepository, walletEngine, router, 4);
+
+        List<Long> requested = LongStream.rangeClosed(1, 20).boxed().toList();
+        service.lookup(requested, visitor);
+
+        verify(walletRepository, never()).findByCustomerIdIn(anyCollection());
+        assertEquals(requested.stream().filter(id -> !router.owns(id)).toList(), visitor.wrongPartition);
+        assertEquals(requested.stream().filter(id -> id != 1L && router.owns(id)).toList(),
+                visitor.found.stream().map(Wallet::getCustomerId).toList());
+        assertEquals(router.owns(1L) ? List.of(1L) : List.of(), visitor.unknown);
+    }
+
+    private static class RecordingVisitor implements BalanceVisitor {
+
+        private final List<Wallet> found = new ArrayList<>();
+        private final List<Long> unknown = new ArrayList<>();
+        private final List<Long> wrongPartition = new ArrayList<>();
+
+        @Override
+        public void found(Wallet wallet) {
+            found.add(wallet);
+        }
+
+        @Override
+        public void unknown(long customerId) {
+            unknown.add(customerId);
+        }
+
+        @Override
+        public void wrongPartition(long customerId) {
+            wrongPartition.add(customerId);
+        }
+    }
+}
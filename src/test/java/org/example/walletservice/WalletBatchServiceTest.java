@@ -0,0 +1,132 @@
+package org.example.walletservice;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import java.util.List;
+import java.util.Optional;
+import org.example.walletservice.dto.BalanceUpdate;
+import org.example.walletservice.dto.BatchOperation;
+import org.example.walletservice.dto.BatchOperationResult;
+import org.example.walletservice.engine.WalletEngine;
+import org.example.walletservice.entity.Wallet;
+import org.example.walletservice.enums.BatchOperationStatus;
+import org.example.walletservice.enums.OperationType;
+import org.example.walletservice.exception.RequestIdConflictException;
+import org.example.walletservice.partition.PartitionRouter;
+import org.example.walletservice.service.EventOutbox;
+import org.example.walletservice.service.IdempotencyStore;
+import org.example.walletservice.service.WalletBatchService;
+import org.example.walletservice.service.WalletCache;
+import org.example.walletservice.service.WalletLedger;
+import org.example.walletservice.store.WalletStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+class WalletBatchServiceTest {
+
+    @Mock
+    private WalletStore walletStore;
+
+    @Mock
+    private WalletLedger walletLedger;
+
+    @Mock
+    private EventOutbox eventOutbox;
+
+    @Mock
+    private IdempotencyStore idempotencyStore;
+
+    @Mock
+    private WalletCache walletCache;
+
+    @Mock
+    private WalletEngine walletEngine;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private WalletBatchService walletBatchService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        walletBatchService = new WalletBatchService(walletStore, walletLedger, eventOutbox, idempotencyStore, walletCache, walletEngine,
+                new PartitionRouter(64, List.of(), 0), transactionManager, 2);
+    }
+
+    @Test
+    void testBatchReportsPerOperationResults() {
+        long amount = 10_00L;
+        when(walletStore.credit(1L, amount)).thenReturn(new BalanceUpdate(1, 110_00L, 1));
+        when(walletStore.debit(2L, amount)).thenReturn(BalanceUpdate.NONE);
+        when(walletStore.findBalanceByCustomerId(2L)).thenReturn(Optional.of(1_00L));
+        when(walletStore.credit(3L, amount)).thenReturn(BalanceUpdate.NONE);
+        when(idempotencyStore.findReplay(4L, "req-4")).thenReturn(Optional.of(Wallet.builder().customerId(4L).balance(10_00L).build()));
+
+        List<BatchOperationResult> results = walletBatchService.apply(List.of(
+                new BatchOperation(1L, "req-1", OperationType.DEPOSIT, 10_00L),
+                new BatchOperation(2L, "req-2", OperationType.WITHDRAW, 10_00L),
+                new BatchOperation(3L, "req-3", OperationType.DEPOSIT, 10_00L),
+                new BatchOperation(4L, "req-4", OperationType.WITHDRAW, 10_00L)));
+
+        assertEquals(List.of(BatchOperationStatus.OK, BatchOperationStatus.INSUFFICIENT_FUNDS,
+                        BatchOperationStatus.UNKNOWN_CUSTOMER, BatchOperationStatus.OK),
+                results.stream().map(BatchOperationResult::getStatus).toList());
+        assertEquals(110_00L, results.get(0).getBalance());
+        assertEquals(10_00L, results.get(3).getBalance());
+        verify(transactionManager, times(2)).commit(any());
+        verify(walletLedger, times(1)).appendAll(anyList());
+        verify(eventOutbox, times(1)).enqueueAll(anyList(), anyString());
+        verify(idempotencyStore).record(eq("req-1"), any(Wallet.class));
+        verify(idempotencyStore, never()).record(eq("req-4"), any(Wallet.class));
+        verify(walletStore, never()).debit(eq(4L), anyLong());
+    }
+
+    @Test
+    void testChunkLocksWalletsInCustomerOrderAndReportsInRequestOrder() {
+        when(walletStore.credit(anyLong(), anyLong())).thenReturn(new BalanceUpdate(1, 10_00L, 1));
+
+        List<BatchOperationResult> results = walletBatchService.apply(List.of(
+                new BatchOperation(7L, "req-7", OperationType.DEPOSIT, 10_00L),
+                new BatchOperation(3L, "req-3", OperationType.DEPOSIT, 10_00L)));
+
+        InOrder inOrder = inOrder(walletStore);
+        inOrder.verify(walletStore).credit(3L, 10_00L);
+        inOrder.verify(walletStore).credit(7L, 10_00L);
+        assertEquals(List.of("req-7", "req-3"), results.stream().map(BatchOperationResult::getRequestId).toList());
+    }
+
+    @Test
+    void testFailedChunkIsReportedWithoutLosingCommittedChunks() {
+        when(walletStore.credit(1L, 10_00L)).thenReturn(new BalanceUpdate(1, 10_00L, 1));
+        when(walletStore.credit(2L, 10_00L)).thenReturn(new BalanceUpdate(1, 10_00L, 1));
+        when(walletStore.credit(3L, 10_00L)).thenThrow(new CannotAcquireLockException("deadlock detected"));
+
+        List<BatchOperationResult> results = walletBatchService.apply(List.of(
+                new BatchOperation(1L, "req-1", OperationType.DEPOSIT, 10_00L),
+                new BatchOperation(2L, "req-2", OperationType.DEPOSIT, 10_00L),
+                new BatchOperation(3L, "req-3", OperationType.DEPOSIT, 10_00L)));
+
+        assertEquals(List.of(BatchOperationStatus.OK, BatchOperationStatus.OK, BatchOperationStatus.FAILED),
+                results.stream().map(BatchOperationResult::getStatus).toList());
+        assertNull(results.get(2).getBalance());
+        verify(transactionManager).rollback(any());
+    }
+
+    @Test
+    void testRequestIdOfAnotherCustomerIsReportedNotReplayed() {
+        when(idempotencyStore.findReplay(5L, "req-4")).thenThrow(new RequestIdConflictException());
+
+        List<BatchOperationResult> results = walletBatchService.apply(List.of(
+                new BatchOperation(5L, "req-4", OperationType.DEPOSIT, 10_00L)));
+
+        assertEquals(BatchOperationStatus.REQUEST_ID_CONFLICT, results.get(0).getStatus());
+        assertNull(results.get(0).getBalance());
+        verify(walletStore, never()).credit(anyLong(), anyLong());
+    }
+}
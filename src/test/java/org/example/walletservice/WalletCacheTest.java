@@ -0,0 +1,77 @@
+package org.example.walletservice;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.Optional;
+import org.example.walletservice.entity.Wallet;
+import org.example.walletservice.jms.publisher.CacheInvalidationPublisher;
+import org.example.walletservice.service.WalletCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.beans.factory.ObjectProvider;
+
+class WalletCacheTest {
+
+    private static final long CUSTOMER_ID = 1L;
+
+    @Mock
+    private ObjectProvider<CacheInvalidationPublisher> invalidationPublisherProvider;
+
+    @Mock
+    private CacheInvalidationPublisher invalidationPublisher;
+
+    private WalletCache walletCache;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(invalidationPublisherProvider.getIfAvailable()).thenReturn(invalidationPublisher);
+        walletCache = new WalletCache(new SimpleMeterRegistry(), 100, invalidationPublisherProvider, Duration.ofSeconds(30));
+    }
+
+    @Test
+    void testOlderSnapshotDoesNotReplaceNewer() {
+        // Commit callbacks of two writes running in the opposite order to the commits
+        walletCache.putAfterCommit(wallet(30_00L, 5));
+        walletCache.putAfterCommit(wallet(20_00L, 4));
+
+        assertEquals(Optional.of(wallet(30_00L, 5)), cached());
+        verify(invalidationPublisher).publish(CUSTOMER_ID, 5);
+        verify(invalidationPublisher).publish(CUSTOMER_ID, 4);
+    }
+
+    @Test
+    void testRemoteUpdateComparesSequencesNotBalances() {
+        walletCache.putAfterCommit(wallet(10_00L, 3));
+
+        // Own invalidation coming back
+        walletCache.onRemoteUpdate(CUSTOMER_ID, 3);
+        assertEquals(Optional.of(wallet(10_00L, 3)), cached());
+
+        // Deposit then withdrawal of the same amount elsewhere: same balance, newer wallet
+        walletCache.onRemoteUpdate(CUSTOMER_ID, 5);
+        assertEquals(Optional.empty(), cached());
+    }
+
+    @Test
+    void testEvictionDropsEveryCopy() {
+        walletCache.putAfterCommit(wallet(10_00L, 3));
+
+        walletCache.evictAfterCommit(CUSTOMER_ID);
+
+        assertEquals(Optional.empty(), cached());
+        verify(invalidationPublisher).publish(CUSTOMER_ID, Long.MAX_VALUE);
+    }
+
+    private Optional<Wallet> cached() {
+        return walletCache.get(CUSTOMER_ID, id -> Optional.empty());
+    }
+
+    private static Wallet wallet(long balance, long sequence) {
+        return Wallet.builder().customerId(CUSTOMER_ID).balance(balance).sequence(sequence).build();
+    }
+}
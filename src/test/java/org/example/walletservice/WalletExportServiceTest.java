@@ -0,0 +1,70 @@
+package org.example.walletservice;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Consumer;
+import org.example.walletservice.engine.WalletEngine;
+import org.example.walletservice.entity.Wallet;
+import org.example.walletservice.enums.ExportFormat;
+import org.example.walletservice.service.WalletExportService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+class WalletExportServiceTest {
+
+    @Mock
+    private WalletRepository walletRepository;
+
+    @Mock
+    private WalletEngine walletEngine;
+
+    private WalletExportService walletExportService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        walletExportService = new WalletExportService(walletRepository, walletEngine);
+        List<Wallet> wallets = List.of(
+                Wallet.builder().customerId(1L).balance(12_34L).sequence(3).build(),
+                Wallet.builder().customerId(2L).balance(5L).sequence(0).build());
+        when(walletRepository.forEachWallet(anyLong(), anyLong(), any())).thenAnswer(invocation -> {
+            Consumer<Wallet> visitor = invocation.getArgument(2);
+            wallets.forEach(visitor);
+            return (long) wallets.size();
+        });
+    }
+
+    @Test
+    void testNdjsonExport() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertEquals(2, walletExportService.export(ExportFormat.NDJSON, 1L, 2L, out));
+        assertEquals("""
+                {"customerId":1,"balance":12.34,"sequence":3}
+                {"customerId":2,"balance":0.05,"sequence":0}
+                """, out.toString(StandardCharsets.UTF_8));
+        verify(walletRepository).forEachWallet(eq(1L), eq(2L), any());
+    }
+
+    @Test
+    void testCsvExportCheckpointsEngineFirst() throws Exception {
+        when(walletEngine.isEnabled()).thenReturn(true);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        walletExportService.export(ExportFormat.CSV, Long.MIN_VALUE, Long.MAX_VALUE, out);
+
+        assertEquals("""
+                customerId,balance,sequence
+                1,12.34,3
+                2,0.05,0
+                """, out.toString(StandardCharsets.UTF_8));
+        verify(walletEngine).checkpoint();
+    }
+}
@@ -0,0 +1,77 @@
+package org.example.walletservice;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.List;
+import org.example.walletservice.dto.BalanceUpdate;
+import org.example.walletservice.dto.LedgerPage;
+import org.example.walletservice.entity.LedgerEntry;
+import org.example.walletservice.entity.Wallet;
+import org.example.walletservice.enums.OperationType;
+import org.example.walletservice.service.WalletLedger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+@DataJpaTest
+@Import(WalletLedger.class)
+class WalletLedgerTest {
+
+    private static final long CUSTOMER_ID = 42L;
+    private static final int UPDATES = 250;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private BalanceSnapshotRepository balanceSnapshotRepository;
+
+    @Autowired
+    private WalletLedger walletLedger;
+
+    @BeforeEach
+    void setUp() {
+        walletRepository.save(Wallet.builder().customerId(CUSTOMER_ID).balance(0L).build());
+        for (int i = 1; i <= UPDATES; i++) {
+            boolean deposit = i % 3 != 0;
+            BalanceUpdate update = deposit ? walletRepository.credit(CUSTOMER_ID, 5_00L) : walletRepository.debit(CUSTOMER_ID, 2_00L);
+            walletLedger.append(WalletLedger.entry(CUSTOMER_ID, "req-" + i,
+                    deposit ? OperationType.DEPOSIT : OperationType.WITHDRAW, deposit ? 5_00L : 2_00L, update));
+        }
+    }
+
+    @Test
+    void testKeysetPagesCoverHistoryNewestFirst() {
+        List<Long> sequences = new ArrayList<>();
+        Long before = null;
+        do {
+            LedgerPage page = walletLedger.page(CUSTOMER_ID, before, 40);
+            page.getEntries().stream().map(LedgerEntry::getSequence).forEach(sequences::add);
+            before = page.getNextBefore();
+        } while (before != null);
+
+        assertEquals(UPDATES, sequences.size());
+        for (int i = 0; i < UPDATES; i++) {
+            assertEquals(UPDATES - i, sequences.get(i));
+        }
+    }
+
+    @Test
+    void testBalanceRebuiltFromSnapshotMatchesWallet() {
+        Wallet wallet = walletRepository.findByCustomerId(CUSTOMER_ID).orElseThrow();
+
+        assertEquals(UPDATES, wallet.getSequence());
+        assertEquals(wallet.getBalance(), walletLedger.rebuildBalance(CUSTOMER_ID, wallet.getSequence()));
+        assertEquals(2, balanceSnapshotRepository.count());
+    }
+
+    @Test
+    void testBalanceRebuiltAtEarlierSequence() {
+        LedgerEntry entry = walletLedger.page(CUSTOMER_ID, 151L, 1).getEntries().get(0);
+
+        assertEquals(150, entry.getSequence());
+        assertEquals(entry.getBalanceAfter(), walletLedger.rebuildBalance(CUSTOMER_ID, 150));
+    }
+}
@@ -0,0 +1,144 @@
+package org.example.walletservice;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.example.walletservice.dto.BalanceUpdate;
+import org.example.walletservice.entity.Wallet;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class WalletRepositoryConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int OPERATIONS_PER_THREAD = 200;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void testConcurrentCreditsOnHotWalletAreNotLost() throws Exception {
+        long customerId = 1001L;
+        walletRepository.save(Wallet.builder().customerId(customerId).balance(0L).build());
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        hammer(() -> transactionTemplate.execute(status -> walletRepository.credit(customerId, 1_00L)));
+
+        long expected = (long) THREADS * OPERATIONS_PER_THREAD * 1_00L;
+        assertEquals(expected, walletRepository.findBalanceByCustomerId(customerId).orElseThrow());
+        assertEquals((long) THREADS * OPERATIONS_PER_THREAD, walletRepository.findByCustomerId(customerId).orElseThrow().getSequence());
+    }
+
+    @Test
+    void testConcurrentDebitsOnHotWalletNeverOverdraw() throws Exception {
+        long customerId = 1002L;
+        int funded = THREADS * OPERATIONS_PER_THREAD / 4;
+        walletRepository.save(Wallet.builder().customerId(customerId).balance(funded * 1_00L).build());
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        AtomicInteger applied = new AtomicInteger();
+
+        hammer(() -> {
+            BalanceUpdate update = transactionTemplate.execute(status -> walletRepository.debit(customerId, 1_00L));
+            if (update.applied()) {
+                applied.incrementAndGet();
+                assertTrue(update.balance() >= 0);
+            }
+        });
+
+        assertEquals(funded, applied.get());
+        assertEquals(0L, walletRepository.findBalanceByCustomerId(customerId).orElseThrow());
+    }
+
+    @Test
+    void testUpdateOfUnknownCustomerReportsNoRows() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        BalanceUpdate update = transactionTemplate.execute(status -> walletRepository.credit(999_999L, 10_00L));
+
+        assertFalse(update.applied());
+        assertEquals(0, update.balance());
+    }
+
+    @Test
+    void testCreditThatWouldOverflowReportsNoRows() {
+        long customerId = 1003L;
+        walletRepository.save(Wallet.builder().customerId(customerId).balance(Long.MAX_VALUE - 1_00L).build());
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        BalanceUpdate update = transactionTemplate.execute(status -> walletRepository.credit(customerId, 1_01L));
+
+        assertFalse(update.applied());
+        assertEquals(Long.MAX_VALUE - 1_00L, walletRepository.findBalanceByCustomerId(customerId).orElseThrow());
+    }
+
+    @Test
+    void testConcurrentHoldsAndDebitsNeverExceedBalance() throws Exception {
+        long customerId = 1004L;
+        int funded = THREADS * OPERATIONS_PER_THREAD / 4;
+        walletRepository.save(Wallet.builder().customerId(customerId).balance(funded * 1_00L).build());
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        AtomicInteger reserved = new AtomicInteger();
+        AtomicInteger debited = new AtomicInteger();
+        AtomicInteger turn = new AtomicInteger();
+
+        hammer(() -> {
+            if (turn.getAndIncrement() % 2 == 0) {
+                if (transactionTemplate.execute(status -> walletRepository.reserve(customerId, 1_00L)) == 1) {
+                    reserved.incrementAndGet();
+                }
+            } else if (transactionTemplate.execute(status -> walletRepository.debit(customerId, 1_00L)).applied()) {
+                debited.incrementAndGet();
+            }
+        });
+
+        assertEquals(funded, reserved.get() + debited.get());
+        Wallet wallet = walletRepository.findByCustomerId(customerId).orElseThrow();
+        assertEquals(reserved.get() * 1_00L, wallet.getReserved());
+        assertEquals(0L, wallet.getAvailable());
+
+        // Capturing every hold empties the wallet; nothing is left to release
+        BalanceUpdate capture = transactionTemplate.execute(status -> walletRepository.captureReserved(customerId, reserved.get() * 1_00L));
+        assertTrue(capture.applied());
+        assertEquals(0L, capture.balance());
+        assertEquals(0L, capture.reserved());
+        assertEquals(0, transactionTemplate.execute(status -> walletRepository.release(customerId, 1_00L)));
+    }
+
+    private void hammer(Runnable operation) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                        operation.run();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -2,26 +2,65 @@ package org.example.walletservice;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
-import java.math.BigDecimal;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import org.example.walletservice.dto.BalanceUpdate;
+import org.example.walletservice.dto.LedgerPage;
 import org.example.walletservice.dto.UpdateEvent;
+import org.example.walletservice.engine.EngineResult;
+import org.example.walletservice.engine.WalletEngine;
+import org.example.walletservice.entity.LedgerEntry;
 import org.example.walletservice.entity.Wallet;
+import org.example.walletservice.exception.BalanceLimitExceededException;
 import org.example.walletservice.exception.InsufficientBalanceException;
 import org.example.walletservice.exception.InvalidCustomerException;
-import org.example.walletservice.jms.publisher.EventPublisher;
+import org.example.walletservice.exception.RequestIdConflictException;
+import org.example.walletservice.metrics.WalletMetrics;
+import org.example.walletservice.service.CustomerExistenceIndex;
+import org.example.walletservice.service.CustomerExistenceIndex.Existence;
+import org.example.walletservice.service.EventOutbox;
+import org.example.walletservice.service.IdempotencyStore;
+import org.example.walletservice.service.WalletCache;
+import org.example.walletservice.service.WalletLedger;
 import org.example.walletservice.service.WalletService;
+import org.example.walletservice.store.WalletStore;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
 class WalletServiceTest {
 
     @Mock
-    private WalletRepository walletRepository;
+    private WalletStore walletStore;
 
     @Mock
-    private EventPublisher eventPublisher;
+    private WalletLedger walletLedger;
+
+    @Mock
+    private EventOutbox eventOutbox;
+
+    @Mock
+    private IdempotencyStore idempotencyStore;
+
+    @Mock
+    private WalletCache walletCache;
+
+    @Mock
+    private WalletMetrics walletMetrics;
+
+    @Mock
+    private WalletEngine walletEngine;
+
+    @Mock
+    private CustomerExistenceIndex existenceIndex;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
 
     @InjectMocks
     private WalletService walletService;
@@ -29,183 +68,339 @@ class WalletServiceTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        // Behave like a cold cache: every lookup goes to the loader
+        when(walletCache.get(anyLong(), any())).thenAnswer(invocation -> {
+            Function<Long, Optional<Wallet>> loader = invocation.getArgument(1);
+            return loader.apply(invocation.getArgument(0));
+        });
+        when(existenceIndex.lookup(anyLong())).thenReturn(Existence.UNKNOWN);
     }
 
     @Test
     void testCreateWalletWhenWalletDoesNotExist() {
         Long customerId = 1L;
-        BigDecimal initialBalance = BigDecimal.valueOf(100);
+        long initialBalance = 100_00L;
 
-        when(walletRepository.findByCustomerId(customerId)).thenReturn(Optional.empty());
+        when(walletStore.findByCustomerId(customerId)).thenReturn(Optional.empty());
 
         walletService.createWallet(customerId, initialBalance);
 
-        verify(walletRepository).findByCustomerId(customerId);
-        verify(walletRepository).save(any(Wallet.class));
+        verify(walletStore).findByCustomerId(customerId);
+        verify(walletStore).insert(any(Wallet.class));
+        verify(existenceIndex).addAfterCommit(List.of(customerId));
     }
 
     @Test
     void testCreateWalletWhenWalletExists() {
         Long customerId = 1L;
-        BigDecimal initialBalance = BigDecimal.valueOf(100);
+        long initialBalance = 100_00L;
         Wallet existingWallet = Wallet.builder().customerId(customerId).balance(initialBalance).build();
 
-        when(walletRepository.findByCustomerId(customerId)).thenReturn(Optional.of(existingWallet));
+        when(walletStore.findByCustomerId(customerId)).thenReturn(Optional.of(existingWallet));
 
         walletService.createWallet(customerId, initialBalance);
 
-        verify(walletRepository).findByCustomerId(customerId);
-        verify(walletRepository, never()).save(any(Wallet.class));
+        verify(walletStore).findByCustomerId(customerId);
+        verify(walletStore, never()).insert(any(Wallet.class));
+    }
+
+    @Test
+    void testCreateWalletsInsertsOnlyMissingWallets() {
+        List<Long> customerIds = List.of(1L, 2L, 3L);
+        when(walletStore.findExistingCustomerIds(customerIds)).thenReturn(Set.of(2L));
+
+        int created = walletService.createWallets(customerIds, 0L);
+
+        assertEquals(2, created);
+        verify(walletStore).insertAll(List.of(
+                Wallet.builder().customerId(1L).balance(0L).build(),
+                Wallet.builder().customerId(3L).balance(0L).build()));
+        verify(walletStore, never()).findByCustomerId(anyLong());
     }
 
     @Test
     void testDepositWhenWalletExistsAndRequestNotProcessed() {
         Long customerId = 1L;
-        BigDecimal depositAmount = BigDecimal.valueOf(100);
+        long depositAmount = 100_00L;
         String requestId = "req123";
-        Wallet existingWallet = Wallet.builder().customerId(customerId).balance(BigDecimal.valueOf(50)).build();
-        Wallet updatedWallet = Wallet.builder().customerId(customerId).balance(BigDecimal.valueOf(150)).build();
+        Wallet updatedWallet = Wallet.builder().customerId(customerId).balance(150_00L).sequence(1).build();
 
-        when(walletRepository.findByCustomerId(customerId)).thenReturn(Optional.of(existingWallet));
-        when(walletRepository.save(any(Wallet.class))).thenReturn(updatedWallet);
+        when(walletStore.credit(customerId, depositAmount)).thenReturn(new BalanceUpdate(1, 150_00L, 1));
 
-        walletService.deposit(customerId, depositAmount, requestId);
+        Wallet result = walletService.deposit(customerId, depositAmount, requestId);
 
-        verify(walletRepository).findByCustomerId(customerId);
-        verify(walletRepository).save(any(Wallet.class));
-        verify(eventPublisher).publish(any(UpdateEvent.class), anyString());
+        assertEquals(updatedWallet, result);
+        verify(walletStore).credit(customerId, depositAmount);
+        verify(walletStore, never()).findByCustomerId(customerId);
+        verify(walletStore, never()).insert(any(Wallet.class));
+        verify(walletLedger).append(any(LedgerEntry.class));
+        verify(eventOutbox).enqueue(any(UpdateEvent.class), anyString());
+        verify(idempotencyStore).record(requestId, updatedWallet);
+        verify(walletCache).putAfterCommit(updatedWallet);
     }
 
     @Test
     void testDepositWhenWalletDoesNotExist() {
         Long customerId = 1L;
-        BigDecimal depositAmount = BigDecimal.valueOf(100);
+        long depositAmount = 100_00L;
         String requestId = "req123";
 
-        when(walletRepository.findByCustomerId(customerId)).thenReturn(Optional.empty());
+        when(walletStore.credit(customerId, depositAmount)).thenReturn(BalanceUpdate.NONE);
+
+        assertThrows(InvalidCustomerException.class, () -> {
+            walletService.deposit(customerId, depositAmount, requestId);
+        });
+
+        verify(walletStore).credit(customerId, depositAmount);
+        verify(walletLedger, never()).append(any(LedgerEntry.class));
+        verify(eventOutbox, never()).enqueue(any(UpdateEvent.class), anyString());
+        verify(idempotencyStore, never()).record(anyString(), any(Wallet.class));
+        verify(existenceIndex).recordAbsent(customerId);
+    }
+
+    @Test
+    void testDepositOfKnownAbsentCustomerSkipsDatabase() {
+        Long customerId = 1L;
+
+        when(existenceIndex.lookup(customerId)).thenReturn(Existence.ABSENT);
 
         assertThrows(InvalidCustomerException.class, () -> {
+            walletService.deposit(customerId, 100_00L, "req123");
+        });
+
+        verify(idempotencyStore, never()).findReplay(anyLong(), anyString());
+        verify(walletStore, never()).credit(anyLong(), anyLong());
+    }
+
+    @Test
+    void testCreateWalletOfIndexedCustomerSkipsDatabase() {
+        Long customerId = 1L;
+
+        when(existenceIndex.lookup(customerId)).thenReturn(Existence.EXISTS);
+
+        walletService.createWallet(customerId, 100_00L);
+
+        verify(walletStore, never()).findByCustomerId(anyLong());
+        verify(walletStore, never()).insert(any(Wallet.class));
+    }
+
+    @Test
+    void testDepositWhenBalanceLimitWouldBeExceeded() {
+        Long customerId = 1L;
+        long depositAmount = 100_00L;
+        String requestId = "req123";
+
+        when(walletStore.credit(customerId, depositAmount)).thenReturn(BalanceUpdate.NONE);
+        when(walletStore.findBalanceByCustomerId(customerId)).thenReturn(Optional.of(Long.MAX_VALUE));
+
+        assertThrows(BalanceLimitExceededException.class, () -> {
             walletService.deposit(customerId, depositAmount, requestId);
         });
 
-        verify(walletRepository).findByCustomerId(customerId);
-        verify(walletRepository, never()).save(any(Wallet.class));
-        verify(eventPublisher, never()).publish(any(UpdateEvent.class), anyString());
+        verify(eventOutbox, never()).enqueue(any(UpdateEvent.class), anyString());
+        verify(idempotencyStore, never()).record(anyString(), any(Wallet.class));
     }
 
     @Test
     void testDepositWhenRequestAlreadyProcessed() {
         Long customerId = 1L;
-        BigDecimal depositAmount = BigDecimal.valueOf(100);
+        long depositAmount = 100_00L;
         String requestId = "req123";
-        Wallet existingWallet = Wallet.builder().customerId(customerId).balance(BigDecimal.valueOf(50)).build();
+        Wallet existingWallet = Wallet.builder().customerId(customerId).balance(50_00L).build();
 
-        walletService.processedRequestIds.add(requestId);
-        when(walletRepository.findByCustomerId(customerId)).thenReturn(Optional.of(existingWallet));
+        when(idempotencyStore.findReplay(customerId, requestId)).thenReturn(Optional.of(existingWallet));
 
         Wallet result = walletService.deposit(customerId, depositAmount, requestId);
 
         assertEquals(existingWallet, result);
-        verify(walletRepository).findByCustomerId(customerId);
-        verify(walletRepository, never()).save(any(Wallet.class));
-        verify(eventPublisher, never()).publish(any(UpdateEvent.class), anyString());
+        verify(walletStore, never()).findByCustomerId(customerId);
+        verify(walletStore, never()).insert(any(Wallet.class));
+        verify(eventOutbox, never()).enqueue(any(UpdateEvent.class), anyString());
+    }
+
+    @Test
+    void testDepositWithRequestIdOfAnotherCustomerConflicts() {
+        Long customerId = 2L;
+        String requestId = "req123";
+
+        when(idempotencyStore.findReplay(customerId, requestId)).thenThrow(new RequestIdConflictException());
+
+        assertThrows(RequestIdConflictException.class, () -> {
+            walletService.deposit(customerId, 100_00L, requestId);
+        });
+
+        verify(walletStore, never()).credit(anyLong(), anyLong());
+        verify(idempotencyStore, never()).record(anyString(), any(Wallet.class));
+    }
+
+    @Test
+    void testConcurrentDuplicateDepositIsAnsweredAsReplay() {
+        Long customerId = 1L;
+        long depositAmount = 100_00L;
+        String requestId = "req123";
+        Wallet firstResult = Wallet.builder().customerId(customerId).balance(200_00L).sequence(4).build();
+
+        // Not recorded yet when this request looks, recorded by the other one when its commit fails
+        when(idempotencyStore.findReplay(customerId, requestId)).thenReturn(Optional.empty(), Optional.of(firstResult));
+        when(walletStore.credit(customerId, depositAmount)).thenReturn(new BalanceUpdate(1, 300_00L, 5));
+        doThrow(new DataIntegrityViolationException("duplicate processed_request")).when(transactionManager).commit(any());
+
+        Wallet result = walletService.deposit(customerId, depositAmount, requestId);
+
+        assertEquals(firstResult, result);
     }
 
     @Test
     void testWithdrawWhenWalletExistsAndRequestNotProcessed() {
         Long customerId = 1L;
-        BigDecimal withdrawAmount = BigDecimal.valueOf(50);
+        long withdrawAmount = 50_00L;
         String requestId = "req123";
-        Wallet existingWallet = Wallet.builder().customerId(customerId).balance(BigDecimal.valueOf(100)).build();
-        Wallet updatedWallet = Wallet.builder().customerId(customerId).balance(BigDecimal.valueOf(50)).build();
+        Wallet updatedWallet = Wallet.builder().customerId(customerId).balance(50_00L).sequence(1).build();
 
-        when(walletRepository.findByCustomerId(customerId)).thenReturn(Optional.of(existingWallet));
-        when(walletRepository.save(any(Wallet.class))).thenReturn(updatedWallet);
+        when(walletStore.debit(customerId, withdrawAmount)).thenReturn(new BalanceUpdate(1, 50_00L, 1));
 
-        walletService.withdraw(customerId, withdrawAmount, requestId);
+        Wallet result = walletService.withdraw(customerId, withdrawAmount, requestId);
 
-        verify(walletRepository).findByCustomerId(customerId);
-        verify(walletRepository).save(any(Wallet.class));
-        verify(eventPublisher).publish(any(UpdateEvent.class), anyString());
+        assertEquals(updatedWallet, result);
+        verify(walletStore).debit(customerId, withdrawAmount);
+        verify(walletStore, never()).findByCustomerId(customerId);
+        verify(walletStore, never()).insert(any(Wallet.class));
+        verify(walletLedger).append(any(LedgerEntry.class));
+        verify(eventOutbox).enqueue(any(UpdateEvent.class), anyString());
+        verify(idempotencyStore).record(requestId, updatedWallet);
+        verify(walletCache).putAfterCommit(updatedWallet);
     }
 
     @Test
     void testWithdrawWhenWalletDoesNotExist() {
         Long customerId = 1L;
-        BigDecimal withdrawAmount = BigDecimal.valueOf(50);
+        long withdrawAmount = 50_00L;
         String requestId = "req123";
 
-        when(walletRepository.findByCustomerId(customerId)).thenReturn(Optional.empty());
+        when(walletStore.debit(customerId, withdrawAmount)).thenReturn(BalanceUpdate.NONE);
+        when(walletStore.findBalanceByCustomerId(customerId)).thenReturn(Optional.empty());
 
         assertThrows(InvalidCustomerException.class, () -> {
             walletService.withdraw(customerId, withdrawAmount, requestId);
         });
 
-        verify(walletRepository).findByCustomerId(customerId);
-        verify(walletRepository, never()).save(any(Wallet.class));
-        verify(eventPublisher, never()).publish(any(UpdateEvent.class), anyString());
+        verify(walletStore).debit(customerId, withdrawAmount);
+        verify(eventOutbox, never()).enqueue(any(UpdateEvent.class), anyString());
+        verify(idempotencyStore, never()).record(anyString(), any(Wallet.class));
     }
 
     @Test
     void testWithdrawWhenInsufficientBalance() {
         Long customerId = 1L;
-        BigDecimal withdrawAmount = BigDecimal.valueOf(150);
+        long withdrawAmount = 150_00L;
         String requestId = "req123";
-        Wallet existingWallet = Wallet.builder().customerId(customerId).balance(BigDecimal.valueOf(100)).build();
 
-        when(walletRepository.findByCustomerId(customerId)).thenReturn(Optional.of(existingWallet));
+        when(walletStore.debit(customerId, withdrawAmount)).thenReturn(BalanceUpdate.NONE);
+        when(walletStore.findBalanceByCustomerId(customerId)).thenReturn(Optional.of(100_00L));
 
         assertThrows(InsufficientBalanceException.class, () -> {
             walletService.withdraw(customerId, withdrawAmount, requestId);
         });
 
-        verify(walletRepository).findByCustomerId(customerId);
-        verify(walletRepository, never()).save(any(Wallet.class));
-        verify(eventPublisher, never()).publish(any(UpdateEvent.class), anyString());
+        verify(walletStore).debit(customerId, withdrawAmount);
+        verify(eventOutbox, never()).enqueue(any(UpdateEvent.class), anyString());
+        verify(idempotencyStore, never()).record(anyString(), any(Wallet.class));
     }
 
     @Test
     void testWithdrawWhenRequestAlreadyProcessed() {
         Long customerId = 1L;
-        BigDecimal withdrawAmount = BigDecimal.valueOf(50);
+        long withdrawAmount = 50_00L;
         String requestId = "req123";
-        Wallet existingWallet = Wallet.builder().customerId(customerId).balance(BigDecimal.valueOf(100)).build();
+        Wallet existingWallet = Wallet.builder().customerId(customerId).balance(100_00L).build();
 
-        walletService.processedRequestIds.add(requestId);
-        when(walletRepository.findByCustomerId(customerId)).thenReturn(Optional.of(existingWallet));
+        when(idempotencyStore.findReplay(customerId, requestId)).thenReturn(Optional.of(existingWallet));
 
         Wallet result = walletService.withdraw(customerId, withdrawAmount, requestId);
 
         assertEquals(existingWallet, result);
-        verify(walletRepository).findByCustomerId(customerId);
-        verify(walletRepository, never()).save(any(Wallet.class));
-        verify(eventPublisher, never()).publish(any(UpdateEvent.class), anyString());
+        verify(walletStore, never()).findByCustomerId(customerId);
+        verify(walletStore, never()).insert(any(Wallet.class));
+        verify(eventOutbox, never()).enqueue(any(UpdateEvent.class), anyString());
+    }
+
+    @Test
+    void testDepositAppliedByEngineWhenEnabled() {
+        Long customerId = 1L;
+        when(walletEngine.isEnabled()).thenReturn(true);
+        when(walletEngine.deposit(customerId, 50_00L, "req123"))
+                .thenReturn(new EngineResult(EngineResult.Status.OK, customerId, 150_00L, 3));
+
+        Wallet result = walletService.deposit(customerId, 50_00L, "req123");
+
+        assertEquals(150_00L, result.getBalance());
+        assertEquals(3, result.getSequence());
+        verify(walletStore, never()).credit(anyLong(), anyLong());
+        verify(transactionManager, never()).getTransaction(any());
+    }
+
+    @Test
+    void testWithdrawRejectedByEngine() {
+        Long customerId = 1L;
+        when(walletEngine.isEnabled()).thenReturn(true);
+        when(walletEngine.withdraw(customerId, 50_00L, "req123"))
+                .thenReturn(new EngineResult(EngineResult.Status.INSUFFICIENT_FUNDS, customerId, 0, 0));
+
+        assertThrows(InsufficientBalanceException.class, () -> {
+            walletService.withdraw(customerId, 50_00L, "req123");
+        });
+        verify(walletStore, never()).debit(anyLong(), anyLong());
     }
 
     @Test
     void testGetWallet() {
         Long customerId = 1L;
-        Wallet wallet = Wallet.builder().customerId(customerId).balance(BigDecimal.valueOf(100)).build();
+        Wallet wallet = Wallet.builder().customerId(customerId).balance(100_00L).build();
 
-        when(walletRepository.findByCustomerId(customerId)).thenReturn(Optional.of(wallet));
+        when(walletStore.findByCustomerId(customerId)).thenReturn(Optional.of(wallet));
 
         Wallet result = walletService.getWallet(customerId);
 
         assertNotNull(result);
         assertEquals(wallet, result);
-        verify(walletRepository).findByCustomerId(customerId);
+        verify(walletStore).findByCustomerId(customerId);
+    }
+
+    @Test
+    void testGetWalletServedFromCache() {
+        Long customerId = 1L;
+        Wallet wallet = Wallet.builder().customerId(customerId).balance(100_00L).build();
+
+        when(walletCache.get(eq(customerId), any())).thenReturn(Optional.of(wallet));
+
+        Wallet result = walletService.getWallet(customerId);
+
+        assertEquals(wallet, result);
+        verify(walletStore, never()).findByCustomerId(customerId);
+    }
+
+    @Test
+    void testGetTransactionsOfUnknownCustomer() {
+        Long customerId = 1L;
+
+        when(walletLedger.page(customerId, null, 50)).thenReturn(new LedgerPage(List.of(), null));
+        when(walletStore.exists(customerId)).thenReturn(false);
+
+        assertThrows(InvalidCustomerException.class, () -> {
+            walletService.getTransactions(customerId, null, 50);
+        });
     }
 
     @Test
     void testGetWalletNotFound() {
         Long customerId = 1L;
 
-        when(walletRepository.findByCustomerId(customerId)).thenReturn(Optional.empty());
+        when(walletStore.findByCustomerId(customerId)).thenReturn(Optional.empty());
 
         assertThrows(InvalidCustomerException.class, () -> {
             walletService.getWallet(customerId);
         });
 
-        verify(walletRepository).findByCustomerId(customerId);
+        verify(walletStore).findByCustomerId(customerId);
     }
 }
@@ -0,0 +1,98 @@
+package org.example.walletservice;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.LongStream;
+import javax.sql.DataSource;
+import org.example.walletservice.dto.BalanceUpdate;
+import org.example.walletservice.entity.Wallet;
+import org.example.walletservice.store.JdbcWalletStore;
+import org.example.walletservice.store.JpaWalletStore;
+import org.example.walletservice.store.WalletStore;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * The same expectations against both {@link WalletStore} implementations, on the schema Hibernate
+ * generates. Each store gets its own range of customer ids.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class WalletStoreTest {
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void testJpaStore() {
+        verifyStore(new JpaWalletStore(walletRepository), 10_000L);
+    }
+
+    @Test
+    void testJdbcStore() {
+        verifyStore(new JdbcWalletStore(new JdbcTemplate(dataSource), 7), 20_000L);
+    }
+
+    @Test
+    void testJdbcStoreRollsBackWithTheJpaTransaction() {
+        JdbcWalletStore store = new JdbcWalletStore(new JdbcTemplate(dataSource), 7);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        long customerId = 30_000L;
+        transactionTemplate.executeWithoutResult(status -> store.insert(Wallet.builder().customerId(customerId).balance(10_00L).build()));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            store.credit(customerId, 5_00L);
+            status.setRollbackOnly();
+        });
+
+        assertEquals(10_00L, walletRepository.findBalanceByCustomerId(customerId).orElseThrow());
+    }
+
+    private void verifyStore(WalletStore store, long firstCustomerId) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        List<Long> customerIds = LongStream.range(firstCustomerId, firstCustomerId + 250).boxed().toList();
+        transactionTemplate.executeWithoutResult(status -> store.insertAll(customerIds.stream()
+                .map(customerId -> Wallet.builder().customerId(customerId).balance(10_00L).build())
+                .toList()));
+        long single = firstCustomerId + 1_000;
+        transactionTemplate.executeWithoutResult(status -> store.insert(Wallet.builder().customerId(single).balance(0L).build()));
+
+        // 250 existing ids in three IN chunks, the last one padded, mixed with unknown ones
+        List<Long> lookup = LongStream.range(firstCustomerId - 5, firstCustomerId + 255).boxed().toList();
+        Set<Long> existing = store.findExistingCustomerIds(lookup);
+        assertEquals(Set.copyOf(customerIds), existing);
+        assertTrue(store.exists(single));
+        assertFalse(store.exists(firstCustomerId - 1));
+
+        BalanceUpdate credit = transactionTemplate.execute(status -> store.credit(firstCustomerId, 5_00L));
+        assertEquals(new BalanceUpdate(1, 15_00L, 1, 0), credit);
+        BalanceUpdate debit = transactionTemplate.execute(status -> store.debit(firstCustomerId, 15_00L));
+        assertEquals(new BalanceUpdate(1, 0L, 2, 0), debit);
+        assertFalse(transactionTemplate.execute(status -> store.debit(firstCustomerId, 1L)).applied());
+        assertFalse(transactionTemplate.execute(status -> store.credit(firstCustomerId - 1, 1L)).applied());
+
+        // Reserved funds cannot be withdrawn
+        transactionTemplate.executeWithoutResult(status -> walletRepository.reserve(firstCustomerId + 1, 4_00L));
+        assertFalse(transactionTemplate.execute(status -> store.debit(firstCustomerId + 1, 7_00L)).applied());
+        BalanceUpdate partial = transactionTemplate.execute(status -> store.debit(firstCustomerId + 1, 6_00L));
+        assertEquals(new BalanceUpdate(1, 4_00L, 1, 4_00L), partial);
+
+        assertEquals(Wallet.builder().customerId(firstCustomerId + 1).balance(4_00L).sequence(1).reserved(4_00L).build(),
+                store.findByCustomerId(firstCustomerId + 1).orElseThrow());
+        assertEquals(0L, store.findBalanceByCustomerId(firstCustomerId).orElseThrow());
+        assertTrue(store.findByCustomerId(firstCustomerId - 1).isEmpty());
+    }
+}
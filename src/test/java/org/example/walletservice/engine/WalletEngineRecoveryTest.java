@@ -0,0 +1,264 @@
+package org.example.walletservice.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.example.walletservice.engine.EngineCommand.Type;
+import org.example.walletservice.engine.EngineResult.Status;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Crash recovery of the {@link WalletEngine}: a "crash" is {@link WalletEngine#halt()}, which stops the
+ * writers without a checkpoint, followed by a new engine on the same journal directory and store.
+ */
+class WalletEngineRecoveryTest {
+
+    private static final int WALLETS = 16;
+    private static final int THREADS = 8;
+    private static final int OPERATIONS_PER_THREAD = 500;
+
+    @TempDir
+    Path journalDirectory;
+
+    private final InMemoryCheckpointStore store = new InMemoryCheckpointStore();
+
+    @Test
+    void testAcknowledgedDepositsSurviveCrash() throws Exception {
+        store.createWallets(WALLETS);
+        WalletEngine engine = startEngine(4);
+        Map<Long, AtomicLong> acknowledged = new ConcurrentHashMap<>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    long customerId = 1 + (thread + i) % WALLETS;
+                    EngineResult result = engine.deposit(customerId, 1_00L, "req-" + thread + "-" + i);
+                    assertEquals(Status.OK, result.status());
+                    acknowledged.computeIfAbsent(customerId, id -> new AtomicLong()).addAndGet(1_00L);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        engine.halt();
+
+        WalletEngine recovered = startEngine(4);
+        long total = 0;
+        for (long customerId = 1; customerId <= WALLETS; customerId++) {
+            EngineResult balance = recovered.balance(customerId);
+            assertEquals(acknowledged.get(customerId).get(), balance.balance());
+            assertEquals(balance.balance() / 1_00L, balance.sequence());
+            total += balance.balance();
+        }
+        assertEquals((long) THREADS * OPERATIONS_PER_THREAD * 1_00L, total);
+        recovered.stop();
+    }
+
+    @Test
+    void testCheckpointThenCrashKeepsEveryChangeOnce() {
+        store.createWallets(1);
+        WalletEngine engine = startEngine(1);
+        for (int i = 0; i < 100; i++) {
+            engine.deposit(1L, 1_00L, "before-" + i);
+        }
+        engine.checkpoint();
+        assertEquals(100_00L, store.balance(1L));
+        for (int i = 0; i < 50; i++) {
+            engine.withdraw(1L, 1_00L, "after-" + i);
+        }
+        engine.halt();
+
+        WalletEngine recovered = startEngine(1);
+        assertEquals(50_00L, recovered.balance(1L).balance());
+        // Replays are recognised whether the original went through a checkpoint or only the journal
+        assertEquals(Status.REPLAYED, recovered.deposit(1L, 1_00L, "before-3").status());
+        assertEquals(Status.REPLAYED, recovered.withdraw(1L, 1_00L, "after-3").status());
+        assertEquals(Status.INSUFFICIENT_FUNDS, recovered.withdraw(1L, 51_00L, "too-much").status());
+        recovered.stop();
+
+        assertEquals(50_00L, store.balance(1L));
+        assertEquals(150, store.sequence(1L));
+        assertEquals(150, store.checkpointedRecords);
+    }
+
+    @Test
+    void testTornTailIsIgnored() throws IOException {
+        store.createWallets(1);
+        WalletEngine engine = startEngine(1);
+        for (int i = 0; i < 3; i++) {
+            engine.deposit(1L, 10_00L, "req-" + i);
+        }
+        engine.halt();
+
+        // A fourth record whose write was cut short: header in place, payload only half there
+        Path segment = Journal.segments(journalDirectory, 0).get(0);
+        int recordBytes = 8 + 37 + 2 * "req-0".length();
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            ByteBuffer torn = ByteBuffer.allocate(8 + 20);
+            torn.putInt(37 + 2 * "req-3".length()).putInt(12345).putLong(1L).putLong(4L).flip();
+            channel.write(torn, 3L * recordBytes);
+        }
+
+        WalletEngine recovered = startEngine(1);
+        assertEquals(30_00L, recovered.balance(1L).balance());
+        assertEquals(Status.OK, recovered.deposit(1L, 10_00L, "req-3").status());
+        assertEquals(40_00L, recovered.balance(1L).balance());
+        recovered.stop();
+        assertEquals(40_00L, store.balance(1L));
+    }
+
+    @Test
+    void testRejectionsAreNotJournaled() {
+        store.createWallets(1);
+        WalletEngine engine = startEngine(1);
+
+        assertEquals(Status.UNKNOWN_CUSTOMER, engine.deposit(99L, 1_00L, "req-1").status());
+        assertEquals(Status.INSUFFICIENT_FUNDS, engine.withdraw(1L, 1_00L, "req-2").status());
+        engine.deposit(1L, Long.MAX_VALUE, "req-3");
+        assertEquals(Status.BALANCE_LIMIT_EXCEEDED, engine.deposit(1L, 1L, "req-4").status());
+        engine.stop();
+
+        assertEquals(1, store.checkpointedRecords);
+        assertEquals(Long.MAX_VALUE, store.balance(1L));
+    }
+
+    @Test
+    void testRefusesToStartOverReservedFunds() {
+        store.createWallets(2);
+        store.reserve(2L, 5_00L);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> startEngine(2));
+        assertTrue(e.getMessage().startsWith("1 wallets have funds reserved by holds"));
+    }
+
+    @Test
+    void testReplayOlderThanTheWindowIsNotAppliedAgain() {
+        store.createWallets(2);
+        WalletEngine engine = startEngine(1, 2);
+        assertEquals(Status.OK, engine.deposit(1L, 1_00L, "req-1").status());
+        engine.deposit(1L, 1_00L, "req-2");
+        engine.deposit(1L, 1_00L, "req-3");
+        engine.checkpoint();
+
+        // req-1 has left the window of two, but is in the store
+        EngineResult replay = engine.deposit(1L, 1_00L, "req-1");
+        assertEquals(Status.REPLAYED, replay.status());
+        assertEquals(1_00L, replay.balance());
+        assertEquals(Status.REQUEST_ID_CONFLICT, engine.deposit(2L, 1_00L, "req-1").status());
+        assertEquals(Status.OK, engine.deposit(1L, 1_00L, "req-4").status());
+        assertEquals(4_00L, engine.balance(1L).balance());
+        engine.stop();
+    }
+
+    @Test
+    void testCommandPublishedAfterWriterStoppedFails() throws Exception {
+        EngineShard shard = new EngineShard(0, 64, new Journal(journalDirectory, 0, 16 * 1024, false), 10_000);
+        shard.load(1L, 0L, 0L);
+        Thread writer = new Thread(shard);
+        writer.start();
+        shard.stop();
+        writer.join();
+
+        // As from a caller that passed the engine's running check just before it stopped
+        CompletableFuture<EngineResult> result = shard.submit(Type.DEPOSIT, 1L, 1_00L, "req-1");
+        ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+        shard.closeJournal();
+    }
+
+    private WalletEngine startEngine(int shards) {
+        return startEngine(shards, 10_000);
+    }
+
+    private WalletEngine startEngine(int shards, int idempotencyWindow) {
+        WalletEngine engine = new WalletEngine(store, true, shards, 64, journalDirectory.toString(),
+                DataSize.ofKilobytes(16), false, idempotencyWindow);
+        engine.start();
+        return engine;
+    }
+
+    /**
+     * Stands in for the JPA store with the same skip-if-already-persisted rule.
+     */
+    private static class InMemoryCheckpointStore implements WalletCheckpointStore {
+
+        private final Map<Long, long[]> wallets = new HashMap<>();
+        private final Map<String, JournalRecord> processedRequests = new HashMap<>();
+        private int checkpointedRecords;
+
+        void createWallets(int count) {
+            for (long customerId = 1; customerId <= count; customerId++) {
+                wallets.put(customerId, new long[3]);
+            }
+        }
+
+        void reserve(long customerId, long amount) {
+            wallets.get(customerId)[2] += amount;
+        }
+
+        long balance(long customerId) {
+            return wallets.get(customerId)[0];
+        }
+
+        long sequence(long customerId) {
+            return wallets.get(customerId)[1];
+        }
+
+        @Override
+        public synchronized void loadWallets(WalletVisitor visitor) {
+            wallets.forEach((customerId, wallet) -> visitor.visit(customerId, wallet[0], wallet[1], wallet[2]));
+        }
+
+        @Override
+        public synchronized void loadProcessedRequests(ProcessedRequestVisitor visitor) {
+            processedRequests.forEach((requestId, record) ->
+                    visitor.visit(requestId, record.customerId(), record.balanceAfter(), record.sequence()));
+        }
+
+        @Override
+        public synchronized boolean findProcessedRequest(String requestId, ProcessedRequestVisitor visitor) {
+            JournalRecord record = processedRequests.get(requestId);
+            if (record == null) {
+                return false;
+            }
+            visitor.visit(requestId, record.customerId(), record.balanceAfter(), record.sequence());
+            return true;
+        }
+
+        @Override
+        public synchronized void checkpoint(List<JournalRecord> records) {
+            for (JournalRecord record : records) {
+                long[] wallet = wallets.get(record.customerId());
+                if (wallet == null || record.sequence() <= wallet[1]) {
+                    continue;
+                }
+                wallet[0] = record.balanceAfter();
+                wallet[1] = record.sequence();
+                processedRequests.putIfAbsent(record.requestId(), record);
+                checkpointedRecords++;
+            }
+        }
+    }
+}
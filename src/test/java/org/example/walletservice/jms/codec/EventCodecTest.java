@@ -0,0 +1,94 @@
+package org.example.walletservice.jms.codec;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.jms.BytesMessage;
+import jakarta.jms.Session;
+import jakarta.jms.TextMessage;
+import java.util.List;
+import org.example.walletservice.dto.CustomerUpdateEvent;
+import org.example.walletservice.dto.UpdateEvent;
+import org.example.walletservice.enums.ActionType;
+import org.junit.jupiter.api.Test;
+import org.springframework.jms.support.converter.MessageConversionException;
+
+class EventCodecTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final BinaryEventCodec binaryCodec = new BinaryEventCodec();
+    private final JsonEventCodec jsonCodec = new JsonEventCodec(objectMapper);
+    private final byte[] buffer = new byte[BinaryEventCodec.MAX_BYTES];
+
+    @Test
+    void testBinaryUpdateEventRoundTrip() throws Exception {
+        for (UpdateEvent event : List.of(
+                new UpdateEvent(123_456_789L, 250_75L, ActionType.DEBIT, 10_250_75L),
+                new UpdateEvent(Long.MAX_VALUE, Long.MAX_VALUE, ActionType.CREDIT, Long.MIN_VALUE),
+                new UpdateEvent(null, 0L, null, -1L))) {
+            int length = binaryCodec.write(event, buffer);
+
+            assertEquals(event, binaryCodec.read(buffer, length, UpdateEvent.class));
+        }
+    }
+
+    @Test
+    void testBinaryIsSmallerThanJson() throws Exception {
+        UpdateEvent event = new UpdateEvent(123_456_789L, 250_75L, ActionType.DEBIT, 10_250_75L);
+
+        int length = binaryCodec.write(event, buffer);
+
+        assertTrue(length < 16, "binary event takes " + length + " bytes");
+        assertTrue(objectMapper.writeValueAsBytes(event).length > 4 * length);
+    }
+
+    @Test
+    void testBinaryCustomerUpdateEventRoundTrip() {
+        CustomerUpdateEvent event = new CustomerUpdateEvent(42L);
+
+        int length = binaryCodec.write(event, buffer);
+
+        assertEquals(event, binaryCodec.read(buffer, length, CustomerUpdateEvent.class));
+    }
+
+    @Test
+    void testBinaryRejectsWrongTypeAndTruncatedBody() {
+        int length = binaryCodec.write(new CustomerUpdateEvent(42L), buffer);
+        assertThrows(MessageConversionException.class, () -> binaryCodec.read(buffer, length, UpdateEvent.class));
+
+        int updateLength = binaryCodec.write(new UpdateEvent(1L, 1_00L, ActionType.DEBIT, 1_00L), buffer);
+        assertThrows(MessageConversionException.class, () -> binaryCodec.read(buffer, updateLength - 1, UpdateEvent.class));
+    }
+
+    @Test
+    void testMessageWithoutContentTypeIsReadAsJson() throws Exception {
+        EventCodecs codecs = new EventCodecs(List.of(jsonCodec, binaryCodec), "binary");
+        TextMessage legacy = mock(TextMessage.class);
+        when(legacy.getText()).thenReturn("{\"customerId\": 7}");
+
+        assertEquals(new CustomerUpdateEvent(7L), codecs.decode(legacy, CustomerUpdateEvent.class));
+    }
+
+    @Test
+    void testOutboundCodecTagsContentType() throws Exception {
+        EventCodecs codecs = new EventCodecs(List.of(jsonCodec, binaryCodec), "binary");
+        Session session = mock(Session.class);
+        BytesMessage message = mock(BytesMessage.class);
+        when(session.createBytesMessage()).thenReturn(message);
+
+        codecs.encode(new UpdateEvent(1L, 1_00L, ActionType.DEBIT, 1_00L), session);
+
+        verify(message).writeBytes(any(byte[].class), eq(0), anyInt());
+        verify(message).setStringProperty(EventCodec.CONTENT_TYPE_PROPERTY, BinaryEventCodec.CONTENT_TYPE);
+        verify(session, never()).createTextMessage(anyString());
+    }
+
+    @Test
+    void testUnknownContentTypeIsRejected() throws Exception {
+        EventCodecs codecs = new EventCodecs(List.of(jsonCodec, binaryCodec), "json");
+        BytesMessage message = mock(BytesMessage.class);
+        when(message.getStringProperty(EventCodec.CONTENT_TYPE_PROPERTY)).thenReturn("application/xml");
+
+        assertThrows(MessageConversionException.class, () -> codecs.decode(message, UpdateEvent.class));
+    }
+}